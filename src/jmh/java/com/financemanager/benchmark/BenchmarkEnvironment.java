@@ -0,0 +1,39 @@
+package com.financemanager.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Общая подготовка окружения: временный каталог данных и подавление консольного вывода сервисов
+public final class BenchmarkEnvironment {
+    private static final PrintStream ORIGINAL_OUT = System.out;
+
+    private BenchmarkEnvironment() {
+    }
+
+    public static Path createDataDir() throws IOException {
+        return Files.createTempDirectory("finance-bench");
+    }
+
+    // Сервисы печатают сообщения на каждую операцию; в замерах это только шум
+    public static void silenceConsole() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    public static void restoreConsole() {
+        System.setOut(ORIGINAL_OUT);
+    }
+
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.exception.InsufficientFundsException;
+import com.financemanager.model.Session;
+import com.financemanager.model.Wallet;
+import com.financemanager.service.AuthService;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.LoginRateLimiter;
+import com.financemanager.service.PasswordHasher;
+import com.financemanager.service.TransactionService;
+import com.financemanager.service.WalletCache;
+import com.financemanager.service.WalletService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Нагрузочная проверка многопользовательского ядра: много потоков одновременно пополняют, тратят
+// и переводят деньги между многими кошельками через собственные сессии. В конце итоги каждого
+// кошелька сверяются с успешными операциями - в памяти и после перечитывания с диска.
+// Запуск: java -cp target/benchmarks.jar com.financemanager.benchmark.ConcurrencyStress [потоки] [кошельки] [операций на поток]
+public final class ConcurrencyStress {
+    private static final String PASSWORD = "password";
+    private static final int CHEAP_ITERATIONS = 1;
+
+    private ConcurrencyStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int wallets = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        BenchmarkEnvironment.silenceConsole();
+        boolean ok;
+        try {
+            ok = run(dataDir, threads, wallets, operations);
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(Path dataDir, int threads, int wallets, int operations) throws Exception {
+        FileService fileService = new FileService(dataDir.toString(), DurabilityMode.NONE);
+        // Кэш чуть меньше числа кошельков, чтобы вытеснение иногда шло вперемешку с операциями
+        // Вход на каждой операции: стоимость хеша пароля здесь не проверяется и заменена дешевой
+        AuthService authService = new AuthService(fileService,
+                new WalletCache(fileService, Math.max(1, wallets - wallets / 8), Long.MAX_VALUE),
+                new PasswordHasher(CHEAP_ITERATIONS), new LoginRateLimiter());
+        WalletService walletService = new WalletService(authService, new TransactionService(), fileService);
+
+        String[] usernames = new String[wallets];
+        for (int i = 0; i < wallets; i++) {
+            usernames[i] = "user" + i;
+            authService.register(usernames[i], PASSWORD);
+        }
+
+        // Ожидаемый баланс и число операций каждого кошелька по успешным вызовам
+        AtomicLongArray expectedBalance = new AtomicLongArray(wallets);
+        AtomicLongArray expectedCount = new AtomicLongArray(wallets);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(executor.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                start.await();
+                long rejected = 0;
+                for (int i = 0; i < operations; i++) {
+                    int owner = random.nextInt(wallets);
+                    long amount = 1 + random.nextInt(10_000);
+                    Session session = authService.openSession(usernames[owner], PASSWORD);
+                    try {
+                        switch (random.nextInt(3)) {
+                            case 0 -> {
+                                walletService.addIncome(session, amount, "Зарплата", "");
+                                expectedBalance.addAndGet(owner, amount);
+                                expectedCount.incrementAndGet(owner);
+                            }
+                            case 1 -> {
+                                walletService.addExpense(session, amount, "Еда", "");
+                                expectedBalance.addAndGet(owner, -amount);
+                                expectedCount.incrementAndGet(owner);
+                            }
+                            default -> {
+                                int target = random.nextInt(wallets);
+                                walletService.transferToUser(session, usernames[target], amount, "");
+                                expectedBalance.addAndGet(owner, -amount);
+                                expectedBalance.addAndGet(target, amount);
+                                expectedCount.incrementAndGet(owner);
+                                expectedCount.incrementAndGet(target);
+                            }
+                        }
+                    } catch (InsufficientFundsException e) {
+                        rejected++;
+                    } finally {
+                        authService.closeSession(session);
+                    }
+                }
+                return rejected;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        long rejected = 0;
+        for (Future<Long> result : results) {
+            rejected += result.get();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        executor.shutdown();
+        authService.getWalletCache().flushAll();
+
+        boolean ok = verify("в памяти", authService.getWalletCache(), usernames, expectedBalance, expectedCount);
+        // Новый экземпляр читает кошельки с диска: снимок плюс журнал
+        ok &= verify("после перечитывания", new WalletCache(fileService), usernames, expectedBalance, expectedCount);
+
+        long total = (long) threads * operations;
+        BenchmarkEnvironment.restoreConsole();
+        System.out.printf("Потоков: %d, кошельков: %d, операций: %d (отклонено из-за нехватки средств: %d)%n",
+                threads, wallets, total, rejected);
+        System.out.printf("Время: %.2f с (%.0f операций/с)%n", seconds, total / Math.max(seconds, 1e-9));
+        System.out.println(ok ? "Потерянных обновлений и расхождений балансов нет" : "ОБНАРУЖЕНЫ РАСХОЖДЕНИЯ");
+        return ok;
+    }
+
+    private static boolean verify(String stage, WalletCache cache, String[] usernames,
+                                  AtomicLongArray expectedBalance, AtomicLongArray expectedCount) {
+        boolean ok = true;
+        for (int i = 0; i < usernames.length; i++) {
+            Wallet wallet = cache.get(usernames[i]);
+            if (wallet.getBalance() != expectedBalance.get(i)
+                    || wallet.getTransactions().size() != expectedCount.get(i)
+                    || !wallet.checkConsistency()) {
+                System.err.printf("%s: кошелек %s - баланс %d (ожидался %d), операций %d (ожидалось %d)%n",
+                        stage, usernames[i], wallet.getBalance(), expectedBalance.get(i),
+                        wallet.getTransactions().size(), expectedCount.get(i));
+                ok = false;
+            }
+        }
+        return ok;
+    }
+}
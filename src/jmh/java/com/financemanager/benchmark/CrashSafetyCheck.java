@@ -0,0 +1,134 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.Wallet;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Внесение сбоев в запись снимков: дочерний процесс непрерывно перезаписывает снимок растущего
+// кошелька и убивается (kill -9) в случайный момент. После каждого убийства снимок должен читаться
+// целиком - прежней или новой версией, не короче последней подтвержденной записи.
+// Запуск: java -cp target/benchmarks.jar com.financemanager.benchmark.CrashSafetyCheck [раунды] [режим сброса]
+public final class CrashSafetyCheck {
+    private static final String USERNAME = "crash";
+    private static final int BATCH = 10_000;
+
+    private CrashSafetyCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("writer")) {
+            writer(args[1], DurabilityMode.valueOf(args[2]));
+            return;
+        }
+
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        DurabilityMode mode = args.length > 1 ? DurabilityMode.valueOf(args[1]) : DurabilityMode.NONE;
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        try {
+            System.exit(run(dataDir, rounds, mode) ? 0 : 1);
+        } finally {
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+    }
+
+    private static boolean run(Path dataDir, int rounds, DurabilityMode mode) throws Exception {
+        Random random = new Random(7);
+        boolean ok = true;
+        int lastSaved = 0;
+        for (int round = 1; round <= rounds; round++) {
+            Process child = new ProcessBuilder(javaBinary(), "-cp", System.getProperty("java.class.path"),
+                    CrashSafetyCheck.class.getName(), "writer", dataDir.toString(), mode.name())
+                    .redirectErrorStream(true)
+                    .start();
+
+            // Дочерний процесс сообщает размер кошелька после каждой завершенной записи
+            AtomicInteger confirmed = new AtomicInteger(lastSaved);
+            Thread reader = new Thread(() -> {
+                try (BufferedReader out = new BufferedReader(
+                        new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = out.readLine()) != null) {
+                        if (line.startsWith("saved ")) {
+                            confirmed.set(Integer.parseInt(line.substring(6)));
+                        }
+                    }
+                } catch (IOException e) {
+                    // Поток закрывается при убийстве процесса
+                }
+            });
+            reader.start();
+            Thread.sleep(300 + random.nextInt(1500));
+            child.destroyForcibly().waitFor();
+            reader.join();
+            lastSaved = confirmed.get();
+
+            BenchmarkEnvironment.silenceConsole();
+            Wallet wallet;
+            try {
+                wallet = new FileService(dataDir.toString(), mode).loadWallet(USERNAME);
+            } finally {
+                BenchmarkEnvironment.restoreConsole();
+            }
+            int size = wallet.getTransactions().size();
+            boolean roundOk = size >= lastSaved && size % BATCH == 0 && wallet.checkConsistency()
+                    && corruptFiles(dataDir).isEmpty();
+            System.out.printf("Раунд %2d: подтверждено записью %7d, прочитано %7d - %s%n",
+                    round, lastSaved, size, roundOk ? "ок" : "ОШИБКА");
+            ok &= roundOk;
+            lastSaved = size;
+        }
+        System.out.println(ok ? "Снимки пережили все сбои" : "ОБНАРУЖЕНЫ ПОТЕРИ ДАННЫХ");
+        return ok;
+    }
+
+    // Дочерний процесс: дочитывает кошелек и бесконечно дописывает пакеты, каждый раз полным снимком
+    private static void writer(String dataDir, DurabilityMode mode) {
+        BenchmarkEnvironment.silenceConsole();
+        FileService fileService = new FileService(dataDir, mode);
+        Wallet wallet = fileService.loadWallet(USERNAME);
+        Random random = new Random();
+        while (true) {
+            List<Transaction> batch = new ArrayList<>(BATCH);
+            int start = wallet.getTransactions().size();
+            for (int i = 0; i < BATCH; i++) {
+                batch.add(WalletDataGenerator.randomTransaction(random, start + i,
+                        WalletDataGenerator.HISTORY_START.plusSeconds(start + i)));
+            }
+            wallet.addTransactions(batch);
+            fileService.saveWalletSnapshot(wallet, USERNAME);
+            BenchmarkEnvironment.restoreConsole();
+            System.out.println("saved " + wallet.getTransactions().size());
+            System.out.flush();
+            BenchmarkEnvironment.silenceConsole();
+        }
+    }
+
+    private static List<File> corruptFiles(Path dataDir) {
+        List<File> corrupt = new ArrayList<>();
+        File[] files = dataDir.resolve("wallets").toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().contains(".corrupt")) {
+                    corrupt.add(file);
+                }
+            }
+        }
+        return corrupt;
+    }
+
+    private static String javaBinary() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+}
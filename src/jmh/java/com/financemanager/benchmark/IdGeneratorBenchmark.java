@@ -0,0 +1,66 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.service.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Пропускная способность генератора идентификаторов при одном и нескольких потоках
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+    private final IdGenerator generator = new IdGenerator(1);
+
+    // Каждый поток проверяет, что его идентификаторы строго возрастают
+    @State(Scope.Thread)
+    public static class LastId {
+        long value = Long.MIN_VALUE;
+    }
+
+    private long next(LastId last) {
+        long id = generator.nextId();
+        if (id <= last.value) {
+            throw new IllegalStateException("Идентификатор не возрастает: " + id + " после " + last.value);
+        }
+        last.value = id;
+        return id;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long singleThread(LastId last) {
+        return next(last);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long fourThreads(LastId last) {
+        return next(last);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long sixteenThreads(LastId last) {
+        return next(last);
+    }
+
+    // Прежняя схема для сравнения: миллисекунды как идентификатор
+    @Benchmark
+    @Threads(1)
+    public String legacyCurrentTimeMillis() {
+        return "INC_" + System.currentTimeMillis();
+    }
+}
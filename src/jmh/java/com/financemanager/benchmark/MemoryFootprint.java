@@ -0,0 +1,44 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.Wallet;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Память на одну транзакцию: колоночное хранилище против списка объектов Transaction.
+// Запуск: java -cp target/benchmarks.jar com.financemanager.benchmark.MemoryFootprint [число транзакций...]
+public final class MemoryFootprint {
+
+    private MemoryFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? parseSizes(args) : new int[]{100_000, 1_000_000};
+        System.out.printf("%12s %22s %22s %8s%n", "transactions", "List<Transaction> B/tx", "TransactionStore B/tx", "ratio");
+        for (int size : sizes) {
+            Wallet wallet = WalletDataGenerator.generateWallet(size, 42);
+            TransactionStore store = wallet.getTransactions();
+
+            // Прежнее представление: отдельный объект со своими строками на каждую транзакцию
+            List<Transaction> objects = new ArrayList<>(store.size());
+            for (Transaction transaction : store) {
+                objects.add(transaction);
+            }
+
+            double objectBytes = (double) GraphLayout.parseInstance(objects).totalSize() / size;
+            double storeBytes = (double) GraphLayout.parseInstance(store).totalSize() / size;
+            System.out.printf("%12d %22.1f %22.1f %7.1fx%n", size, objectBytes, storeBytes, objectBytes / storeBytes);
+        }
+    }
+
+    private static int[] parseSizes(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,57 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.StatisticsReport;
+import com.financemanager.model.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Полный пересчет статистики: один поток против пула из нескольких потоков
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ParallelAggregationBenchmark {
+    @Param({"100000", "1000000"})
+    public int historySize;
+
+    // 1 - последовательный пересчет в вызывающем потоке
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private Wallet wallet;
+    private ForkJoinPool pool;
+    private StatisticsAggregator aggregator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        wallet = WalletDataGenerator.generateWallet(historySize, 42);
+        pool = new ForkJoinPool(threads);
+        aggregator = new StatisticsAggregator(threads == 1 ? Integer.MAX_VALUE : 0, pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public StatisticsReport aggregate() {
+        return aggregator.aggregate(wallet);
+    }
+}
@@ -0,0 +1,111 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.User;
+import com.financemanager.service.AuthService;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.LoginRateLimiter;
+import com.financemanager.service.PasswordHasher;
+import com.financemanager.service.WalletCache;
+
+import java.nio.file.Path;
+
+// Стоимость входа при разном числе итераций PBKDF2: проверка пароля через AuthService.authenticate
+// в одном потоке (входов в секунду на ядро), первый вход со старой записью без хеша (проверка и
+// пересчет пароля и ответа) и перебор пароля одного логина при ограничении попыток.
+// Завершается с кодом 1, если запись без хеша не перевелась на хеши или перебор не ограничен.
+// Запуск: java -cp target/benchmarks.jar com.financemanager.benchmark.PasswordHashingBenchmark [итерации...]
+public final class PasswordHashingBenchmark {
+    private static final String PASSWORD = "password";
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int GUESSES = 1_000;
+    private static final int WARMUP_LOGINS = 3;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+    private static final int MIN_LOGINS = 10;
+
+    private PasswordHashingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] costs = new int[args.length > 0 ? args.length : 5];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = args.length > 0 ? Integer.parseInt(args[i]) : new int[]{10_000, 50_000, 100_000, 210_000, 600_000}[i];
+        }
+
+        System.out.printf("Ядер: %d, попыток подбора: %d, предел попыток: %d%n",
+                Runtime.getRuntime().availableProcessors(), GUESSES, MAX_ATTEMPTS);
+        System.out.printf("%10s %10s %18s %26s %22s%n",
+                "итераций", "вход, мс", "входов/с на ядро", "первый вход без хеша, мс", "хешей при подборе");
+        boolean ok = true;
+        for (int cost : costs) {
+            ok &= run(cost);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(int iterations) throws Exception {
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        BenchmarkEnvironment.silenceConsole();
+        try {
+            FileService fileService = new FileService(dataDir.toString(), DurabilityMode.NONE);
+            // Старая запись без хеша, сохраненная до запуска сервиса
+            User legacy = new User("legacy", PASSWORD);
+            legacy.setSecretQuestion("Город рождения?");
+            legacy.setSecretAnswer("Москва");
+            fileService.saveUser(legacy);
+
+            PasswordHasher hasher = new PasswordHasher(iterations);
+            LoginRateLimiter rateLimiter = new LoginRateLimiter(MAX_ATTEMPTS, 60_000);
+            AuthService authService = new AuthService(fileService, new WalletCache(fileService), hasher, rateLimiter);
+            authService.register("user", PASSWORD);
+
+            for (int i = 0; i < WARMUP_LOGINS; i++) {
+                authService.authenticate("user", PASSWORD);
+            }
+            int logins = 0;
+            long startedAt = System.nanoTime();
+            long elapsed;
+            do {
+                if (authService.authenticate("user", PASSWORD) == null) {
+                    throw new IllegalStateException("Вход не выполнен");
+                }
+                logins++;
+                elapsed = System.nanoTime() - startedAt;
+            } while (elapsed < MEASURE_NANOS || logins < MIN_LOGINS);
+            double loginMillis = elapsed / 1_000_000.0 / logins;
+
+            startedAt = System.nanoTime();
+            boolean migrated = authService.authenticate("legacy", PASSWORD) != null;
+            double migrationMillis = (System.nanoTime() - startedAt) / 1_000_000.0;
+            User saved = fileService.loadUser("legacy");
+            migrated &= PasswordHasher.isHashed(saved.getPassword()) && PasswordHasher.isHashed(saved.getSecretAnswer())
+                    && authService.authenticate("legacy", "wrong") == null
+                    && authService.authenticate("legacy", PASSWORD) != null
+                    && authService.resetPassword("legacy", " москва ", "newpassword")
+                    && authService.authenticate("legacy", "newpassword") != null;
+
+            // Подбор: каждая пропущенная ограничением попытка стоит одного хеша
+            long rejectedBefore = rateLimiter.getRejected();
+            for (int i = 0; i < GUESSES; i++) {
+                authService.authenticate("user", "guess" + i);
+            }
+            long hashes = GUESSES - (rateLimiter.getRejected() - rejectedBefore);
+
+            BenchmarkEnvironment.restoreConsole();
+            System.out.printf("%10d %10.2f %18.1f %26.2f %22d%n", iterations, loginMillis, 1000.0 / loginMillis,
+                    migrationMillis, hashes);
+            if (!migrated) {
+                System.out.println("Запись без хеша не переведена на хеши");
+            }
+            if (hashes > MAX_ATTEMPTS) {
+                System.out.println("Перебор не ограничен: хешей " + hashes);
+            }
+            return migrated && hashes <= MAX_ATTEMPTS;
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.Wallet;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.WalletFormat;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Загрузка и сохранение кошелька: текущий путь FileService (снимки JSON и двоичные)
+// против прежнего рефлективного Gson
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PersistenceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int historySize;
+
+    @Param({"JSON", "BINARY"})
+    public WalletFormat format;
+
+    private Path dataDir;
+    private FileService fileService;
+    private Wallet wallet;
+    private Wallet journaledWallet;
+    private Random random;
+    private long sequence;
+    // Конфигурация, которой FileService пользовался до потокового пути
+    private Gson legacyGson;
+    private String legacyFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkEnvironment.silenceConsole();
+        dataDir = BenchmarkEnvironment.createDataDir();
+        fileService = new FileService(dataDir.toString(), DurabilityMode.NONE, format);
+        wallet = WalletDataGenerator.generateWallet(historySize, 42);
+        fileService.saveWalletSnapshot(wallet, "load");
+
+        journaledWallet = WalletDataGenerator.generateWallet(historySize, 7);
+        fileService.saveWalletSnapshot(journaledWallet, "journal");
+        random = new Random(1);
+
+        legacyGson = new GsonBuilder()
+                .setPrettyPrinting()
+                .disableHtmlEscaping()
+                .setLenient()
+                .create();
+        legacyFile = dataDir.resolve("legacy.json").toString();
+        legacySave();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkEnvironment.restoreConsole();
+        BenchmarkEnvironment.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public Wallet loadWallet() {
+        return fileService.loadWallet("load");
+    }
+
+    @Benchmark
+    public void saveSnapshot() {
+        fileService.saveWalletSnapshot(wallet, "snapshot");
+    }
+
+    // Одна новая транзакция на сохранение: запись в журнал не должна зависеть от размера истории
+    @Benchmark
+    public void saveIncremental() {
+        Transaction transaction = WalletDataGenerator.randomTransaction(random, sequence++,
+                WalletDataGenerator.HISTORY_START.plusDays(WalletDataGenerator.HISTORY_DAYS));
+        journaledWallet.addTransaction(transaction);
+        fileService.saveWallet(journaledWallet, "journal");
+    }
+
+    @Benchmark
+    public Wallet legacyLoad() throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(legacyFile), StandardCharsets.UTF_8)) {
+            return legacyGson.fromJson(reader, Wallet.class);
+        }
+    }
+
+    @Benchmark
+    public void legacySave() throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(legacyFile), StandardCharsets.UTF_8)) {
+            legacyGson.toJson(wallet, writer);
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.Session;
+import com.financemanager.service.AuthService;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.TransactionService;
+import com.financemanager.service.WalletCache;
+import com.financemanager.service.WalletPersister;
+import com.financemanager.service.WalletService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Пачки правок (лимиты категорий) от нескольких сессий при разных окнах отложенной записи:
+// сколько записей на диск и какая задержка до записи получается на то же число правок.
+// Запуск: java -cp target/benchmarks.jar com.financemanager.benchmark.PersisterBurst [окно, мс...]
+public final class PersisterBurst {
+    private static final int USERS = 8;
+    private static final int BURSTS = 40;
+    private static final int EDITS_PER_BURST = 50;
+    private static final int PAUSE_MILLIS = 5;
+
+    private PersisterBurst() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long[] windows = new long[args.length > 0 ? args.length : 3];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = args.length > 0 ? Long.parseLong(args[i]) : new long[]{0, 50, 200}[i];
+        }
+
+        System.out.printf("%8s %8s %14s %10s %18s %18s%n",
+                "окно мс", "правок", "записей", "время с", "задержка ср. мс", "задержка макс. мс");
+        for (long window : windows) {
+            run(window);
+        }
+    }
+
+    private static void run(long window) throws Exception {
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        BenchmarkEnvironment.silenceConsole();
+        try {
+            System.setProperty("finance.persist.windowMillis", Long.toString(window));
+            FileService fileService = new FileService(dataDir.toString(), DurabilityMode.GROUP_COMMIT);
+            WalletCache walletCache = new WalletCache(fileService);
+            AuthService authService = new AuthService(fileService, walletCache);
+            WalletService walletService = new WalletService(authService, new TransactionService(), fileService);
+
+            List<Session> sessions = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                authService.register("user" + i, "password");
+                sessions.add(authService.openSession("user" + i, "password"));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(USERS);
+            long startedAt = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (Session session : sessions) {
+                results.add(executor.submit(() -> {
+                    for (int burst = 0; burst < BURSTS; burst++) {
+                        for (int edit = 0; edit < EDITS_PER_BURST; edit++) {
+                            walletService.setBudgetLimit(session, "Еда", (burst * EDITS_PER_BURST + edit) * 100L);
+                        }
+                        Thread.sleep(PAUSE_MILLIS);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            walletCache.close();
+            double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+            executor.shutdown();
+
+            WalletPersister persister = walletCache.getPersister();
+            BenchmarkEnvironment.restoreConsole();
+            System.out.printf("%8d %8d %14d %10.2f %18.1f %18.1f%n", window, persister.getMarks(),
+                    persister.getWrites(), seconds, persister.getAverageFlushLatencyMillis(),
+                    persister.getMaxFlushLatencyMillis());
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+            System.clearProperty("finance.persist.windowMillis");
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+    }
+}
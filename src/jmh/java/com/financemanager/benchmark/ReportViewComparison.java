@@ -0,0 +1,153 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.StatisticsReport;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+import com.financemanager.service.CsvExporter;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.TransactionService;
+import com.financemanager.service.WalletReportView;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+// Отчеты по кошельку в куче против отчетного представления (файлы строк, отображенные в память):
+// время и прирост занятой кучи для общей статистики и экспорта в CSV, плюс сверка результатов,
+// в том числе после дописывания строк, переименования и удаления категории.
+// Запуск: java -cp target/benchmarks.jar com.financemanager.benchmark.ReportViewComparison [транзакций]
+public final class ReportViewComparison {
+    private static final String USERNAME = "report";
+
+    private ReportViewComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        System.setProperty("finance.reportView", "true");
+        try {
+            FileService fileService = new FileService(dataDir.toString(), DurabilityMode.NONE);
+            BenchmarkEnvironment.silenceConsole();
+            try {
+                fileService.saveWalletSnapshot(WalletDataGenerator.generateWallet(size, 42), USERNAME);
+            } finally {
+                BenchmarkEnvironment.restoreConsole();
+            }
+
+            Path heapCsv = dataDir.resolve("heap.csv");
+            Path viewCsv = dataDir.resolve("view.csv");
+            TransactionService transactionService = new TransactionService();
+
+            // Кошелек в куче: загрузка, статистика, экспорт
+            long before = usedHeap();
+            long startedAt = System.nanoTime();
+            BenchmarkEnvironment.silenceConsole();
+            Wallet wallet;
+            try {
+                wallet = fileService.loadWallet(USERNAME);
+            } finally {
+                BenchmarkEnvironment.restoreConsole();
+            }
+            StatisticsReport heapReport = transactionService.buildStatisticsReport(wallet);
+            double heapReportMillis = (System.nanoTime() - startedAt) / 1_000_000.0;
+            startedAt = System.nanoTime();
+            new CsvExporter().export(wallet, heapCsv);
+            double heapCsvMillis = (System.nanoTime() - startedAt) / 1_000_000.0;
+            long heapBytes = usedHeap() - before;
+
+            // Представление: те же отчеты без загрузки кошелька
+            Wallet retained = wallet;
+            wallet = null;
+            before = usedHeap();
+            startedAt = System.nanoTime();
+            StatisticsReport viewReport;
+            double viewReportMillis;
+            double viewCsvMillis;
+            long viewBytes;
+            try (WalletReportView view = fileService.openReportView(USERNAME)) {
+                viewReport = view.buildReport();
+                viewReportMillis = (System.nanoTime() - startedAt) / 1_000_000.0;
+                startedAt = System.nanoTime();
+                new CsvExporter().export(view, viewCsv);
+                viewCsvMillis = (System.nanoTime() - startedAt) / 1_000_000.0;
+                viewBytes = usedHeap() - before;
+            }
+
+            boolean ok = sameReport(heapReport, viewReport)
+                    && Arrays.equals(Files.readAllBytes(heapCsv), Files.readAllBytes(viewCsv));
+            ok &= checkIncremental(fileService, retained, transactionService);
+
+            System.out.printf("Транзакций: %d%n", size);
+            System.out.printf("%14s %22s %16s %16s%n", "путь", "загрузка+статистика, мс", "экспорт CSV, мс", "куча, МБ");
+            System.out.printf("%14s %22.1f %16.1f %16.1f%n", "кошелек", heapReportMillis, heapCsvMillis,
+                    heapBytes / 1048576.0);
+            System.out.printf("%14s %22.1f %16.1f %16.1f%n", "представление", viewReportMillis, viewCsvMillis,
+                    viewBytes / 1048576.0);
+            System.out.println("Результаты совпадают: " + (ok ? "да" : "НЕТ"));
+            if (!ok) {
+                System.exit(1);
+            }
+        } finally {
+            System.clearProperty("finance.reportView");
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+    }
+
+    // Дописанные строки, переименование и слияние категорий должны попасть в представление
+    private static boolean checkIncremental(FileService fileService, Wallet wallet,
+                                            TransactionService transactionService) {
+        BenchmarkEnvironment.silenceConsole();
+        try {
+            wallet.addTransaction(new Transaction("custom,id", 12_345, TransactionType.EXPENSE, "Еда",
+                    "описание с \"кавычками\", запятой"));
+            fileService.saveWallet(wallet, USERNAME);
+            wallet.renameCategory("Еда", "Продукты");
+            wallet.deleteCategory("Транспорт", "Прочее");
+            wallet.addTransaction(new Transaction("INC_1", 500, TransactionType.INCOME, "Продукты", null));
+            fileService.saveWallet(wallet, USERNAME);
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+        }
+        try (WalletReportView view = fileService.openReportView(USERNAME)) {
+            return view.size() == wallet.getTransactions().size()
+                    && sameReport(transactionService.buildStatisticsReport(wallet), view.buildReport());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static boolean sameReport(StatisticsReport a, StatisticsReport b) {
+        if (a.getTotalIncome() != b.getTotalIncome() || a.getTotalExpenses() != b.getTotalExpenses()
+                || a.getBalance() != b.getBalance() || a.getIncomeCount() != b.getIncomeCount()
+                || a.getExpenseCount() != b.getExpenseCount()) {
+            return false;
+        }
+        Iterator<StatisticsReport.CategoryStatistics> other = b.getCategories().iterator();
+        for (StatisticsReport.CategoryStatistics category : a.getCategories()) {
+            if (!other.hasNext()) {
+                return false;
+            }
+            StatisticsReport.CategoryStatistics c = other.next();
+            if (!category.getName().equals(c.getName()) || category.getIncome() != c.getIncome()
+                    || category.getExpenses() != c.getExpenses() || category.getBudgetLimit() != c.getBudgetLimit()
+                    || category.getMinExpense() != c.getMinExpense() || category.getMaxIncome() != c.getMaxIncome()) {
+                return false;
+            }
+        }
+        return !other.hasNext();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
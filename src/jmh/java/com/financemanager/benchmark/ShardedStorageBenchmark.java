@@ -0,0 +1,118 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.StorageMigration;
+import com.financemanager.model.User;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.FlatStorageLayout;
+import com.financemanager.service.StorageLayout;
+import com.financemanager.service.WalletFormat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Каталог с N пользователями в прежнем расположении и по частям: полная загрузка учетных записей
+// и загрузка случайных пользователей (учетная запись + кошелек) по одному, как при входе.
+// Запуск: java -Xmx4g -cp target/benchmarks.jar com.financemanager.benchmark.ShardedStorageBenchmark [пользователей...]
+public final class ShardedStorageBenchmark {
+    private static final int SHARDS = 256;
+    private static final int RANDOM_USERS = 200;
+    private static final int LOADS = 3;
+    private static final int WALLET_TRANSACTIONS = 20;
+
+    private ShardedStorageBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = new int[args.length > 0 ? args.length : 2];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = args.length > 0 ? Integer.parseInt(args[i]) : new int[]{10_000, 100_000}[i];
+        }
+
+        System.out.printf("Частей: %d, случайных пользователей: %d%n", SHARDS, RANDOM_USERS);
+        System.out.printf("%12s %12s %22s %20s %14s%n",
+                "пользователей", "расположение", "все записи, мс (мин.)", "один пользователь, мс", "перенос, с");
+        for (int count : counts) {
+            run(count);
+        }
+    }
+
+    private static void run(int count) throws Exception {
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        BenchmarkEnvironment.silenceConsole();
+        try {
+            String dir = dataDir.toString();
+            byte[] wallet = walletTemplate();
+            FileService flat = new FileService(dir, DurabilityMode.NONE, WalletFormat.JSON, new FlatStorageLayout(dir));
+            Map<String, User> users = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                User user = new User();
+                user.setUsername(username(i));
+                user.setPassword("password");
+                users.put(user.getUsername(), user);
+                Files.write(dataDir.resolve("wallets").resolve(username(i) + ".json"), wallet);
+            }
+            flat.saveUsers(users);
+            users = null;
+
+            double[] flatMillis = measure(flat, count);
+            long startedAt = System.nanoTime();
+            StorageMigration.migrate(dir, SHARDS);
+            double migrationSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+            FileService sharded = new FileService(dir, DurabilityMode.NONE, WalletFormat.JSON, StorageLayout.open(dir));
+            double[] shardedMillis = measure(sharded, count);
+
+            BenchmarkEnvironment.restoreConsole();
+            System.out.printf("%12d %12s %22.1f %20.3f %14s%n", count, "общее", flatMillis[0], flatMillis[1], "");
+            System.out.printf("%12d %12s %22.1f %20.3f %14.1f%n", count, "по частям", shardedMillis[0],
+                    shardedMillis[1], migrationSeconds);
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+    }
+
+    // [лучшее время loadUsers, среднее время loadUser + loadWallet для случайного пользователя]
+    private static double[] measure(FileService fileService, int count) {
+        double allMillis = Double.MAX_VALUE;
+        for (int i = 0; i < LOADS; i++) {
+            long startedAt = System.nanoTime();
+            int loaded = fileService.loadUsers().size();
+            allMillis = Math.min(allMillis, (System.nanoTime() - startedAt) / 1_000_000.0);
+            if (loaded != count) {
+                throw new IllegalStateException("Загружено " + loaded + " пользователей из " + count);
+            }
+        }
+
+        Random random = new Random(42);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < RANDOM_USERS; i++) {
+            String username = username(random.nextInt(count));
+            if (fileService.loadUser(username) == null
+                    || fileService.loadWallet(username).getTransactions().isEmpty()) {
+                throw new IllegalStateException("Не загружен пользователь " + username);
+            }
+        }
+        double userMillis = (System.nanoTime() - startedAt) / 1_000_000.0 / RANDOM_USERS;
+        return new double[]{allMillis, userMillis};
+    }
+
+    private static byte[] walletTemplate() throws Exception {
+        Path templateDir = BenchmarkEnvironment.createDataDir();
+        try {
+            FileService fileService = new FileService(templateDir.toString(), DurabilityMode.NONE, WalletFormat.JSON,
+                    new FlatStorageLayout(templateDir.toString()));
+            fileService.saveWalletSnapshot(WalletDataGenerator.generateWallet(WALLET_TRANSACTIONS, 7), "template");
+            return Files.readAllBytes(fileService.getWalletSnapshotFile("template").toPath());
+        } finally {
+            BenchmarkEnvironment.deleteRecursively(templateDir);
+        }
+    }
+
+    private static String username(int i) {
+        return "user" + i;
+    }
+}
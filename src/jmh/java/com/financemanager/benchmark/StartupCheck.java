@@ -0,0 +1,135 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.StorageMigration;
+import com.financemanager.model.User;
+import com.financemanager.service.AuthService;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.FlatStorageLayout;
+import com.financemanager.service.StorageLayout;
+import com.financemanager.service.WalletFormat;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Время запуска при N зарегистрированных пользователях: прежняя полная загрузка учетных записей
+// против индекса с разбором при входе, в общем расположении и по частям. Часть пользователей
+// меняет пароль и регистрируется после снимка (журнал). Завершается с кодом 1, если запуск
+// с индексом дольше границы или учетные записи из индекса не совпадают с полной загрузкой.
+// Запуск: java -Xmx4g -cp target/benchmarks.jar com.financemanager.benchmark.StartupCheck [пользователей] [граница, мс]
+public final class StartupCheck {
+    private static final int SHARDS = 256;
+    private static final int JOURNAL_USERS = 1_000;
+    private static final int RANDOM_USERS = 1_000;
+    private static final int STARTS = 3;
+
+    private StartupCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long boundMillis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+
+        System.out.printf("Пользователей: %d, в журнале: %d, граница запуска: %d мс%n",
+                count, 2 * JOURNAL_USERS, boundMillis);
+        System.out.printf("%12s %22s %22s %20s%n",
+                "расположение", "полная загрузка, мс", "запуск с индексом, мс", "первый вход, мкс");
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        boolean ok;
+        try {
+            ok = run(dataDir, count, boundMillis);
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(Path dataDir, int count, long boundMillis) throws Exception {
+        String dir = dataDir.toString();
+        BenchmarkEnvironment.silenceConsole();
+        FileService flat = new FileService(dir, DurabilityMode.NONE, WalletFormat.JSON, new FlatStorageLayout(dir));
+        Map<String, User> users = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User(username(i), "password" + i);
+            user.setSecretQuestion("Город рождения?");
+            user.setSecretAnswer("Город" + i);
+            users.put(user.getUsername(), user);
+        }
+        flat.saveUsers(users);
+        users = null;
+        writeJournal(flat, count);
+
+        boolean ok = measure("общее", flat, count, boundMillis);
+        StorageMigration.migrate(dir, SHARDS);
+        FileService sharded = new FileService(dir, DurabilityMode.NONE, WalletFormat.JSON, StorageLayout.open(dir));
+        writeJournal(sharded, count + JOURNAL_USERS);
+        return measure("по частям", sharded, count + JOURNAL_USERS, boundMillis) && ok;
+    }
+
+    // Смена паролей у части существующих пользователей и новые регистрации после снимка
+    private static void writeJournal(FileService fileService, int count) {
+        for (int i = 0; i < JOURNAL_USERS; i++) {
+            fileService.saveUser(new User(username(i * 7 % count), "changed" + i));
+            fileService.saveUser(new User(username(count + i), "password" + (count + i)));
+        }
+    }
+
+    private static boolean measure(String name, FileService fileService, int count, long boundMillis) {
+        double eagerMillis = Double.MAX_VALUE;
+        Map<String, User> expected = null;
+        for (int i = 0; i < STARTS; i++) {
+            expected = null;
+            long startedAt = System.nanoTime();
+            expected = fileService.loadUsers();
+            eagerMillis = Math.min(eagerMillis, (System.nanoTime() - startedAt) / 1_000_000.0);
+        }
+
+        double lazyMillis = Double.MAX_VALUE;
+        AuthService authService = null;
+        for (int i = 0; i < STARTS; i++) {
+            authService = null;
+            long startedAt = System.nanoTime();
+            authService = new AuthService(fileService);
+            lazyMillis = Math.min(lazyMillis, (System.nanoTime() - startedAt) / 1_000_000.0);
+        }
+
+        // Учетные записи из индекса совпадают с полной загрузкой, включая журнал
+        boolean ok = authService.getUserCount() == expected.size();
+        Random random = new Random(42);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < RANDOM_USERS; i++) {
+            String username = username(random.nextInt(expected.size()));
+            User user = authService.getUser(username);
+            User saved = expected.get(username);
+            ok &= user != null && user.getPassword().equals(saved.getPassword())
+                    && user.getSecretAnswer().equals(saved.getSecretAnswer());
+        }
+        double loginMicros = (System.nanoTime() - startedAt) / 1_000.0 / RANDOM_USERS;
+        for (int i = 0; i < JOURNAL_USERS; i++) {
+            String username = username(i * 7 % count);
+            ok &= authService.getUser(username).getPassword().equals(expected.get(username).getPassword());
+        }
+        ok &= !authService.isUserExists("missing") && authService.getUser("missing") == null;
+
+        BenchmarkEnvironment.restoreConsole();
+        System.out.printf("%12s %22.1f %22.1f %20.1f%n", name, eagerMillis, lazyMillis, loginMicros);
+        if (!ok) {
+            System.out.println("Учетные записи из индекса не совпадают с полной загрузкой: " + name);
+        }
+        if (lazyMillis > boundMillis) {
+            System.out.printf("Запуск дольше границы: %.1f мс > %d мс (%s)%n", lazyMillis, boundMillis, name);
+            ok = false;
+        }
+        BenchmarkEnvironment.silenceConsole();
+        return ok;
+    }
+
+    private static String username(int i) {
+        return "user" + i;
+    }
+}
@@ -0,0 +1,131 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.Category;
+import com.financemanager.model.CategoryTotals;
+import com.financemanager.model.StatisticsReport;
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Полный пересчет статистики по списку транзакций, начиная с parallelThreshold - параллельно.
+// Приложение берет итоги из агрегатов кошелька; пересчет измеряет ParallelAggregationBenchmark
+public class StatisticsAggregator {
+    // Размер листа разбиения: на каждый лист приходится свой набор итогов
+    private static final int LEAF_SIZE = 8192;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public StatisticsAggregator(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    public StatisticsReport aggregate(Wallet wallet) {
+        TransactionStore transactions = wallet.getTransactions();
+        AggregateTask task = new AggregateTask(transactions, 0, transactions.size(),
+                transactions.size() >= parallelThreshold);
+        Partial result = task.fork ? pool.invoke(task) : task.compute();
+
+        Map<String, CategoryTotals> byName = new HashMap<>();
+        for (int categoryId = 0; categoryId < result.categories.length; categoryId++) {
+            if (result.categories[categoryId] != null) {
+                byName.put(transactions.getCategoryName(categoryId), result.categories[categoryId]);
+            }
+        }
+
+        List<StatisticsReport.CategoryStatistics> categories = new ArrayList<>(wallet.getCategories().size());
+        for (Category category : wallet.getCategories().values()) {
+            CategoryTotals totals = byName.get(category.getName());
+            categories.add(new StatisticsReport.CategoryStatistics(category.getName(), category.getBudgetLimit(),
+                    totals != null ? totals : new CategoryTotals()));
+        }
+        return new StatisticsReport(result.all.getIncome(), result.all.getExpenses(), wallet.getBalance(),
+                result.all.getIncomeCount(), result.all.getExpenseCount(), categories);
+    }
+
+    private static class AggregateTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionStore transactions;
+        private final int from;
+        private final int to;
+        private final boolean fork;
+
+        AggregateTask(TransactionStore transactions, int from, int to, boolean fork) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+            this.fork = fork;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= LEAF_SIZE) {
+                Partial partial = new Partial(transactions.getCategoryCount());
+                for (int row = from; row < to; row++) {
+                    partial.add(transactions, row);
+                }
+                return partial;
+            }
+
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(transactions, from, middle, fork);
+            AggregateTask right = new AggregateTask(transactions, middle, to, fork);
+            if (fork) {
+                right.fork();
+                Partial result = left.compute();
+                result.merge(right.join());
+                return result;
+            }
+            Partial result = left.compute();
+            result.merge(right.compute());
+            return result;
+        }
+    }
+
+    // Итоги одного поддиапазона: общие и по номерам категорий хранилища
+    private static class Partial {
+        private final CategoryTotals all = new CategoryTotals();
+        private final CategoryTotals[] categories;
+
+        Partial(int categoryCount) {
+            categories = new CategoryTotals[categoryCount];
+        }
+
+        void add(TransactionStore transactions, int row) {
+            TransactionType type = transactions.isIncome(row) ? TransactionType.INCOME : TransactionType.EXPENSE;
+            long amount = transactions.getAmount(row);
+            all.add(type, amount);
+            int categoryId = transactions.getCategoryId(row);
+            if (categoryId >= 0) {
+                if (categories[categoryId] == null) {
+                    categories[categoryId] = new CategoryTotals();
+                }
+                categories[categoryId].add(type, amount);
+            }
+        }
+
+        void merge(Partial other) {
+            all.merge(other.all);
+            for (int categoryId = 0; categoryId < categories.length; categoryId++) {
+                CategoryTotals totals = other.categories[categoryId];
+                if (totals == null) {
+                    continue;
+                }
+                if (categories[categoryId] == null) {
+                    categories[categoryId] = totals;
+                } else {
+                    categories[categoryId].merge(totals);
+                }
+            }
+        }
+    }
+}
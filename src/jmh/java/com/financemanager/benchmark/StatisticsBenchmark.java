@@ -0,0 +1,91 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.Session;
+import com.financemanager.service.AuthService;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.TransactionService;
+import com.financemanager.service.WalletCache;
+import com.financemanager.service.WalletService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Отчеты WalletService: детальная статистика, статистика за период и экспорт в CSV
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class StatisticsBenchmark {
+    private static final String USERNAME = "bench";
+
+    @Param({"1000", "100000", "1000000"})
+    public int historySize;
+
+    private Path dataDir;
+    private WalletService walletService;
+    private Session session;
+    private String csvFile;
+    private String gzipFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkEnvironment.silenceConsole();
+        dataDir = BenchmarkEnvironment.createDataDir();
+        FileService fileService = new FileService(dataDir.toString(), DurabilityMode.NONE);
+        AuthService authService = new AuthService(fileService, new WalletCache(fileService));
+        authService.register(USERNAME, "password");
+        session = new Session(authService.getUser(USERNAME), WalletDataGenerator.generateWallet(historySize, 42));
+
+        walletService = new WalletService(authService, new TransactionService(), fileService);
+        csvFile = dataDir.resolve("export.csv").toString();
+        gzipFile = dataDir.resolve("export.csv.gz").toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkEnvironment.restoreConsole();
+        BenchmarkEnvironment.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public void detailedStatistics() {
+        walletService.showDetailedStatistics(session);
+    }
+
+    @Benchmark
+    public void statisticsForMonth() {
+        walletService.showStatisticsForPeriod(session, "2024-03-01", "2024-03-31");
+    }
+
+    @Benchmark
+    public void statisticsForYear() {
+        walletService.showStatisticsForPeriod(session, "2024-01-01", "2024-12-31");
+    }
+
+    @Benchmark
+    public void exportToCSV() {
+        walletService.exportToCSV(session, csvFile);
+    }
+
+    @Benchmark
+    public void exportToCSVGzip() {
+        walletService.exportToCSV(session, gzipFile);
+    }
+}
@@ -0,0 +1,191 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.PeriodTotals;
+import com.financemanager.model.StatisticsReport;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.Wallet;
+import com.financemanager.service.DatabaseStorage;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.StorageBackend;
+import com.financemanager.service.TransactionService;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Файлы JSON и встроенная база H2 на одних и тех же кошельках: запись, дописывание импорта пакетом,
+// загрузка кошелька и запросы итогов без загруженного кошелька. Для файлов запрос - это загрузка
+// кошелька и расчет по нему, для базы - запрос SQL по индексам (пользователь, дата) и (пользователь, категория).
+// Запуск: java -Xmx4g -cp target/benchmarks.jar com.financemanager.benchmark.StorageBackendComparison [транзакций] [пользователей]
+public final class StorageBackendComparison {
+    private static final int IMPORT_SIZE = 10_000;
+    private static final int QUERIES = 10;
+    private static final List<String> CATEGORIES = List.of("Еда", "Транспорт");
+
+    private StorageBackendComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.printf("Транзакций в кошельке: %d, пользователей: %d, импорт: %d%n", size, users, IMPORT_SIZE);
+        System.out.printf("%8s %12s %12s %12s %14s %14s %14s%n", "хранилище", "запись, мс", "импорт, мс",
+                "загрузка, мс", "статистика, мс", "период, мс", "категории, мс");
+        boolean ok = run("FILES", size, users) & run("H2", size, users);
+        System.out.println("Итоги SQL совпадают с расчетом по кошельку: " + (ok ? "да" : "НЕТ"));
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(String name, int size, int users) throws Exception {
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        BenchmarkEnvironment.silenceConsole();
+        try {
+            StorageBackend storage = name.equals("H2")
+                    ? new DatabaseStorage(dataDir.toString(), DurabilityMode.NONE)
+                    : new FileService(dataDir.toString(), DurabilityMode.NONE);
+            TransactionService queries = new TransactionService(storage);
+
+            // Несколько пользователей, чтобы запросы базы выбирали строки одного из них по индексу
+            long startedAt = System.nanoTime();
+            Wallet wallet = null;
+            for (int user = 0; user < users; user++) {
+                wallet = WalletDataGenerator.generateWallet(size, user);
+                storage.saveWalletSnapshot(wallet, username(user));
+            }
+            double writeMillis = (System.nanoTime() - startedAt) / 1_000_000.0 / users;
+
+            String username = username(users - 1);
+            Random random = new Random(7);
+            List<Transaction> batch = new ArrayList<>(IMPORT_SIZE);
+            for (int i = 0; i < IMPORT_SIZE; i++) {
+                batch.add(WalletDataGenerator.randomTransaction(random, size + i,
+                        WalletDataGenerator.HISTORY_START.plusMinutes(i)));
+            }
+            wallet.addTransactions(batch);
+            startedAt = System.nanoTime();
+            storage.saveWallet(wallet, username);
+            double importMillis = (System.nanoTime() - startedAt) / 1_000_000.0;
+
+            double loadMillis = Double.MAX_VALUE;
+            for (int i = 0; i < QUERIES; i++) {
+                startedAt = System.nanoTime();
+                storage.loadWallet(username);
+                loadMillis = Math.min(loadMillis, (System.nanoTime() - startedAt) / 1_000_000.0);
+            }
+
+            // Запросы без кошелька в памяти: по базе - SQL, по файлам - загрузка и расчет. Пользователь
+            // и период меняются, чтобы база не отвечала из кэша результатов одинаковых запросов
+            double[] queryMillis = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+            for (int i = 0; i < QUERIES; i++) {
+                String user = username(i % users);
+                LocalDateTime from = WalletDataGenerator.HISTORY_START.plusDays(30 + i);
+                startedAt = System.nanoTime();
+                queries.buildStatisticsReport(user, coldWallet(storage, user, wallet));
+                queryMillis[0] = Math.min(queryMillis[0], (System.nanoTime() - startedAt) / 1_000_000.0);
+
+                startedAt = System.nanoTime();
+                queries.getTotalsForPeriod(user, coldWallet(storage, user, wallet), from, from.plusDays(30));
+                queryMillis[1] = Math.min(queryMillis[1], (System.nanoTime() - startedAt) / 1_000_000.0);
+
+                startedAt = System.nanoTime();
+                queries.buildCategoryStatistics(user, coldWallet(storage, user, wallet), CATEGORIES);
+                queryMillis[2] = Math.min(queryMillis[2], (System.nanoTime() - startedAt) / 1_000_000.0);
+            }
+
+            // Итоги хранилища по кошельку с импортом против расчета по тому же кошельку в памяти
+            LocalDateTime from = WalletDataGenerator.HISTORY_START.plusDays(30);
+            LocalDateTime to = from.plusDays(30);
+            TransactionService memory = new TransactionService();
+            boolean ok = sameReport(memory.buildStatisticsReport(wallet),
+                    queries.buildStatisticsReport(username, coldWallet(storage, username, wallet)))
+                    && samePeriod(memory.getTotalsForPeriod(wallet, from, to),
+                    queries.getTotalsForPeriod(username, coldWallet(storage, username, wallet), from, to))
+                    && sameCategories(memory.buildCategoryStatistics(username, wallet, CATEGORIES),
+                    queries.buildCategoryStatistics(username, coldWallet(storage, username, wallet), CATEGORIES));
+            storage.close();
+
+            BenchmarkEnvironment.restoreConsole();
+            System.out.printf("%8s %12.1f %12.1f %12.1f %14.1f %14.1f %14.1f%n", name, writeMillis, importMillis,
+                    loadMillis, queryMillis[0], queryMillis[1], queryMillis[2]);
+            if (!storage.supportsQueries()) {
+                printMemory(memory, username, wallet, from, to);
+            }
+            return ok;
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+    }
+
+    // База считает итоги сама (из сохраненного кошелька берутся только лимиты категорий, у всех
+    // сгенерированных кошельков они одинаковы), файлам нужен загруженный кошелек
+    private static Wallet coldWallet(StorageBackend storage, String username, Wallet saved) {
+        return storage.supportsQueries() ? saved : storage.loadWallet(username);
+    }
+
+    // Для сравнения: те же запросы по уже загруженному кошельку с поддерживаемыми агрегатами
+    private static void printMemory(TransactionService memory, String username, Wallet wallet,
+                                    LocalDateTime from, LocalDateTime to) {
+        double[] millis = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        for (int i = 0; i < QUERIES; i++) {
+            long startedAt = System.nanoTime();
+            memory.buildStatisticsReport(wallet);
+            millis[0] = Math.min(millis[0], (System.nanoTime() - startedAt) / 1_000_000.0);
+            startedAt = System.nanoTime();
+            memory.getTotalsForPeriod(wallet, from, to);
+            millis[1] = Math.min(millis[1], (System.nanoTime() - startedAt) / 1_000_000.0);
+            startedAt = System.nanoTime();
+            memory.buildCategoryStatistics(username, wallet, CATEGORIES);
+            millis[2] = Math.min(millis[2], (System.nanoTime() - startedAt) / 1_000_000.0);
+        }
+        System.out.printf("%8s %12s %12s %12s %14.3f %14.3f %14.3f%n", "в памяти", "", "", "",
+                millis[0], millis[1], millis[2]);
+    }
+
+    private static boolean sameReport(StatisticsReport a, StatisticsReport b) {
+        if (a.getTotalIncome() != b.getTotalIncome() || a.getTotalExpenses() != b.getTotalExpenses()
+                || a.getBalance() != b.getBalance() || a.getIncomeCount() != b.getIncomeCount()
+                || a.getExpenseCount() != b.getExpenseCount()) {
+            return false;
+        }
+        for (StatisticsReport.CategoryStatistics category : a.getCategories()) {
+            if (!sameCategory(category, b.getCategory(category.getName()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean samePeriod(PeriodTotals a, PeriodTotals b) {
+        return a.getIncome() == b.getIncome() && a.getExpenses() == b.getExpenses() && a.getCount() == b.getCount();
+    }
+
+    private static boolean sameCategories(Map<String, StatisticsReport.CategoryStatistics> a,
+                                          Map<String, StatisticsReport.CategoryStatistics> b) {
+        for (String name : CATEGORIES) {
+            if (!sameCategory(a.get(name), b.get(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameCategory(StatisticsReport.CategoryStatistics a, StatisticsReport.CategoryStatistics b) {
+        return b != null && a.getName().equals(b.getName()) && a.getIncome() == b.getIncome()
+                && a.getExpenses() == b.getExpenses() && a.getIncomeCount() == b.getIncomeCount()
+                && a.getExpenseCount() == b.getExpenseCount() && a.getBudgetLimit() == b.getBudgetLimit()
+                && a.getMinIncome() == b.getMinIncome() && a.getMaxIncome() == b.getMaxIncome()
+                && a.getMinExpense() == b.getMinExpense() && a.getMaxExpense() == b.getMaxExpense();
+    }
+
+    private static String username(int user) {
+        return "user" + user;
+    }
+}
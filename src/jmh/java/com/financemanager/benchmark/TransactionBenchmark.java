@@ -0,0 +1,63 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.exception.CategoryNotFoundException;
+import com.financemanager.exception.InsufficientFundsException;
+import com.financemanager.model.Wallet;
+import com.financemanager.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Добавление дохода/расхода при разной длине истории кошелька
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class TransactionBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int historySize;
+
+    private TransactionService transactionService;
+    private Wallet wallet;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkEnvironment.silenceConsole();
+        transactionService = new TransactionService();
+        wallet = WalletDataGenerator.generateWallet(historySize, 42);
+        // Запас средств, чтобы расходы не упирались в баланс
+        wallet.setBalance(wallet.getBalance() + 100_000_000_000L);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        BenchmarkEnvironment.restoreConsole();
+    }
+
+    @Benchmark
+    public Wallet addIncome() throws CategoryNotFoundException {
+        transactionService.addIncome(wallet, 150_000, "Зарплата", "Бенчмарк");
+        return wallet;
+    }
+
+    @Benchmark
+    public Wallet addExpense() throws CategoryNotFoundException, InsufficientFundsException {
+        transactionService.addExpense(wallet, 1_500, "Еда", "Бенчмарк");
+        return wallet;
+    }
+}
@@ -0,0 +1,140 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.exception.InsufficientFundsException;
+import com.financemanager.model.Session;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Transfer;
+import com.financemanager.service.AuthService;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.IdGenerator;
+import com.financemanager.service.LoginRateLimiter;
+import com.financemanager.service.PasswordHasher;
+import com.financemanager.service.TransferService;
+import com.financemanager.service.WalletCache;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Пропускная способность переводов и неизменность общей суммы балансов: много потоков
+// одновременно переводят деньги между кошельками во встречных направлениях. Сумма сверяется
+// в памяти, после перечитывания с диска и после восстановления перевода, "оборванного" сбоем.
+// Запуск: java -cp target/benchmarks.jar com.financemanager.benchmark.TransferStress [потоки] [кошельки] [переводов на поток]
+public final class TransferStress {
+    private static final String PASSWORD = "password";
+    private static final int CHEAP_ITERATIONS = 1;
+    private static final long INITIAL_BALANCE = 1_000_000_00L;
+
+    private TransferStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int wallets = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int transfers = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        BenchmarkEnvironment.silenceConsole();
+        boolean ok;
+        try {
+            ok = run(dataDir, threads, wallets, transfers);
+        } finally {
+            BenchmarkEnvironment.restoreConsole();
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(Path dataDir, int threads, int wallets, int transfers) throws Exception {
+        FileService fileService = new FileService(dataDir.toString(), DurabilityMode.NONE);
+        // Стоимость хеша пароля здесь не проверяется и заменена дешевой
+        AuthService authService = new AuthService(fileService, new WalletCache(fileService),
+                new PasswordHasher(CHEAP_ITERATIONS), new LoginRateLimiter());
+        TransferService transferService = new TransferService(fileService, authService.getWalletCache());
+
+        String[] usernames = new String[wallets];
+        Session[] sessions = new Session[wallets];
+        for (int i = 0; i < wallets; i++) {
+            usernames[i] = "user" + i;
+            authService.register(usernames[i], PASSWORD);
+            sessions[i] = authService.openSession(usernames[i], PASSWORD);
+            sessions[i].getWallet().addTransaction(new Transaction("INC_" + IdGenerator.shared().nextId(),
+                    INITIAL_BALANCE, TransactionType.INCOME, "Зарплата", ""));
+        }
+        long expectedTotal = INITIAL_BALANCE * wallets;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(executor.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                start.await();
+                long rejected = 0;
+                for (int i = 0; i < transfers; i++) {
+                    int from = random.nextInt(wallets);
+                    int to = random.nextInt(wallets);
+                    try {
+                        transferService.transfer(sessions[from], usernames[to], 1 + random.nextInt(1_000_000), "");
+                    } catch (InsufficientFundsException e) {
+                        rejected++;
+                    }
+                }
+                return rejected;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        long rejected = 0;
+        for (Future<Long> result : results) {
+            rejected += result.get();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        executor.shutdown();
+
+        long inMemory = 0;
+        for (Session session : sessions) {
+            inMemory += session.getWallet().getBalance();
+            authService.closeSession(session);
+        }
+
+        // Перевод записан в журнал, но до кошельков не дошел - как при сбое между этими шагами
+        long crashedAmount = 12_345;
+        Transaction expense = new Transaction("EXP_" + IdGenerator.shared().nextId(), crashedAmount,
+                TransactionType.EXPENSE, "Переводы", "");
+        Transaction income = new Transaction("INC_" + IdGenerator.shared().nextId(), crashedAmount,
+                TransactionType.INCOME, "Переводы", "", expense.getDate());
+        fileService.appendTransfer(new Transfer(IdGenerator.shared().nextId(), usernames[0], usernames[1], expense, income));
+
+        // Новый кэш читает кошельки с диска, а новый сервис переводов дописывает оборванный перевод
+        WalletCache reloaded = new WalletCache(new FileService(dataDir.toString(), DurabilityMode.NONE));
+        new TransferService(new FileService(dataDir.toString(), DurabilityMode.NONE), reloaded);
+        long afterReload = 0;
+        boolean recovered = reloaded.get(usernames[0]).findTransaction(expense.getId()) != null
+                && reloaded.get(usernames[1]).findTransaction(income.getId()) != null;
+        for (String username : usernames) {
+            afterReload += reloaded.get(username).getBalance();
+        }
+
+        long total = (long) threads * transfers;
+        BenchmarkEnvironment.restoreConsole();
+        System.out.printf("Потоков: %d, кошельков: %d, переводов: %d (отклонено из-за нехватки средств: %d)%n",
+                threads, wallets, total, rejected);
+        System.out.printf("Время: %.2f с (%.0f переводов/с)%n", seconds, total / Math.max(seconds, 1e-9));
+        System.out.printf("Сумма балансов: ожидалась %d, в памяти %d, после перечитывания %d%n",
+                expectedTotal, inMemory, afterReload);
+        System.out.println("Оборванный перевод восстановлен: " + (recovered ? "да" : "НЕТ"));
+        return inMemory == expectedTotal && afterReload == expectedTotal && recovered;
+    }
+}
@@ -0,0 +1,67 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Генератор синтетических кошельков для бенчмарков
+public final class WalletDataGenerator {
+    public static final LocalDateTime HISTORY_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    public static final int HISTORY_DAYS = 365;
+
+    private static final String[] INCOME_CATEGORIES = {"Зарплата", "Переводы"};
+    private static final String[] EXPENSE_CATEGORIES = {
+            "Еда", "Транспорт", "Развлечения", "Здоровье", "Образование",
+            "Одежда", "Жилье", "Связь", "Прочее"
+    };
+
+    private WalletDataGenerator() {
+    }
+
+    // Кошелек с заданным числом транзакций, равномерно распределенных по году
+    public static Wallet generateWallet(int transactionCount, long seed) {
+        Random random = new Random(seed);
+        Wallet wallet = new Wallet();
+        // Лимиты и суммы в копейках
+        wallet.putCategory("Еда", 2_000_000);
+        wallet.putCategory("Транспорт", 500_000);
+        wallet.putCategory("Развлечения", 800_000);
+
+        List<Transaction> transactions = new ArrayList<>(transactionCount);
+        long stepSeconds = Math.max(1, HISTORY_DAYS * 24L * 3600 / Math.max(1, transactionCount));
+        long balance = 0;
+        for (int i = 0; i < transactionCount; i++) {
+            Transaction transaction = randomTransaction(random, i,
+                    HISTORY_START.plusSeconds(i * stepSeconds));
+            transactions.add(transaction);
+            balance += transaction.getType() == TransactionType.INCOME
+                    ? transaction.getAmount() : -transaction.getAmount();
+        }
+
+        wallet.setTransactions(transactions);
+        wallet.setBalance(balance);
+        wallet.clearPendingChanges(wallet.getPendingChanges().size());
+        return wallet;
+    }
+
+    public static Transaction randomTransaction(Random random, long sequence, LocalDateTime date) {
+        boolean income = random.nextInt(10) < 3;
+        String category = income
+                ? INCOME_CATEGORIES[random.nextInt(INCOME_CATEGORIES.length)]
+                : EXPENSE_CATEGORIES[random.nextInt(EXPENSE_CATEGORIES.length)];
+        // Доходы крупнее расходов, чтобы баланс оставался положительным
+        long amount = income
+                ? 100_000 + random.nextInt(500000)
+                : 1_000 + random.nextInt(200000);
+        return new Transaction((income ? "INC_" : "EXP_") + sequence, amount,
+                income ? TransactionType.INCOME : TransactionType.EXPENSE,
+                category, "Синтетическая операция " + sequence,
+                date.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    }
+}
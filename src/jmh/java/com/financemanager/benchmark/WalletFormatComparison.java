@@ -0,0 +1,102 @@
+package com.financemanager.benchmark;
+
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.Wallet;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.WalletFormat;
+
+import java.nio.file.Path;
+
+// Размер снимка и время загрузки кошелька в форматах JSON и BINARY, а также перевод между ними:
+// кошелек, записанный в одном формате, загружается сервисом с другим и должен совпасть с исходным.
+// Запуск: java -Xmx4g -cp target/benchmarks.jar com.financemanager.benchmark.WalletFormatComparison [транзакций]
+public final class WalletFormatComparison {
+    private static final int LOADS = 5;
+
+    private WalletFormatComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Wallet wallet = WalletDataGenerator.generateWallet(size, 42);
+
+        Path dataDir = BenchmarkEnvironment.createDataDir();
+        try {
+            long[] bytes = new long[WalletFormat.values().length];
+            double[] millis = new double[bytes.length];
+            boolean ok = true;
+            for (WalletFormat format : WalletFormat.values()) {
+                BenchmarkEnvironment.silenceConsole();
+                try {
+                    FileService fileService = new FileService(dataDir.toString(), DurabilityMode.NONE, format);
+                    fileService.saveWalletSnapshot(wallet, "wallet");
+                    bytes[format.ordinal()] = fileService.getWalletSnapshotFile("wallet").length();
+                    millis[format.ordinal()] = bestLoadMillis(fileService);
+                    ok &= sameWallet(wallet, fileService.loadWallet("wallet"));
+
+                    // Перевод: сервис с другим форматом находит этот снимок и переписывает его в свой
+                    WalletFormat other = format == WalletFormat.JSON ? WalletFormat.BINARY : WalletFormat.JSON;
+                    FileService converter = new FileService(dataDir.toString(), DurabilityMode.NONE, other);
+                    ok &= sameWallet(wallet, converter.loadWallet("wallet"))
+                            && converter.getWalletSnapshotFile("wallet").exists()
+                            && !fileService.getWalletSnapshotFile("wallet").exists();
+                    ok &= sameWallet(wallet, converter.loadWallet("wallet"));
+                    converter.getWalletSnapshotFile("wallet").delete();
+                } finally {
+                    BenchmarkEnvironment.restoreConsole();
+                }
+            }
+
+            int json = WalletFormat.JSON.ordinal();
+            int binary = WalletFormat.BINARY.ordinal();
+            System.out.printf("Транзакций: %d%n", size);
+            System.out.printf("%8s %14s %18s%n", "формат", "размер, байт", "загрузка, мс (мин.)");
+            for (WalletFormat format : WalletFormat.values()) {
+                System.out.printf("%8s %14d %18.1f%n", format, bytes[format.ordinal()], millis[format.ordinal()]);
+            }
+            System.out.printf("Меньше в %.1f раза, загрузка быстрее в %.1f раза%n",
+                    (double) bytes[json] / bytes[binary], millis[json] / millis[binary]);
+            System.out.println("Перевод форматов без потерь: " + (ok ? "да" : "НЕТ"));
+            if (!ok) {
+                System.exit(1);
+            }
+        } finally {
+            BenchmarkEnvironment.deleteRecursively(dataDir);
+        }
+    }
+
+    private static double bestLoadMillis(FileService fileService) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < LOADS; i++) {
+            long startedAt = System.nanoTime();
+            fileService.loadWallet("wallet");
+            best = Math.min(best, System.nanoTime() - startedAt);
+        }
+        return best / 1_000_000.0;
+    }
+
+    private static boolean sameWallet(Wallet expected, Wallet actual) {
+        TransactionStore a = expected.getTransactions();
+        TransactionStore b = actual.getTransactions();
+        if (a.size() != b.size() || expected.getBalance() != actual.getBalance()
+                || expected.getVersion() != actual.getVersion()
+                || !expected.getCategories().keySet().equals(actual.getCategories().keySet())
+                || !actual.checkConsistency()) {
+            return false;
+        }
+        for (String name : expected.getCategories().keySet()) {
+            if (expected.getCategories().get(name).getBudgetLimit() != actual.getCategories().get(name).getBudgetLimit()) {
+                return false;
+            }
+        }
+        for (int row = 0; row < a.size(); row++) {
+            if (!a.getId(row).equals(b.getId(row)) || a.getAmount(row) != b.getAmount(row)
+                    || a.getType(row) != b.getType(row) || !a.getCategory(row).equals(b.getCategory(row))
+                    || !a.getDescription(row).equals(b.getDescription(row)) || !a.getDate(row).equals(b.getDate(row))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,14 +1,18 @@
 package com.financemanager;
 
+import com.financemanager.model.Money;
 import com.financemanager.service.AuthService;
-import com.financemanager.service.FileService;
+import com.financemanager.service.StorageBackend;
 import com.financemanager.service.TransactionService;
+import com.financemanager.service.WalletCache;
+import com.financemanager.service.WalletPersister;
 import com.financemanager.service.WalletService;
 import com.financemanager.exception.CategoryNotFoundException;
 import com.financemanager.exception.InsufficientFundsException;
 import com.financemanager.exception.UserNotFoundException;
 
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
@@ -18,9 +22,11 @@ public class Main {
     private static AuthService authService;
     private static TransactionService transactionService;
     private static WalletService walletService;
-    private static FileService fileService;
+    private static StorageBackend storage;
+    private static WalletCache walletCache;
     private static Scanner scanner;
     private static boolean running = true;
+    private static final AtomicBoolean shutDown = new AtomicBoolean();
 
     public static void main(String[] args) {
         try {
@@ -40,6 +46,12 @@ public class Main {
             System.out.println("Критическая ошибка: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            if (walletCache != null) {
+                shutdown();
+                WalletPersister persister = walletCache.getPersister();
+                System.out.printf("Сохранение кошельков: правок %d, записей на диск %d, средняя задержка %.1f мс%n",
+                        persister.getMarks(), persister.getWrites(), persister.getAverageFlushLatencyMillis());
+            }
             if (scanner != null) {
                 scanner.close();
             }
@@ -49,10 +61,16 @@ public class Main {
 
     private static void initializeServices() {
         try {
-            fileService = new FileService();
-            authService = new AuthService(fileService);
-            transactionService = new TransactionService();
-            walletService = new WalletService(authService, transactionService, fileService);
+            long startedAt = System.nanoTime();
+            storage = StorageBackend.open();
+            walletCache = new WalletCache(storage);
+            // Отложенные записи не теряются и при завершении процесса без выхода из меню (Ctrl+C)
+            Runtime.getRuntime().addShutdownHook(new Thread(Main::shutdown, "wallet-flush"));
+            authService = new AuthService(storage, walletCache);
+            transactionService = new TransactionService(storage);
+            walletService = new WalletService(authService, transactionService, storage);
+            System.out.printf("Запуск: %d мс, учетных записей: %d%n",
+                    (System.nanoTime() - startedAt) / 1_000_000, authService.getUserCount());
         } catch (Exception e) {
             System.out.println("Ошибка инициализации сервисов: " + e.getMessage());
             e.printStackTrace();
@@ -60,6 +78,16 @@ public class Main {
         }
     }
 
+    // Сначала записываются отложенные кошельки, затем закрывается хранилище (соединения H2).
+    // Вызывается и из finally, и из обработчика завершения: выполняется только первый вызов
+    private static void shutdown() {
+        if (!shutDown.compareAndSet(false, true)) {
+            return;
+        }
+        walletCache.close();
+        storage.close();
+    }
+
     private static void showAuthMenu() {
         System.out.println("\n=== ГЛАВНОЕ МЕНЮ ===");
         System.out.println("1. Вход");
@@ -305,7 +333,7 @@ public class Main {
                 return;
             }
 
-            double amount = Double.parseDouble(amountInput);
+            long amount = Money.parse(amountInput);
             if (amount <= 0) {
                 System.out.println("Сумма должна быть положительной!");
                 return;
@@ -321,8 +349,7 @@ public class Main {
             System.out.print("Введите описание: ");
             String description = scanner.nextLine().trim();
 
-            transactionService.addIncome(authService.getCurrentUser().getWallet(),
-                    amount, category, description);
+            walletService.addIncome(authService.getCurrentSession(), amount, category, description);
         } catch (NumberFormatException e) {
             System.out.println("Неверный формат суммы! Используйте числа (например: 1000.50)");
         } catch (CategoryNotFoundException e) {
@@ -342,7 +369,7 @@ public class Main {
                 return;
             }
 
-            double amount = Double.parseDouble(amountInput);
+            long amount = Money.parse(amountInput);
             if (amount <= 0) {
                 System.out.println("Сумма должна быть положительной!");
                 return;
@@ -358,8 +385,7 @@ public class Main {
             System.out.print("Введите описание: ");
             String description = scanner.nextLine().trim();
 
-            transactionService.addExpense(authService.getCurrentUser().getWallet(),
-                    amount, category, description);
+            walletService.addExpense(authService.getCurrentSession(), amount, category, description);
         } catch (NumberFormatException e) {
             System.out.println("Неверный формат суммы! Используйте числа (например: 1000.50)");
         } catch (CategoryNotFoundException | InsufficientFundsException e) {
@@ -371,7 +397,7 @@ public class Main {
 
     private static void showStatistics() {
         try {
-            walletService.showStatistics();
+            walletService.showStatistics(authService.getCurrentSession());
         } catch (Exception e) {
             System.out.println("Ошибка при показе статистики: " + e.getMessage());
         }
@@ -379,7 +405,7 @@ public class Main {
 
     private static void showDetailedStatistics() {
         try {
-            walletService.showDetailedStatistics();
+            walletService.showDetailedStatistics(authService.getCurrentSession());
         } catch (Exception e) {
             System.out.println("Ошибка при показе детальной статистики: " + e.getMessage());
         }
@@ -404,7 +430,7 @@ public class Main {
                 return;
             }
 
-            walletService.showStatisticsForCategories(categories);
+            walletService.showStatisticsForCategories(authService.getCurrentSession(), categories);
         } catch (Exception e) {
             System.out.println("Ошибка при показе статистики по категориям: " + e.getMessage());
         }
@@ -419,7 +445,7 @@ public class Main {
                 return;
             }
 
-            walletService.exportStatisticsToFile(filename + ".txt");
+            walletService.exportStatisticsToFile(authService.getCurrentSession(), filename + ".txt");
         } catch (Exception e) {
             System.out.println("Ошибка при экспорте статистики: " + e.getMessage());
         }
@@ -441,13 +467,13 @@ public class Main {
                 return;
             }
 
-            double budgetLimit = Double.parseDouble(limitInput);
+            long budgetLimit = Money.parse(limitInput);
             if (budgetLimit < 0) {
                 System.out.println("Лимит не может быть отрицательным!");
                 return;
             }
 
-            walletService.createCategory(categoryName, budgetLimit);
+            walletService.createCategory(authService.getCurrentSession(), categoryName, budgetLimit);
         } catch (NumberFormatException e) {
             System.out.println("Неверный формат лимита! Используйте числа (например: 1000.50)");
         } catch (Exception e) {
@@ -471,13 +497,13 @@ public class Main {
                 return;
             }
 
-            double budgetLimit = Double.parseDouble(limitInput);
+            long budgetLimit = Money.parse(limitInput);
             if (budgetLimit < 0) {
                 System.out.println("Лимит не может быть отрицательным!");
                 return;
             }
 
-            walletService.setBudgetLimit(categoryName, budgetLimit);
+            walletService.setBudgetLimit(authService.getCurrentSession(), categoryName, budgetLimit);
         } catch (NumberFormatException e) {
             System.out.println("Неверный формат лимита! Используйте числа (например: 1000.50)");
         } catch (CategoryNotFoundException e) {
@@ -504,7 +530,7 @@ public class Main {
                 return;
             }
 
-            double amount = Double.parseDouble(amountInput);
+            long amount = Money.parse(amountInput);
             if (amount <= 0) {
                 System.out.println("Сумма должна быть положительной!");
                 return;
@@ -513,7 +539,7 @@ public class Main {
             System.out.print("Введите описание перевода: ");
             String description = scanner.nextLine().trim();
 
-            walletService.transferToUser(targetUsername, amount, description);
+            walletService.transferToUser(authService.getCurrentSession(), targetUsername, amount, description);
         } catch (NumberFormatException e) {
             System.out.println("Неверный формат суммы! Используйте числа (например: 1000.50)");
         } catch (UserNotFoundException | InsufficientFundsException | CategoryNotFoundException e) {
@@ -530,7 +556,7 @@ public class Main {
             System.out.print("Введите конечную дату (гггг-мм-дд): ");
             String endDate = scanner.nextLine().trim();
 
-            walletService.showStatisticsForPeriod(startDate, endDate);
+            walletService.showStatisticsForPeriod(authService.getCurrentSession(), startDate, endDate);
         } catch (Exception e) {
             System.out.println("Ошибка при показе статистики за период: " + e.getMessage());
         }
@@ -545,8 +571,8 @@ public class Main {
             System.out.print("Введите новый лимит бюджета: ");
             String limitInput = scanner.nextLine().trim();
 
-            double newLimit = Double.parseDouble(limitInput);
-            walletService.editCategory(oldName, newName, newLimit);
+            long newLimit = Money.parse(limitInput);
+            walletService.editCategory(authService.getCurrentSession(), oldName, newName, newLimit);
         } catch (NumberFormatException e) {
             System.out.println("Неверный формат лимита!");
         } catch (Exception e) {
@@ -559,7 +585,7 @@ public class Main {
             System.out.print("Введите название категории для удаления: ");
             String categoryName = scanner.nextLine().trim();
 
-            walletService.deleteCategory(categoryName);
+            walletService.deleteCategory(authService.getCurrentSession(), categoryName);
         } catch (Exception e) {
             System.out.println("Ошибка при удалении категории: " + e.getMessage());
         }
@@ -569,7 +595,10 @@ public class Main {
         try {
             System.out.print("Введите имя CSV файла (без расширения): ");
             String filename = scanner.nextLine().trim();
-            walletService.exportToCSV(filename + ".csv");
+            System.out.print("Сжать файл gzip? (y/n): ");
+            String response = scanner.nextLine().trim().toLowerCase();
+            boolean gzip = response.equals("y") || response.equals("yes");
+            walletService.exportToCSV(authService.getCurrentSession(), filename + (gzip ? ".csv.gz" : ".csv"));
         } catch (Exception e) {
             System.out.println("Ошибка при экспорте в CSV: " + e.getMessage());
         }
@@ -579,7 +608,7 @@ public class Main {
         try {
             System.out.print("Введите имя CSV файла для импорта: ");
             String filename = scanner.nextLine().trim();
-            walletService.importFromCSV(filename);
+            walletService.importFromCSV(authService.getCurrentSession(), filename);
         } catch (Exception e) {
             System.out.println("Ошибка при импорте из CSV: " + e.getMessage());
         }
@@ -587,7 +616,7 @@ public class Main {
 
     private static void checkAdvancedAlerts() {
         try {
-            walletService.checkAdvancedAlerts();
+            walletService.checkAdvancedAlerts(authService.getCurrentSession());
         } catch (Exception e) {
             System.out.println("Ошибка при проверке оповещений: " + e.getMessage());
         }
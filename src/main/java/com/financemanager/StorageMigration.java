@@ -0,0 +1,92 @@
+package com.financemanager;
+
+import com.financemanager.model.User;
+import com.financemanager.service.DurabilityMode;
+import com.financemanager.service.FileService;
+import com.financemanager.service.FlatStorageLayout;
+import com.financemanager.service.ShardedStorageLayout;
+import com.financemanager.service.StorageLayout;
+import com.financemanager.service.WalletFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Перенос каталога данных из прежнего расположения (все в одном каталоге) в расположение по частям.
+// Запускается при остановленном приложении. Метка storage.properties пишется только после переноса
+// всех кошельков, поэтому прерванный перенос можно просто запустить повторно.
+// Запуск: java -cp target/classes com.financemanager.StorageMigration [каталог] [частей]
+public final class StorageMigration {
+    private StorageMigration() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String dataDir = args.length > 0 ? args[0] : "data";
+        int shards = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        long startedAt = System.nanoTime();
+        int migrated = migrate(dataDir, shards);
+        if (migrated >= 0) {
+            System.out.printf("Перенесено пользователей: %d за %.1f с%n",
+                    migrated, (System.nanoTime() - startedAt) / 1_000_000_000.0);
+        }
+    }
+
+    // Возвращает число перенесенных пользователей или -1, если каталог уже разбит на части
+    public static int migrate(String dataDir, int shards) throws Exception {
+        if (StorageLayout.open(dataDir) instanceof ShardedStorageLayout) {
+            System.out.println("Каталог " + dataDir + " уже разбит на части");
+            return -1;
+        }
+
+        FlatStorageLayout flat = new FlatStorageLayout(dataDir);
+        ShardedStorageLayout sharded = new ShardedStorageLayout(dataDir, shards);
+        FileService source = new FileService(dataDir, DurabilityMode.SYNC, WalletFormat.JSON, flat);
+        FileService target = new FileService(dataDir, DurabilityMode.SYNC, WalletFormat.JSON, sharded);
+
+        // При повторном запуске часть учетных записей уже лежит в новых файлах
+        Map<String, User> users = target.loadUsers();
+        users.putAll(source.loadUsers());
+        target.saveUsers(users);
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(8, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> moves = new ArrayList<>();
+            for (String username : users.keySet()) {
+                moves.add(executor.submit(() -> {
+                    moveWalletFiles(flat, sharded, username);
+                    return null;
+                }));
+            }
+            for (Future<?> move : moves) {
+                move.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        StorageLayout.writeMarker(dataDir, sharded.getShardCount());
+        flat.usersFile(0).delete();
+        flat.usersJournalFile(0).delete();
+        new File(dataDir, "users.json").delete();
+        return users.size();
+    }
+
+    private static void moveWalletFiles(StorageLayout from, StorageLayout to, String username) throws IOException {
+        for (String extension : FileService.walletFileExtensions()) {
+            File source = from.walletFile(username, extension);
+            if (source.exists()) {
+                Files.move(source.toPath(), to.walletFile(username, extension).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+}
@@ -2,16 +2,29 @@ package com.financemanager.model;
 
 public class Category {
     private String name;
-    private double budgetLimit;
+    // Лимит в копейках, см. Money
+    private long budgetLimitKopecks;
+    // Прежний формат файлов: лимит в рублях (double), переводится при загрузке
+    private Double budgetLimit;
 
-    public Category(String name, double budgetLimit) {
+    public Category(String name, long budgetLimit) {
         this.name = name;
-        this.budgetLimit = budgetLimit;
+        this.budgetLimitKopecks = budgetLimit;
+    }
+
+    // Возвращает true, если лимит был в прежнем формате
+    public boolean migrateLegacyMoney() {
+        if (budgetLimit == null) {
+            return false;
+        }
+        budgetLimitKopecks = Money.fromDouble(budgetLimit);
+        budgetLimit = null;
+        return true;
     }
 
     // Getters and Setters
     public String getName() { return name; }
-    public double getBudgetLimit() { return budgetLimit; }
+    public long getBudgetLimit() { return budgetLimitKopecks; }
     public void setName(String name) { this.name = name; }
-    public void setBudgetLimit(double budgetLimit) { this.budgetLimit = budgetLimit; }
+    public void setBudgetLimit(long budgetLimit) { this.budgetLimitKopecks = budgetLimit; }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.financemanager.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Словарь категорий кошелька: название <-> небольшой целый номер.
+// Транзакции хранят номер; переименование меняет только словарь, а слияние
+// (удаление категории с переносом операций) перенаправляет старый номер на новый.
+public class CategoryDictionary {
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    // Номер, под которым сейчас учитываются операции с этим номером
+    private int[] canonical = new int[16];
+
+    public int size() {
+        return names.size();
+    }
+
+    // Номер категории или -1, если ее нет
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = names.size();
+        if (newId == canonical.length) {
+            canonical = Arrays.copyOf(canonical, newId * 2);
+        }
+        canonical[newId] = newId;
+        names.add(name);
+        ids.put(name, newId);
+        return newId;
+    }
+
+    // Текущий номер для номера из строки хранилища (после слияний может отличаться)
+    public int resolve(int id) {
+        return canonical[id];
+    }
+
+    public String nameOf(int id) {
+        return names.get(canonical[id]);
+    }
+
+    // Переносит категорию from в to: переименование, если to нет, иначе слияние номеров.
+    // Возвращает номер, под которым теперь учитываются операции from, или -1, если from нет.
+    public int reassign(String from, String to) {
+        Integer fromId = ids.remove(from);
+        if (fromId == null) {
+            return -1;
+        }
+
+        Integer toId = ids.get(to);
+        if (toId == null) {
+            names.set(fromId, to);
+            ids.put(to, fromId);
+            return fromId;
+        }
+
+        names.set(fromId, null);
+        for (int id = 0; id < names.size(); id++) {
+            if (canonical[id] == fromId) {
+                canonical[id] = toId;
+            }
+        }
+        return toId;
+    }
+}
@@ -0,0 +1,68 @@
+package com.financemanager.model;
+
+public class CategoryTotals {
+    private long income;
+    private long expenses;
+    private int incomeCount;
+    private int expenseCount;
+    private long minIncome;
+    private long maxIncome;
+    private long minExpense;
+    private long maxExpense;
+
+    public CategoryTotals() {
+    }
+
+    // Готовые итоги, посчитанные вне кошелька (например, параллельным пересчетом)
+    public CategoryTotals(long income, long expenses, int incomeCount, int expenseCount,
+                          long minIncome, long maxIncome, long minExpense, long maxExpense) {
+        this.income = income;
+        this.expenses = expenses;
+        this.incomeCount = incomeCount;
+        this.expenseCount = expenseCount;
+        this.minIncome = minIncome;
+        this.maxIncome = maxIncome;
+        this.minExpense = minExpense;
+        this.maxExpense = maxExpense;
+    }
+
+    public void add(TransactionType type, long amount) {
+        if (type == TransactionType.INCOME) {
+            minIncome = incomeCount == 0 ? amount : Math.min(minIncome, amount);
+            maxIncome = incomeCount == 0 ? amount : Math.max(maxIncome, amount);
+            income += amount;
+            incomeCount++;
+        } else {
+            minExpense = expenseCount == 0 ? amount : Math.min(minExpense, amount);
+            maxExpense = expenseCount == 0 ? amount : Math.max(maxExpense, amount);
+            expenses += amount;
+            expenseCount++;
+        }
+    }
+
+    public void merge(CategoryTotals other) {
+        if (other.incomeCount > 0) {
+            minIncome = incomeCount == 0 ? other.minIncome : Math.min(minIncome, other.minIncome);
+            maxIncome = incomeCount == 0 ? other.maxIncome : Math.max(maxIncome, other.maxIncome);
+        }
+        if (other.expenseCount > 0) {
+            minExpense = expenseCount == 0 ? other.minExpense : Math.min(minExpense, other.minExpense);
+            maxExpense = expenseCount == 0 ? other.maxExpense : Math.max(maxExpense, other.maxExpense);
+        }
+        income += other.income;
+        expenses += other.expenses;
+        incomeCount += other.incomeCount;
+        expenseCount += other.expenseCount;
+    }
+
+    // Getters; минимум и максимум равны 0, пока операций этого типа нет
+    public long getIncome() { return income; }
+    public long getExpenses() { return expenses; }
+    public int getIncomeCount() { return incomeCount; }
+    public int getExpenseCount() { return expenseCount; }
+    public int getCount() { return incomeCount + expenseCount; }
+    public long getMinIncome() { return minIncome; }
+    public long getMaxIncome() { return maxIncome; }
+    public long getMinExpense() { return minExpense; }
+    public long getMaxExpense() { return maxExpense; }
+}
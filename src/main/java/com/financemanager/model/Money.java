@@ -0,0 +1,80 @@
+package com.financemanager.model;
+
+// Денежные суммы хранятся в копейках (long): сложение и сравнение точные и без объектов BigDecimal
+public final class Money {
+    public static final long KOPECKS_PER_RUBLE = 100;
+    // 16 цифр рублей с копейками помещаются в long без переполнения, как в CsvImporter.parseAmount
+    private static final int MAX_RUBLE_DIGITS = 16;
+
+    private Money() {
+    }
+
+    // Разбор "1000", "1000.5", "1000,50", "-3.25"; больше двух знаков после запятой не допускается
+    public static long parse(String text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long rubles = 0;
+        long kopecks = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (fractionDigits < 0) {
+                    if (digits > MAX_RUBLE_DIGITS) {
+                        throw new NumberFormatException("Слишком длинная сумма: " + text);
+                    }
+                    rubles = rubles * 10 + (c - '0');
+                } else if (fractionDigits < 2) {
+                    kopecks = kopecks * 10 + (c - '0');
+                    fractionDigits++;
+                } else {
+                    throw new NumberFormatException("Больше двух знаков после запятой: " + text);
+                }
+            } else if ((c == '.' || c == ',') && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                throw new NumberFormatException("Некорректная сумма: " + text);
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Некорректная сумма: " + text);
+        }
+
+        if (fractionDigits == 1) {
+            kopecks *= 10;
+        }
+        long value = rubles * KOPECKS_PER_RUBLE + kopecks;
+        return negative ? -value : value;
+    }
+
+    // Перевод сумм из прежнего формата файлов, где они хранились как double
+    public static long fromDouble(double amount) {
+        return Math.round(amount * KOPECKS_PER_RUBLE);
+    }
+
+    // Два знака после точки независимо от локали
+    public static String format(long amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder out, long amount) {
+        long rubles = amount / KOPECKS_PER_RUBLE;
+        long kopecks = Math.abs(amount % KOPECKS_PER_RUBLE);
+        if (amount < 0 && rubles == 0) {
+            out.append('-');
+        }
+        out.append(rubles).append('.');
+        if (kopecks < 10) {
+            out.append('0');
+        }
+        return out.append(kopecks);
+    }
+}
@@ -0,0 +1,18 @@
+package com.financemanager.model;
+
+public class PeriodTotals {
+    private final long income;
+    private final long expenses;
+    private final int count;
+
+    public PeriodTotals(long income, long expenses, int count) {
+        this.income = income;
+        this.expenses = expenses;
+        this.count = count;
+    }
+
+    // Getters
+    public long getIncome() { return income; }
+    public long getExpenses() { return expenses; }
+    public int getCount() { return count; }
+}
@@ -0,0 +1,22 @@
+package com.financemanager.model;
+
+// Сессия вошедшего пользователя: операции сервисов получают ее явно,
+// поэтому одно ядро может обслуживать несколько пользователей одновременно
+public class Session {
+    private final User user;
+    private final Wallet wallet;
+    private volatile boolean open = true;
+
+    public Session(User user, Wallet wallet) {
+        this.user = user;
+        this.wallet = wallet;
+    }
+
+    // Getters
+    public User getUser() { return user; }
+    public String getUsername() { return user.getUsername(); }
+    public Wallet getWallet() { return wallet; }
+    public boolean isOpen() { return open; }
+
+    public void close() { open = false; }
+}
@@ -0,0 +1,87 @@
+package com.financemanager.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Неизменяемый снимок статистики кошелька, из которого строятся все отчеты и оповещения
+public final class StatisticsReport {
+    private final long totalIncome;
+    private final long totalExpenses;
+    private final long balance;
+    private final int incomeCount;
+    private final int expenseCount;
+    private final Map<String, CategoryStatistics> categories;
+
+    public StatisticsReport(long totalIncome, long totalExpenses, long balance,
+                            int incomeCount, int expenseCount, List<CategoryStatistics> categories) {
+        this.totalIncome = totalIncome;
+        this.totalExpenses = totalExpenses;
+        this.balance = balance;
+        this.incomeCount = incomeCount;
+        this.expenseCount = expenseCount;
+        Map<String, CategoryStatistics> byName = new LinkedHashMap<>();
+        for (CategoryStatistics category : categories) {
+            byName.put(category.getName(), category);
+        }
+        this.categories = Collections.unmodifiableMap(byName);
+    }
+
+    // Getters
+    public long getTotalIncome() { return totalIncome; }
+    public long getTotalExpenses() { return totalExpenses; }
+    public long getBalance() { return balance; }
+    public int getIncomeCount() { return incomeCount; }
+    public int getExpenseCount() { return expenseCount; }
+    public Iterable<CategoryStatistics> getCategories() { return categories.values(); }
+
+    public CategoryStatistics getCategory(String name) {
+        return categories.get(name);
+    }
+
+    public static final class CategoryStatistics {
+        private final String name;
+        private final long budgetLimit;
+        private final long income;
+        private final long expenses;
+        private final int incomeCount;
+        private final int expenseCount;
+        private final long minIncome;
+        private final long maxIncome;
+        private final long minExpense;
+        private final long maxExpense;
+
+        public CategoryStatistics(String name, long budgetLimit, CategoryTotals totals) {
+            this.name = name;
+            this.budgetLimit = budgetLimit;
+            this.income = totals.getIncome();
+            this.expenses = totals.getExpenses();
+            this.incomeCount = totals.getIncomeCount();
+            this.expenseCount = totals.getExpenseCount();
+            this.minIncome = totals.getMinIncome();
+            this.maxIncome = totals.getMaxIncome();
+            this.minExpense = totals.getMinExpense();
+            this.maxExpense = totals.getMaxExpense();
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public long getBudgetLimit() { return budgetLimit; }
+        public long getIncome() { return income; }
+        public long getExpenses() { return expenses; }
+        public int getIncomeCount() { return incomeCount; }
+        public int getExpenseCount() { return expenseCount; }
+        public long getMinIncome() { return minIncome; }
+        public long getMaxIncome() { return maxIncome; }
+        public long getMinExpense() { return minExpense; }
+        public long getMaxExpense() { return maxExpense; }
+        public boolean hasBudget() { return budgetLimit > 0; }
+        public long getRemaining() { return budgetLimit - expenses; }
+
+        // Доля использованного бюджета в процентах; 0, если лимит не задан
+        public double getBudgetUsagePercent() {
+            return hasBudget() ? expenses * 100.0 / budgetLimit : 0.0;
+        }
+    }
+}
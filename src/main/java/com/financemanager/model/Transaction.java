@@ -1,38 +1,87 @@
 package com.financemanager.model;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 
 public class Transaction {
     private String id;
-    private double amount;
+    // Сумма в копейках, см. Money
+    private long amount;
     private TransactionType type;
     private String category;
     private String description;
+    // Дата в формате ISO хранится для файлов; в расчетах используется timestamp
     private String date;
+    private transient long timestamp;
 
-    public Transaction(String id, double amount, TransactionType type,
+    public Transaction(String id, long amount, TransactionType type,
                        String category, String description) {
         this.id = id;
         this.amount = amount;
         this.type = type;
         this.category = category;
         this.description = description;
-        this.date = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        // Снимок хранит дату с точностью до миллисекунд, как и timestamp
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        this.date = now.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        this.timestamp = toEpochMillis(now);
+    }
+
+    // Для восстановления сохраненной транзакции с исходной датой
+    public Transaction(String id, long amount, TransactionType type,
+                       String category, String description, String date) {
+        this.id = id;
+        this.amount = amount;
+        this.type = type;
+        this.category = category;
+        this.description = description;
+        setDate(date);
+    }
+
+    // Для колоночного хранилища: дата и метка времени уже согласованы
+    Transaction(String id, long amount, TransactionType type, String category,
+                String description, String date, long timestamp) {
+        this.id = id;
+        this.amount = amount;
+        this.type = type;
+        this.category = category;
+        this.description = description;
+        this.date = date;
+        this.timestamp = timestamp;
+    }
+
+    // Локальное время без часового пояса переводится в миллисекунды как UTC, важен только порядок
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
     }
 
     // Getters and Setters
     public String getId() { return id; }
-    public double getAmount() { return amount; }
+    public long getAmount() { return amount; }
     public TransactionType getType() { return type; }
     public String getCategory() { return category; }
     public String getDescription() { return description; }
     public String getDate() { return date; }
+    public long getTimestamp() { return timestamp; }
 
     public void setId(String id) { this.id = id; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public void setAmount(long amount) { this.amount = amount; }
     public void setType(TransactionType type) { this.type = type; }
     public void setCategory(String category) { this.category = category; }
     public void setDescription(String description) { this.description = description; }
-    public void setDate(String date) { this.date = date; }
-}
\ No newline at end of file
+
+    // Дата приводится к миллисекундам и к виду из снимка, чтобы журнал и снимок давали одну и ту же строку
+    public void setDate(String date) {
+        if (date == null) {
+            this.date = null;
+            this.timestamp = 0L;
+            return;
+        }
+        LocalDateTime dateTime = LocalDateTime.parse(date, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                .truncatedTo(ChronoUnit.MILLIS);
+        this.date = dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        this.timestamp = toEpochMillis(dateTime);
+    }
+}
@@ -0,0 +1,441 @@
+package com.financemanager.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+// Колоночное хранение транзакций кошелька в примитивных массивах вместо объекта на каждую операцию.
+// Снаружи это список Transaction: get создает новый объект, изменения которого в хранилище не попадают.
+public class TransactionStore extends AbstractList<Transaction> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    // Самая длинная дата быстрого пути: 2024-01-15T10:00:00.123
+    public static final int DATE_LENGTH = 23;
+
+    // Биты flags
+    private static final byte INCOME = 1;
+    // Идентификатор вида INC_<число>, а не EXP_<число>
+    private static final byte INCOME_PREFIX = 2;
+    // Идентификатор не сводится к префиксу и числу и хранится текстом в пуле
+    private static final byte TEXT_ID = 4;
+    private static final byte NO_TYPE = 8;
+    private static final byte NO_DESCRIPTION = 16;
+    private static final byte NO_DATE = 32;
+
+    private int size;
+    private long[] timestamps;
+    private long[] amounts;
+    private byte[] flags;
+    private int[] categoryIds;
+    // Число из идентификатора INC_/EXP_ либо длина текстового идентификатора в начале текста строки
+    private long[] idNumbers;
+    // Текст строки i (текстовый идентификатор, затем описание) занимает [textStarts[i], textStarts[i + 1])
+    private int[] textStarts;
+    private char[] textPool;
+
+    // Названия категорий хранятся один раз в словаре; в строках только номер
+    private final CategoryDictionary categories = new CategoryDictionary();
+
+    // Индекс по идентификатору: открытая адресация, номер строки + 1; строится при первом поиске
+    private int[] idTable;
+
+    public TransactionStore() {
+        timestamps = new long[INITIAL_CAPACITY];
+        amounts = new long[INITIAL_CAPACITY];
+        flags = new byte[INITIAL_CAPACITY];
+        categoryIds = new int[INITIAL_CAPACITY];
+        idNumbers = new long[INITIAL_CAPACITY];
+        textStarts = new int[INITIAL_CAPACITY + 1];
+        textPool = new char[INITIAL_CAPACITY * 32];
+    }
+
+    public TransactionStore(Collection<Transaction> transactions) {
+        this();
+        ensureCapacity(transactions.size());
+        addAll(transactions);
+        trimToSize();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Transaction get(int row) {
+        checkRow(row);
+        return new Transaction(getId(row), amounts[row], getType(row), getCategory(row),
+                getDescription(row), getDate(row), timestamps[row]);
+    }
+
+    @Override
+    public boolean add(Transaction transaction) {
+        String id = transaction.getId();
+        long idNumber = parseIdNumber(id);
+        String textId = idNumber >= 0 ? null : (id != null ? id : "");
+        int categoryId = transaction.getCategory() != null ? categories.intern(transaction.getCategory()) : -1;
+        addRow(textId, Math.max(idNumber, 0), idNumber >= 0 && id.charAt(0) == 'I', transaction.getType(),
+                transaction.getAmount(), categoryId, transaction.getDescription(), transaction.getTimestamp(),
+                transaction.getDate() != null);
+        return true;
+    }
+
+    // Строка из готовых значений колонок без промежуточного Transaction (чтение двоичного снимка).
+    // textId == null означает идентификатор INC_/EXP_ с числом idNumber; categoryId - номер из словаря или -1
+    public void addRow(String textId, long idNumber, boolean incomeIdPrefix, TransactionType type, long amount,
+                       int categoryId, String description, long timestamp, boolean hasDate) {
+        ensureCapacity(size + 1);
+        int row = size;
+        byte rowFlags = 0;
+        if (type == null) {
+            rowFlags |= NO_TYPE;
+        } else if (type == TransactionType.INCOME) {
+            rowFlags |= INCOME;
+        }
+
+        int textStart = textStarts[row];
+        if (textId == null) {
+            idNumbers[row] = idNumber;
+            if (incomeIdPrefix) {
+                rowFlags |= INCOME_PREFIX;
+            }
+        } else {
+            rowFlags |= TEXT_ID;
+            idNumbers[row] = textId.length();
+            textStart = appendText(textStart, textId);
+        }
+
+        if (description == null) {
+            rowFlags |= NO_DESCRIPTION;
+        } else {
+            textStart = appendText(textStart, description);
+        }
+        if (!hasDate) {
+            rowFlags |= NO_DATE;
+        }
+
+        timestamps[row] = timestamp;
+        amounts[row] = amount;
+        categoryIds[row] = categoryId;
+        flags[row] = rowFlags;
+        textStarts[row + 1] = textStart;
+        size++;
+        modCount++;
+        if (idTable != null) {
+            indexRow(row);
+        }
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        textStarts[0] = 0;
+        idTable = null;
+        modCount++;
+    }
+
+    // Убирает запас емкости массивов, например после загрузки кошелька из файла
+    public void trimToSize() {
+        int capacity = Math.max(size, 1);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        idNumbers = Arrays.copyOf(idNumbers, capacity);
+        textStarts = Arrays.copyOf(textStarts, capacity + 1);
+        textPool = Arrays.copyOf(textPool, Math.max(textStarts[size], 1));
+    }
+
+    // Колонки: для расчетов без создания объектов Transaction
+    public long getTimestamp(int row) { return timestamps[row]; }
+    public long getAmount(int row) { return amounts[row]; }
+    public boolean isIncome(int row) { return (flags[row] & INCOME) != 0; }
+    public CategoryDictionary getCategoryDictionary() { return categories; }
+
+    // Текущий номер категории строки (с учетом слияний); -1, если категории нет
+    public int getCategoryId(int row) {
+        int id = categoryIds[row];
+        return id >= 0 ? categories.resolve(id) : -1;
+    }
+
+    public int getCategoryCount() { return categories.size(); }
+
+    // Идентификатор по частям, без сборки строки: текстовый либо префикс INC_/EXP_ и число
+    public boolean hasTextId(int row) { return (flags[row] & TEXT_ID) != 0; }
+    public boolean hasIncomeIdPrefix(int row) { return (flags[row] & INCOME_PREFIX) != 0; }
+    public boolean hasDate(int row) { return (flags[row] & NO_DATE) == 0; }
+
+    // Число из идентификатора INC_/EXP_; для текстового идентификатора - его длина
+    public long getIdNumber(int row) { return idNumbers[row]; }
+
+    public TransactionType getType(int row) {
+        if ((flags[row] & NO_TYPE) != 0) {
+            return null;
+        }
+        return (flags[row] & INCOME) != 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+    }
+
+    public String getCategory(int row) {
+        int id = categoryIds[row];
+        return id >= 0 ? categories.nameOf(id) : null;
+    }
+
+    public String getCategoryName(int categoryId) {
+        return categories.nameOf(categoryId);
+    }
+
+    public String getId(int row) {
+        if ((flags[row] & TEXT_ID) != 0) {
+            return new String(textPool, textStarts[row], (int) idNumbers[row]);
+        }
+        return ((flags[row] & INCOME_PREFIX) != 0 ? "INC_" : "EXP_") + idNumbers[row];
+    }
+
+    public String getDescription(int row) {
+        if ((flags[row] & NO_DESCRIPTION) != 0) {
+            return null;
+        }
+        int start = descriptionStart(row);
+        return new String(textPool, start, textStarts[row + 1] - start);
+    }
+
+    // Дата в формате ISO_LOCAL_DATE_TIME, восстановленная по метке времени (с точностью до миллисекунды)
+    public String getDate(int row) {
+        if ((flags[row] & NO_DATE) != 0) {
+            return null;
+        }
+        return formatDate(timestamps[row]);
+    }
+
+    // Поиск по идентификатору; при совпадении идентификаторов побеждает последняя добавленная строка
+    public int findRow(String id) {
+        if (id == null || size == 0) {
+            return -1;
+        }
+        if (idTable == null) {
+            rebuildIdIndex();
+        }
+
+        long idNumber = parseIdNumber(id);
+        int mask = idTable.length - 1;
+        int slot = idHash(id, idNumber) & mask;
+        while (idTable[slot] != 0) {
+            int row = idTable[slot] - 1;
+            if (idEquals(row, id, idNumber)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Переносит строки категории from в категорию to только через словарь, строки не переписываются.
+    // Возвращает номер, под которым теперь учитываются эти строки, или -1, если from нет
+    public int reassignCategory(String from, String to) {
+        return categories.reassign(from, to);
+    }
+
+    private int descriptionStart(int row) {
+        return (flags[row] & TEXT_ID) != 0 ? textStarts[row] + (int) idNumbers[row] : textStarts[row];
+    }
+
+    private int appendText(int position, String text) {
+        int end = position + text.length();
+        if (end > textPool.length) {
+            textPool = Arrays.copyOf(textPool, Math.max(end, textPool.length + (textPool.length >> 1)));
+        }
+        text.getChars(0, text.length(), textPool, position);
+        return end;
+    }
+
+    // Заранее выделяет место под строки, например по числу строк в заголовке снимка
+    public void ensureCapacity(int required) {
+        if (required <= timestamps.length) {
+            return;
+        }
+        int capacity = Math.max(required, timestamps.length + (timestamps.length >> 1));
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        idNumbers = Arrays.copyOf(idNumbers, capacity);
+        textStarts = Arrays.copyOf(textStarts, capacity + 1);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+        }
+    }
+
+    // Число из идентификатора INC_<число> или EXP_<число> без ведущих нулей; -1, если вид другой
+    private static long parseIdNumber(String id) {
+        if (id == null || id.length() < 5 || id.length() > 22 || id.charAt(3) != '_'
+                || !(id.startsWith("INC") || id.startsWith("EXP"))) {
+            return -1;
+        }
+        if (id.charAt(4) == '0' && id.length() > 5) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 4; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        // 18 цифр всегда помещаются в long; 19 цифр считаются текстом
+        return id.length() - 4 <= 18 ? value : -1;
+    }
+
+    private void rebuildIdIndex() {
+        int capacity = Integer.highestOneBit(Math.max(16, size * 4 / 3 + 1)) << 1;
+        idTable = new int[capacity];
+        for (int row = 0; row < size; row++) {
+            indexRow(row);
+        }
+    }
+
+    private void indexRow(int row) {
+        if ((size + 1) * 4L > idTable.length * 3L) {
+            rebuildIdIndex();
+            return;
+        }
+        int mask = idTable.length - 1;
+        int slot = rowHash(row) & mask;
+        while (idTable[slot] != 0) {
+            int existing = idTable[slot] - 1;
+            if (rowsHaveEqualIds(existing, row)) {
+                idTable[slot] = row + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        idTable[slot] = row + 1;
+    }
+
+    private int idHash(String id, long idNumber) {
+        if (idNumber >= 0) {
+            return numberHash(idNumber, id.charAt(0) == 'I');
+        }
+        return mix(id.hashCode());
+    }
+
+    private int rowHash(int row) {
+        if ((flags[row] & TEXT_ID) == 0) {
+            return numberHash(idNumbers[row], (flags[row] & INCOME_PREFIX) != 0);
+        }
+        int hash = 0;
+        int start = textStarts[row];
+        for (int i = 0; i < idNumbers[row]; i++) {
+            hash = 31 * hash + textPool[start + i];
+        }
+        return mix(hash);
+    }
+
+    private static int numberHash(long number, boolean incomePrefix) {
+        return mix(Long.hashCode(number) ^ (incomePrefix ? 0x5bd1e995 : 0));
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean idEquals(int row, String id, long idNumber) {
+        if (idNumber >= 0) {
+            return (flags[row] & TEXT_ID) == 0 && idNumbers[row] == idNumber
+                    && ((flags[row] & INCOME_PREFIX) != 0) == (id.charAt(0) == 'I');
+        }
+        if ((flags[row] & TEXT_ID) == 0 || idNumbers[row] != id.length()) {
+            return false;
+        }
+        int start = textStarts[row];
+        for (int i = 0; i < id.length(); i++) {
+            if (textPool[start + i] != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean rowsHaveEqualIds(int a, int b) {
+        if ((flags[a] & TEXT_ID) != (flags[b] & TEXT_ID) || idNumbers[a] != idNumbers[b]) {
+            return false;
+        }
+        if ((flags[a] & TEXT_ID) == 0) {
+            return (flags[a] & INCOME_PREFIX) == (flags[b] & INCOME_PREFIX);
+        }
+        return Arrays.equals(textPool, textStarts[a], textStarts[a] + (int) idNumbers[a],
+                textPool, textStarts[b], textStarts[b] + (int) idNumbers[b]);
+    }
+
+    // Быстрый путь для лет 0-9999 без DateTimeFormatter; остальное через стандартное форматирование
+    public static String formatDate(long timestamp) {
+        byte[] text = new byte[DATE_LENGTH];
+        int length = formatDate(timestamp, text);
+        if (length < 0) {
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000),
+                    Math.floorMod(timestamp, 1000) * 1_000_000, ZoneOffset.UTC)
+                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+        return new String(text, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    // Та же запись байтами ASCII в text (не короче DATE_LENGTH) без промежуточных объектов, для потокового
+    // экспорта; возвращает длину или -1 для лет вне 0-9999. Дата из номера дня считается арифметически
+    public static int formatDate(long timestamp, byte[] text) {
+        long epochDay = Math.floorDiv(timestamp, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(timestamp, MILLIS_PER_DAY);
+        // Гражданский календарь по номеру дня: эры по 400 лет, год с 1 марта
+        long days = epochDay + 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return -1;
+        }
+
+        writeDigits(text, 0, (int) year, 4);
+        text[4] = '-';
+        writeDigits(text, 5, month, 2);
+        text[7] = '-';
+        writeDigits(text, 8, day, 2);
+        text[10] = 'T';
+        writeDigits(text, 11, millisOfDay / 3_600_000, 2);
+        text[13] = ':';
+        writeDigits(text, 14, millisOfDay / 60_000 % 60, 2);
+        text[16] = ':';
+        writeDigits(text, 17, millisOfDay / 1000 % 60, 2);
+        int length = 19;
+        int millis = millisOfDay % 1000;
+        if (millis != 0) {
+            // Как в ISO_LOCAL_DATE_TIME: дробная часть без хвостовых нулей
+            text[19] = '.';
+            writeDigits(text, 20, millis, 3);
+            length = DATE_LENGTH;
+            while (text[length - 1] == '0') {
+                length--;
+            }
+        }
+        return length;
+    }
+
+    private static void writeDigits(byte[] text, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            text[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.financemanager.model;
+
+// Запись журнала переводов: обе части перевода одной строкой, чтобы после сбоя
+// перевод был применен к обоим кошелькам целиком или не применен вовсе
+public class Transfer {
+    private long id;
+    private String from;
+    private String to;
+    private Transaction expense;
+    private Transaction income;
+
+    // Конструктор по умолчанию для Gson
+    public Transfer() {
+    }
+
+    public Transfer(long id, String from, String to, Transaction expense, Transaction income) {
+        this.id = id;
+        this.from = from;
+        this.to = to;
+        this.expense = expense;
+        this.income = income;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public String getFrom() { return from; }
+    public String getTo() { return to; }
+    public Transaction getExpense() { return expense; }
+    public Transaction getIncome() { return income; }
+}
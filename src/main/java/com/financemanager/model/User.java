@@ -3,13 +3,13 @@ package com.financemanager.model;
 public class User {
     private String username;
     private String password;
-    private Wallet wallet;
+    // Кошелек хранится отдельно в data/wallets/ и загружается при входе
+    private transient Wallet wallet;
     private String secretQuestion;
     private String secretAnswer;
 
     // Конструктор по умолчанию для Gson
     public User() {
-        this.wallet = new Wallet();
         this.secretQuestion = "";
         this.secretAnswer = "";
     }
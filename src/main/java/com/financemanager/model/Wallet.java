@@ -1,47 +1,449 @@
 package com.financemanager.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Wallet {
-    private double balance;
-    private List<Transaction> transactions;
+    // Баланс в копейках, см. Money
+    private long balanceKopecks;
+    // Прежний формат файлов: баланс в рублях (double), переводится при загрузке
+    private Double balance;
+    private TransactionStore transactions;
     private Map<String, Category> categories;
+    // Номер последнего изменения, учтенного в снимке кошелька
+    private long version;
+
+    // Агрегаты не сохраняются в файл, а пересчитываются при загрузке
+    private transient long totalIncome;
+    private transient long totalExpenses;
+    private transient int incomeCount;
+    private transient int expenseCount;
+    // Итоги по номерам категорий из словаря хранилища транзакций
+    private transient CategoryTotals[] categoryTotals;
+    // Отсортированные по времени метки и префиксные суммы для запросов за период
+    private transient long[] sortedTimestamps;
+    private transient long[] incomePrefix;
+    private transient long[] expensePrefix;
+    private transient int indexedCount;
+    private transient boolean timeIndexValid;
+    // Изменения, еще не записанные в журнал
+    private transient List<WalletChange> pendingChanges;
 
     public Wallet() {
-        this.balance = 0.0;
-        this.transactions = new ArrayList<>();
+        this.transactions = new TransactionStore();
         this.categories = new HashMap<>();
+        this.categoryTotals = new CategoryTotals[16];
+        this.pendingChanges = new ArrayList<>();
         initializeDefaultCategories();
     }
 
     private void initializeDefaultCategories() {
         // Русские категории по умолчанию
-        categories.put("Еда", new Category("Еда", 0.0));
-        categories.put("Транспорт", new Category("Транспорт", 0.0));
-        categories.put("Развлечения", new Category("Развлечения", 0.0));
-        categories.put("Здоровье", new Category("Здоровье", 0.0));
-        categories.put("Образование", new Category("Образование", 0.0));
-        categories.put("Одежда", new Category("Одежда", 0.0));
-        categories.put("Жилье", new Category("Жилье", 0.0));
-        categories.put("Связь", new Category("Связь", 0.0));
-        categories.put("Переводы", new Category("Переводы", 0.0));
-        categories.put("Зарплата", new Category("Зарплата", 0.0));
-        categories.put("Прочее", new Category("Прочее", 0.0));
+        categories.put("Еда", new Category("Еда", 0));
+        categories.put("Транспорт", new Category("Транспорт", 0));
+        categories.put("Развлечения", new Category("Развлечения", 0));
+        categories.put("Здоровье", new Category("Здоровье", 0));
+        categories.put("Образование", new Category("Образование", 0));
+        categories.put("Одежда", new Category("Одежда", 0));
+        categories.put("Жилье", new Category("Жилье", 0));
+        categories.put("Связь", new Category("Связь", 0));
+        categories.put("Переводы", new Category("Переводы", 0));
+        categories.put("Зарплата", new Category("Зарплата", 0));
+        categories.put("Прочее", new Category("Прочее", 0));
     }
 
     // Getters
-    public double getBalance() { return balance; }
-    public List<Transaction> getTransactions() { return transactions; }
+    public long getBalance() { return balanceKopecks; }
+    public TransactionStore getTransactions() { return transactions; }
     public Map<String, Category> getCategories() { return categories; }
+    public long getVersion() { return version; }
+
+    public long getTotalIncome() { return totalIncome; }
+    public long getTotalExpenses() { return totalExpenses; }
+    public int getIncomeCount() { return incomeCount; }
+    public int getExpenseCount() { return expenseCount; }
+
+    // Итоги за период [from, to] в миллисекундах (включительно), см. Transaction.toEpochMillis
+    public PeriodTotals getPeriodTotals(long from, long to) {
+        ensureTimeIndex();
+        int lo = lowerBound(from);
+        int hi = upperBound(to);
+        if (hi <= lo) {
+            return new PeriodTotals(0, 0, 0);
+        }
+        return new PeriodTotals(incomePrefix[hi] - incomePrefix[lo],
+                expensePrefix[hi] - expensePrefix[lo], hi - lo);
+    }
+
+    public Transaction findTransaction(String id) {
+        int row = transactions.findRow(id);
+        return row >= 0 ? transactions.get(row) : null;
+    }
+
+    public CategoryTotals getCategoryTotals(String category) {
+        int id = transactions.getCategoryDictionary().idOf(category);
+        CategoryTotals totals = id >= 0 && id < categoryTotals.length ? categoryTotals[id] : null;
+        return totals != null ? totals : new CategoryTotals();
+    }
+
+    public void setBalance(long balance) {
+        this.balanceKopecks = balance;
+        record(WalletChange.balance(version + 1, balance));
+    }
+
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions instanceof TransactionStore
+                ? (TransactionStore) transactions : new TransactionStore(transactions);
+        rebuildAggregates();
+    }
 
-    public void setBalance(double balance) { this.balance = balance; }
-    public void setTransactions(List<Transaction> transactions) { this.transactions = transactions; }
     public void setCategories(Map<String, Category> categories) { this.categories = categories; }
 
+    // Состояние из прочитанного снимка (двоичный формат); в журнал изменений не попадает.
+    // Агрегаты, как и после чтения через Gson, пересчитываются отдельно (rebuildAggregates)
+    public void restoreSnapshot(long balance, Map<String, Category> categories, TransactionStore transactions,
+                                long version) {
+        this.balanceKopecks = balance;
+        this.categories = categories;
+        this.transactions = transactions;
+        this.version = version;
+    }
+
+    // ArithmeticException до изменения кошелька, если баланс или итоги выйдут за пределы long
     public void addTransaction(Transaction transaction) {
+        boolean income = transaction.getType() == TransactionType.INCOME;
+        checkTotals(income ? transaction.getAmount() : 0, income ? 0 : transaction.getAmount());
+        applyTransaction(transaction);
+        record(WalletChange.transaction(version + 1, transaction));
+    }
+
+    // Добавляет пакет транзакций с одним пересчетом баланса и одной записью журнала
+    public void addTransactions(List<Transaction> batch) {
+        long income = 0;
+        long expenses = 0;
+        for (Transaction transaction : batch) {
+            if (transaction.getType() == TransactionType.INCOME) {
+                income = Math.addExact(income, transaction.getAmount());
+            } else {
+                expenses = Math.addExact(expenses, transaction.getAmount());
+            }
+        }
+        checkTotals(income, expenses);
+        applyTransactions(batch);
+        record(WalletChange.transactions(version + 1, batch));
+    }
+
+    // false, если после добавления доходов income и расходов expenses баланс или итоги выйдут за пределы long
+    public boolean canAdd(long income, long expenses) {
+        try {
+            checkTotals(income, expenses);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    // Итоги категорий - части общих итогов и переполняются не раньше них
+    private void checkTotals(long income, long expenses) {
+        Math.addExact(totalIncome, income);
+        Math.addExact(totalExpenses, expenses);
+        Math.addExact(balanceKopecks, Math.subtractExact(income, expenses));
+    }
+
+    // Создает категорию или обновляет лимит существующей
+    public void putCategory(String name, long budgetLimit) {
+        applyCategory(name, budgetLimit);
+        record(WalletChange.category(version + 1, name, budgetLimit));
+    }
+
+    public void renameCategory(String oldName, String newName) {
+        applyRename(oldName, newName);
+        record(WalletChange.renameCategory(version + 1, oldName, newName));
+    }
+
+    // Удаляет категорию, перенося ее транзакции в fallback; возвращает число перенесенных транзакций
+    public int deleteCategory(String name, String fallback) {
+        int moved = applyDelete(name, fallback);
+        record(WalletChange.deleteCategory(version + 1, name, fallback));
+        return moved;
+    }
+
+    public boolean hasPendingChanges() {
+        return !pendingChanges.isEmpty();
+    }
+
+    public List<WalletChange> getPendingChanges() {
+        return new ArrayList<>(pendingChanges);
+    }
+
+    // Отмечает первые count изменений как записанные
+    public void clearPendingChanges(int count) {
+        pendingChanges.subList(0, count).clear();
+    }
+
+    // Повторяет изменение из журнала поверх загруженного снимка
+    public void replay(WalletChange change) {
+        switch (change.getType()) {
+            case TRANSACTION -> applyTransaction(change.getTransaction());
+            case TRANSACTIONS -> applyTransactions(change.getTransactions());
+            case BALANCE -> balanceKopecks = change.getAmount();
+            case CATEGORY -> applyCategory(change.getCategory(), change.getAmount());
+            case RENAME_CATEGORY -> applyRename(change.getCategory(), change.getNewCategory());
+            case DELETE_CATEGORY -> applyDelete(change.getCategory(), change.getNewCategory());
+        }
+        version = Math.max(version, change.getSeq());
+    }
+
+    private void record(WalletChange change) {
+        version = change.getSeq();
+        pendingChanges.add(change);
+    }
+
+    private void applyTransaction(Transaction transaction) {
         transactions.add(transaction);
+        boolean income = transaction.getType() == TransactionType.INCOME;
+        balanceKopecks += income ? transaction.getAmount() : -transaction.getAmount();
+        accumulate(income, transaction.getAmount(), transactions.getCategoryId(transactions.size() - 1));
+        appendToTimeIndex(transaction.getTimestamp(), income, transaction.getAmount());
+    }
+
+    private void applyTransactions(List<Transaction> batch) {
+        int firstRow = transactions.size();
+        transactions.addAll(batch);
+        long net = 0;
+        for (int row = firstRow; row < transactions.size(); row++) {
+            boolean income = transactions.isIncome(row);
+            long amount = transactions.getAmount(row);
+            net += income ? amount : -amount;
+            accumulate(income, amount, transactions.getCategoryId(row));
+            appendToTimeIndex(transactions.getTimestamp(row), income, amount);
+        }
+        balanceKopecks += net;
+    }
+
+    private void applyCategory(String name, long budgetLimit) {
+        Category category = categories.get(name);
+        if (category == null) {
+            categories.put(name, new Category(name, budgetLimit));
+        } else {
+            category.setBudgetLimit(budgetLimit);
+        }
+    }
+
+    private void applyRename(String oldName, String newName) {
+        Category category = categories.remove(oldName);
+        if (category != null) {
+            category.setName(newName);
+            categories.put(newName, category);
+        }
+        reassignCategory(oldName, newName);
+    }
+
+    private int applyDelete(String name, String fallback) {
+        int moved = reassignCategory(name, fallback);
+        categories.remove(name);
+        return moved;
+    }
+
+    // Переименование или слияние номеров в словаре; строки транзакций не переписываются
+    private int reassignCategory(String from, String to) {
+        int fromId = transactions.getCategoryDictionary().idOf(from);
+        int toId = transactions.reassignCategory(from, to);
+        if (fromId < 0) {
+            return 0;
+        }
+
+        CategoryTotals moved = totalsFor(fromId);
+        if (toId != fromId) {
+            totalsFor(toId).merge(moved);
+            categoryTotals[fromId] = null;
+        }
+        return moved.getCount();
+    }
+
+    // Переводит суммы из прежнего формата файлов; возвращает true, если что-то было переведено
+    public boolean migrateLegacyMoney() {
+        boolean migrated = false;
+        if (balance != null) {
+            balanceKopecks = Money.fromDouble(balance);
+            balance = null;
+            migrated = true;
+        }
+        for (Category category : categories.values()) {
+            migrated |= category.migrateLegacyMoney();
+        }
+        return migrated;
+    }
+
+    public void rebuildAggregates() {
+        timeIndexValid = false;
+        totalIncome = 0;
+        totalExpenses = 0;
+        incomeCount = 0;
+        expenseCount = 0;
+        categoryTotals = new CategoryTotals[Math.max(16, transactions.getCategoryCount())];
+        for (int row = 0; row < transactions.size(); row++) {
+            accumulate(transactions.isIncome(row), transactions.getAmount(row), transactions.getCategoryId(row));
+        }
+    }
+
+    // Сверяет агрегаты с исходным списком транзакций, пересчитывая их заново
+    public boolean checkConsistency() {
+        long oldTotalIncome = totalIncome;
+        long oldTotalExpenses = totalExpenses;
+        int oldIncomeCount = incomeCount;
+        int oldExpenseCount = expenseCount;
+        CategoryTotals[] oldCategoryTotals = categoryTotals;
+
+        rebuildAggregates();
+
+        if (oldIncomeCount != incomeCount || oldExpenseCount != expenseCount
+                || oldTotalIncome != totalIncome
+                || oldTotalExpenses != totalExpenses) {
+            return false;
+        }
+
+        for (int id = 0; id < Math.max(oldCategoryTotals.length, categoryTotals.length); id++) {
+            CategoryTotals old = id < oldCategoryTotals.length ? oldCategoryTotals[id] : null;
+            CategoryTotals recomputed = id < categoryTotals.length ? categoryTotals[id] : null;
+            if (old == null || recomputed == null) {
+                // Пустые итоги (например, после слияния) равносильны отсутствующим
+                if ((old != null && old.getCount() > 0) || (recomputed != null && recomputed.getCount() > 0)) {
+                    return false;
+                }
+                continue;
+            }
+            if (old.getIncomeCount() != recomputed.getIncomeCount()
+                    || old.getExpenseCount() != recomputed.getExpenseCount()
+                    || old.getIncome() != recomputed.getIncome()
+                    || old.getExpenses() != recomputed.getExpenses()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureTimeIndex() {
+        if (timeIndexValid) {
+            return;
+        }
+
+        int size = transactions.size();
+        int capacity = Math.max(16, size);
+        sortedTimestamps = new long[capacity];
+        incomePrefix = new long[capacity + 1];
+        expensePrefix = new long[capacity + 1];
+        indexedCount = 0;
+        timeIndexValid = true;
+        for (int row : rowsByTime()) {
+            appendToTimeIndex(transactions.getTimestamp(row), transactions.isIncome(row), transactions.getAmount(row));
+        }
+    }
+
+    // Номера строк в порядке времени; транзакции почти всегда уже упорядочены, и тогда сортировки нет
+    private int[] rowsByTime() {
+        int size = transactions.size();
+        int[] rows = new int[size];
+        boolean sorted = true;
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+            if (row > 0 && transactions.getTimestamp(row) < transactions.getTimestamp(row - 1)) {
+                sorted = false;
+            }
+        }
+        if (sorted) {
+            return rows;
+        }
+
+        Integer[] boxed = new Integer[size];
+        for (int row = 0; row < size; row++) {
+            boxed[row] = row;
+        }
+        Arrays.sort(boxed, (a, b) -> Long.compare(transactions.getTimestamp(a), transactions.getTimestamp(b)));
+        for (int row = 0; row < size; row++) {
+            rows[row] = boxed[row];
+        }
+        return rows;
+    }
+
+    private void appendToTimeIndex(long timestamp, boolean income, long amount) {
+        if (!timeIndexValid) {
+            return;
+        }
+        if (indexedCount > 0 && timestamp < sortedTimestamps[indexedCount - 1]) {
+            // Запись задним числом: индекс перестраивается при следующем запросе
+            timeIndexValid = false;
+            return;
+        }
+
+        if (indexedCount == sortedTimestamps.length) {
+            int capacity = sortedTimestamps.length * 2;
+            sortedTimestamps = Arrays.copyOf(sortedTimestamps, capacity);
+            incomePrefix = Arrays.copyOf(incomePrefix, capacity + 1);
+            expensePrefix = Arrays.copyOf(expensePrefix, capacity + 1);
+        }
+
+        sortedTimestamps[indexedCount] = timestamp;
+        incomePrefix[indexedCount + 1] = incomePrefix[indexedCount] + (income ? amount : 0);
+        expensePrefix[indexedCount + 1] = expensePrefix[indexedCount] + (income ? 0 : amount);
+        indexedCount++;
+    }
+
+    // Первая позиция с меткой >= from
+    private int lowerBound(long from) {
+        int lo = 0;
+        int hi = indexedCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedTimestamps[mid] < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Первая позиция с меткой > to
+    private int upperBound(long to) {
+        int lo = 0;
+        int hi = indexedCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedTimestamps[mid] <= to) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void accumulate(boolean income, long amount, int categoryId) {
+        if (income) {
+            totalIncome += amount;
+            incomeCount++;
+        } else {
+            totalExpenses += amount;
+            expenseCount++;
+        }
+        if (categoryId >= 0) {
+            totalsFor(categoryId).add(income ? TransactionType.INCOME : TransactionType.EXPENSE, amount);
+        }
+    }
+
+    private CategoryTotals totalsFor(int categoryId) {
+        if (categoryId >= categoryTotals.length) {
+            categoryTotals = Arrays.copyOf(categoryTotals, Math.max(categoryId + 1, categoryTotals.length * 2));
+        }
+        CategoryTotals totals = categoryTotals[categoryId];
+        if (totals == null) {
+            totals = new CategoryTotals();
+            categoryTotals[categoryId] = totals;
+        }
+        return totals;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.financemanager.model;
+
+import java.util.List;
+
+// Запись журнала изменений кошелька
+public class WalletChange {
+    public enum Type {
+        TRANSACTION,
+        TRANSACTIONS,
+        BALANCE,
+        CATEGORY,
+        RENAME_CATEGORY,
+        DELETE_CATEGORY
+    }
+
+    private long seq;
+    private Type type;
+    private Transaction transaction;
+    private List<Transaction> transactions;
+    private String category;
+    private String newCategory;
+    // Баланс или лимит в копейках
+    private long amountKopecks;
+    // Прежний формат журнала: сумма в рублях (double)
+    private Double amount;
+
+    // Конструктор по умолчанию для Gson
+    public WalletChange() {
+    }
+
+    private WalletChange(long seq, Type type) {
+        this.seq = seq;
+        this.type = type;
+    }
+
+    public static WalletChange transaction(long seq, Transaction transaction) {
+        WalletChange change = new WalletChange(seq, Type.TRANSACTION);
+        change.transaction = transaction;
+        return change;
+    }
+
+    // Пакет транзакций (например, импорт) одной записью журнала
+    public static WalletChange transactions(long seq, List<Transaction> transactions) {
+        WalletChange change = new WalletChange(seq, Type.TRANSACTIONS);
+        change.transactions = transactions;
+        return change;
+    }
+
+    public static WalletChange balance(long seq, long balance) {
+        WalletChange change = new WalletChange(seq, Type.BALANCE);
+        change.amountKopecks = balance;
+        return change;
+    }
+
+    public static WalletChange category(long seq, String name, long budgetLimit) {
+        WalletChange change = new WalletChange(seq, Type.CATEGORY);
+        change.category = name;
+        change.amountKopecks = budgetLimit;
+        return change;
+    }
+
+    public static WalletChange renameCategory(long seq, String oldName, String newName) {
+        WalletChange change = new WalletChange(seq, Type.RENAME_CATEGORY);
+        change.category = oldName;
+        change.newCategory = newName;
+        return change;
+    }
+
+    public static WalletChange deleteCategory(long seq, String name, String fallback) {
+        WalletChange change = new WalletChange(seq, Type.DELETE_CATEGORY);
+        change.category = name;
+        change.newCategory = fallback;
+        return change;
+    }
+
+    // Getters
+    public long getSeq() { return seq; }
+    public Type getType() { return type; }
+    public Transaction getTransaction() { return transaction; }
+    public List<Transaction> getTransactions() { return transactions; }
+    public String getCategory() { return category; }
+    public String getNewCategory() { return newCategory; }
+    public long getAmount() { return amount != null ? Money.fromDouble(amount) : amountKopecks; }
+}
@@ -1,23 +1,58 @@
 package com.financemanager.service;
 
+import com.financemanager.model.Session;
 import com.financemanager.model.User;
+import com.financemanager.model.Wallet;
 
+import java.util.Locale;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AuthService {
-    private Map<String, User> users;
-    private FileService fileService;
-    private User currentUser;
+    // Разобранные при обращении и зарегистрированные после запуска учетные записи
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    // Учетные записи, сохраненные к запуску; разбираются по одной при входе
+    private UserIndex index;
+    private StorageBackend storage;
+    private WalletCache walletCache;
+    private final PasswordHasher hasher;
+    // Ограничивает число проверок пароля и ответа на секретный вопрос по каждому логину
+    private final LoginRateLimiter rateLimiter;
+    // Хеш для проверки пароля несуществующего логина, чтобы отказ стоил столько же, сколько неверный пароль
+    private volatile String dummyHash;
+    // Сессия консольного интерфейса; остальные клиенты держат свои сессии сами
+    private volatile Session currentSession;
 
-    public AuthService(FileService fileService) {
-        this.fileService = fileService;
+    public AuthService(StorageBackend storage) {
+        this(storage, new WalletCache(storage));
+    }
+
+    public AuthService(StorageBackend storage, WalletCache walletCache) {
+        this(storage, walletCache, new PasswordHasher(), new LoginRateLimiter());
+    }
+
+    public AuthService(StorageBackend storage, WalletCache walletCache, PasswordHasher hasher,
+                       LoginRateLimiter rateLimiter) {
+        this.storage = storage;
+        this.walletCache = walletCache;
+        this.hasher = hasher;
+        this.rateLimiter = rateLimiter;
         try {
-            this.users = fileService.loadUsers();
+            this.index = storage.openUserIndex();
         } catch (Exception e) {
             System.out.println("Ошибка при загрузке пользователей: " + e.getMessage());
             e.printStackTrace();
-            this.users = new HashMap<>();
+            this.index = UserIndex.of(Map.of());
+        }
+    }
+
+    private User findUser(String username) {
+        try {
+            return users.computeIfAbsent(username.trim(), index::load);
+        } catch (Exception e) {
+            System.out.println("Ошибка при загрузке пользователя " + username + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
         }
     }
 
@@ -45,20 +80,24 @@ public class AuthService {
     }
 
     public boolean isUserExists(String username) {
-        return users.containsKey(username.trim());
+        username = username.trim();
+        return users.containsKey(username) || index.contains(username);
     }
 
     public User getUser(String username) {
-        return users.get(username.trim());
+        return findUser(username);
     }
 
     public boolean setSecretQuestion(String username, String question, String answer) {
-        User user = users.get(username.trim());
+        User user = findUser(username);
         if (user != null) {
-            user.setSecretQuestion(question);
-            user.setSecretAnswer(answer);
             try {
-                fileService.saveUsers(users);
+                String answerHash = hasher.hash(normalizeAnswer(answer));
+                synchronized (user) {
+                    user.setSecretQuestion(question);
+                    user.setSecretAnswer(answerHash);
+                    storage.saveUser(user);
+                }
                 return true;
             } catch (Exception e) {
                 System.out.println("Ошибка при сохранении секретного вопроса: " + e.getMessage());
@@ -70,16 +109,31 @@ public class AuthService {
     }
 
     public boolean resetPassword(String username, String answer, String newPassword) {
-        User user = users.get(username.trim());
+        username = username.trim();
+        User user = findUser(username);
         if (user != null) {
-            if (user.getSecretAnswer() != null && user.getSecretAnswer().equalsIgnoreCase(answer.trim())) {
+            if (!rateLimiter.tryAcquire(username)) {
+                System.out.println("Слишком много попыток для '" + username + "'. Повторите позже.");
+                return false;
+            }
+            String storedAnswer = user.getSecretAnswer();
+            if (checkAnswer(storedAnswer, answer)) {
+                rateLimiter.recordSuccess(username);
                 if (newPassword.length() < 3) {
                     System.out.println("Пароль должен содержать минимум 3 символа!");
                     return false;
                 }
-                user.setPassword(newPassword);
                 try {
-                    fileService.saveUsers(users);
+                    String passwordHash = hasher.hash(newPassword);
+                    // Ответ, сохраненный до хеширования, заменяется хешем заодно с паролем
+                    String answerHash = PasswordHasher.isHashed(storedAnswer) ? null : hasher.hash(normalizeAnswer(answer));
+                    synchronized (user) {
+                        user.setPassword(passwordHash);
+                        if (answerHash != null && storedAnswer.equals(user.getSecretAnswer())) {
+                            user.setSecretAnswer(answerHash);
+                        }
+                        storage.saveUser(user);
+                    }
                     System.out.println("Пароль успешно изменен!");
                     return true;
                 } catch (Exception e) {
@@ -98,12 +152,12 @@ public class AuthService {
     }
 
     public boolean hasSecretQuestion(String username) {
-        User user = users.get(username.trim());
+        User user = findUser(username);
         return user != null && user.getSecretQuestion() != null && !user.getSecretQuestion().isEmpty();
     }
 
     public String getSecretQuestion(String username) {
-        User user = users.get(username.trim());
+        User user = findUser(username);
         if (user != null && user.getSecretQuestion() != null && !user.getSecretQuestion().isEmpty()) {
             return user.getSecretQuestion();
         }
@@ -118,13 +172,23 @@ public class AuthService {
             return false;
         }
 
-        User newUser = new User(username, password);
-        users.put(username, newUser);
+        // Занятый логин отклоняется до хеширования пароля
+        if (isUserExists(username)) {
+            System.out.println("Пользователь '" + username + "' уже существует!");
+            return false;
+        }
+
+        User newUser = new User(username, hasher.hash(password));
+        // Одновременная регистрация одного логина: выигрывает первый
+        if (index.contains(username) || users.putIfAbsent(username, newUser) != null) {
+            System.out.println("Пользователь '" + username + "' уже существует!");
+            return false;
+        }
 
         try {
-            fileService.saveUsers(users);
+            storage.saveUser(newUser);
             // Создаем отдельный файл для кошелька пользователя
-            fileService.saveWallet(newUser.getWallet(), username);
+            storage.saveWalletSnapshot(newUser.getWallet(), username);
             System.out.println("Пользователь '" + username + "' успешно зарегистрирован!");
             return true;
         } catch (Exception e) {
@@ -135,48 +199,154 @@ public class AuthService {
         }
     }
 
-    public boolean login(String username, String password) {
+    // Открывает сессию пользователя или возвращает null при неверных данных
+    public Session openSession(String username, String password) {
         username = username.trim();
 
-        User user = users.get(username);
+        User user = authenticate(username, password);
         if (user != null) {
-            if (user.getPassword().equals(password)) {
-                // Загружаем актуальный кошелек пользователя
-                user.setWallet(fileService.loadWallet(username));
-                currentUser = user;
-                System.out.println("Добро пожаловать, " + username + "!");
-                return true;
+            // Загружаем актуальный кошелек пользователя и удерживаем его в кэше до закрытия сессии
+            Wallet wallet = walletCache.acquire(username);
+            user.setWallet(wallet);
+            return new Session(user, wallet);
+        }
+
+        return null;
+    }
+
+    // Проверяет пароль без открытия сессии; null при неверных данных или исчерпанных попытках
+    public User authenticate(String username, String password) {
+        username = username.trim();
+
+        // Попытки учитываются и для несуществующих логинов: их нельзя перебирать без ограничения
+        if (!rateLimiter.tryAcquire(username)) {
+            System.out.println("Слишком много попыток входа для '" + username + "'. Повторите позже.");
+            return null;
+        }
+        User user = findUser(username);
+        if (user == null) {
+            // Столько же работы, сколько при проверке пароля: по времени отказа логин не отличить
+            String dummy = dummyHash;
+            if (dummy == null) {
+                dummyHash = hasher.hash(password);
             } else {
-                System.out.println("Неверный пароль!");
+                hasher.verify(password, dummy);
             }
-        } else {
             System.out.println("Пользователь '" + username + "' не найден!");
+            return null;
+        }
+        String storedPassword = user.getPassword();
+        if (!hasher.verify(password, storedPassword)) {
+            System.out.println("Неверный пароль!");
+            return null;
         }
+        rateLimiter.recordSuccess(username);
+        upgradeSecrets(user, storedPassword, password);
+        return user;
+    }
 
-        return false;
+    // Записи, сохраненные до хеширования, переводятся на хеши при первом успешном входе,
+    // а хеши с другим числом итераций пересчитываются под текущую настройку
+    private void upgradeSecrets(User user, String storedPassword, String password) {
+        String storedAnswer = user.getSecretAnswer();
+        boolean hashAnswer = storedAnswer != null && !storedAnswer.isEmpty() && !PasswordHasher.isHashed(storedAnswer);
+        if (!hasher.needsRehash(storedPassword) && !hashAnswer) {
+            return;
+        }
+        String passwordHash = hasher.needsRehash(storedPassword) ? hasher.hash(password) : null;
+        String answerHash = hashAnswer ? hasher.hash(normalizeAnswer(storedAnswer)) : null;
+        try {
+            synchronized (user) {
+                // Пароль или ответ могли смениться, пока считались хеши: новые значения не затираем
+                if (passwordHash != null && storedPassword.equals(user.getPassword())) {
+                    user.setPassword(passwordHash);
+                }
+                if (answerHash != null && storedAnswer.equals(user.getSecretAnswer())) {
+                    user.setSecretAnswer(answerHash);
+                }
+                storage.saveUser(user);
+            }
+        } catch (Exception e) {
+            System.out.println("Ошибка при сохранении учетной записи: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private boolean checkAnswer(String storedAnswer, String answer) {
+        if (storedAnswer == null || storedAnswer.isEmpty()) {
+            return false;
+        }
+        // Ответ без хеша сравнивается без учета регистра, как и хешированный
+        return hasher.verify(normalizeAnswer(answer),
+                PasswordHasher.isHashed(storedAnswer) ? storedAnswer : normalizeAnswer(storedAnswer));
+    }
+
+    private static String normalizeAnswer(String answer) {
+        return answer.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public void closeSession(Session session) {
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+        session.close();
+        try {
+            // Сохраняем кошелек пользователя
+            walletCache.flush(session.getUsername());
+        } finally {
+            walletCache.release(session.getUsername());
+        }
+    }
+
+    public boolean login(String username, String password) {
+        Session session = openSession(username, password);
+        if (session == null) {
+            return false;
+        }
+        currentSession = session;
+        System.out.println("Добро пожаловать, " + session.getUsername() + "!");
+        return true;
     }
 
     public void logout() {
-        if (currentUser != null) {
+        Session session = currentSession;
+        if (session != null) {
             try {
-                // Сохраняем кошелек пользователя
-                fileService.saveWallet(currentUser.getWallet(), currentUser.getUsername());
-                // Сохраняем данные пользователей
-                fileService.saveUsers(users);
-                System.out.println("До свидания, " + currentUser.getUsername() + "!");
+                closeSession(session);
+                System.out.println("До свидания, " + session.getUsername() + "!");
             } catch (Exception e) {
                 System.out.println("Ошибка при сохранении данных: " + e.getMessage());
             } finally {
-                currentUser = null;
+                currentSession = null;
             }
         }
     }
 
+    public Session getCurrentSession() {
+        return currentSession;
+    }
+
     public User getCurrentUser() {
-        return currentUser;
+        Session session = currentSession;
+        return session != null ? session.getUser() : null;
+    }
+
+    public WalletCache getWalletCache() {
+        return walletCache;
     }
 
+    // Только уже разобранные и новые учетные записи; остальные читаются из индекса при обращении
     public Map<String, User> getUsers() {
         return users;
     }
+
+    public int getUserCount() {
+        int count = index.size();
+        for (String username : users.keySet()) {
+            if (!index.contains(username)) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.financemanager.service;
+
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+// Потоковый экспорт транзакций в CSV: строки пишутся сразу в буферизованный поток,
+// поэтому память не зависит от размера истории. Файлы *.gz сжимаются gzip.
+public class CsvExporter {
+    public static final String HEADER = "ID,Дата,Тип,Категория,Сумма,Описание";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final char[] digits = new char[20];
+    private final byte[] digitBytes = new byte[23];
+
+    // Возвращает число записанных строк
+    public long export(Wallet wallet, Path path) throws IOException {
+        OutputStream out = open(path);
+
+        long rows = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            TransactionStore transactions = wallet.getTransactions();
+            for (int row = 0; row < transactions.size(); row++) {
+                writeField(writer, transactions.getId(row));
+                writer.write(',');
+                writeField(writer, transactions.getDate(row));
+                writer.write(',');
+                TransactionType type = transactions.getType(row);
+                if (type != null) {
+                    writer.write(type.name());
+                }
+                writer.write(',');
+                writeField(writer, transactions.getCategory(row));
+                writer.write(',');
+                writeAmount(writer, transactions.getAmount(row));
+                writer.write(',');
+                writeField(writer, transactions.getDescription(row));
+                writer.write('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    // Тот же CSV по отчетному представлению: UTF-8 идентификаторов и описаний копируется из отображенного
+    // файла прямо в поток, а числа и даты пишутся цифрами в буфер, без объектов на строку
+    public long export(WalletReportView view, Path path) throws IOException {
+        byte[][] categories = new byte[view.getCategoryCount()][];
+        for (int categoryId = 0; categoryId < categories.length; categoryId++) {
+            String name = view.getCategoryName(categoryId);
+            categories[categoryId] = name != null ? name.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        }
+        byte[] income = TransactionType.INCOME.name().getBytes(StandardCharsets.US_ASCII);
+        byte[] expense = TransactionType.EXPENSE.name().getBytes(StandardCharsets.US_ASCII);
+        byte[] incomePrefix = "INC_".getBytes(StandardCharsets.US_ASCII);
+        byte[] expensePrefix = "EXP_".getBytes(StandardCharsets.US_ASCII);
+        byte[] text = new byte[256];
+
+        long rows = 0;
+        try (OutputStream out = new BufferedOutputStream(open(path), BUFFER_SIZE)) {
+            out.write(HEADER.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+            WalletReportView.Cursor cursor = view.cursor();
+            while (cursor.next()) {
+                if (cursor.hasTextId()) {
+                    int length = (int) cursor.getIdNumber();
+                    text = ensureLength(text, length);
+                    cursor.copyTextId(text);
+                    writeField(out, text, length);
+                } else {
+                    out.write(cursor.hasIncomeIdPrefix() ? incomePrefix : expensePrefix);
+                    writeNumber(out, cursor.getIdNumber());
+                }
+                out.write(',');
+                if (cursor.hasDate()) {
+                    writeDate(out, cursor.getTimestamp());
+                }
+                out.write(',');
+                TransactionType type = cursor.getType();
+                if (type != null) {
+                    out.write(type == TransactionType.INCOME ? income : expense);
+                }
+                out.write(',');
+                if (cursor.getCategoryId() >= 0) {
+                    byte[] category = categories[cursor.getCategoryId()];
+                    writeField(out, category, category.length);
+                }
+                out.write(',');
+                writeAmount(out, cursor.getAmount());
+                out.write(',');
+                if (cursor.hasDescription()) {
+                    int length = cursor.getDescriptionLength();
+                    text = ensureLength(text, length);
+                    cursor.copyDescription(text);
+                    writeField(out, text, length);
+                }
+                out.write('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static OutputStream open(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path);
+        if (path.getFileName().toString().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return out;
+    }
+
+    private static byte[] ensureLength(byte[] buffer, int length) {
+        return length <= buffer.length ? buffer : new byte[Math.max(length, buffer.length * 2)];
+    }
+
+    // Поле берется в кавычки, только если содержит запятую, кавычку или перевод строки
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    // Два знака после точки независимо от локали, без String.format
+    private void writeAmount(Writer writer, long amount) throws IOException {
+        long cents = Math.abs(amount);
+        int position = digits.length;
+        digits[--position] = (char) ('0' + cents % 10);
+        cents /= 10;
+        digits[--position] = (char) ('0' + cents % 10);
+        cents /= 10;
+        digits[--position] = '.';
+        do {
+            digits[--position] = (char) ('0' + cents % 10);
+            cents /= 10;
+        } while (cents > 0);
+        if (amount < 0) {
+            digits[--position] = '-';
+        }
+        writer.write(digits, position, digits.length - position);
+    }
+
+    // Байтовые варианты для экспорта по отчетному представлению; в UTF-8 запятая, кавычка
+    // и перевод строки - однобайтовые и не встречаются внутри многобайтовых символов
+    private static void writeField(OutputStream out, byte[] value, int length) throws IOException {
+        boolean needsQuotes = false;
+        for (int i = 0; i < length; i++) {
+            byte b = value[i];
+            if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            out.write(value, 0, length);
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < length; i++) {
+            if (value[i] == '"') {
+                out.write('"');
+            }
+            out.write(value[i]);
+        }
+        out.write('"');
+    }
+
+    private void writeAmount(OutputStream out, long amount) throws IOException {
+        long cents = Math.abs(amount);
+        int position = digitBytes.length;
+        digitBytes[--position] = (byte) ('0' + cents % 10);
+        cents /= 10;
+        digitBytes[--position] = (byte) ('0' + cents % 10);
+        cents /= 10;
+        digitBytes[--position] = '.';
+        do {
+            digitBytes[--position] = (byte) ('0' + cents % 10);
+            cents /= 10;
+        } while (cents > 0);
+        if (amount < 0) {
+            digitBytes[--position] = '-';
+        }
+        out.write(digitBytes, position, digitBytes.length - position);
+    }
+
+    private void writeNumber(OutputStream out, long value) throws IOException {
+        int position = digitBytes.length;
+        do {
+            digitBytes[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        out.write(digitBytes, position, digitBytes.length - position);
+    }
+
+    // Та же запись, что TransactionStore.getDate, цифрами в общий буфер
+    private void writeDate(OutputStream out, long timestamp) throws IOException {
+        int length = TransactionStore.formatDate(timestamp, digitBytes);
+        if (length < 0) {
+            out.write(TransactionStore.formatDate(timestamp).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        out.write(digitBytes, 0, length);
+    }
+}
@@ -0,0 +1,289 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Money;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// Потоковый разбор CSV в формате exportToCSV: ID,Дата,Тип,Категория,Сумма,Описание.
+// Поля в кавычках разбираются по RFC 4180; описание без кавычек занимает остаток строки
+// (так выглядели файлы, экспортированные до появления CsvExporter). Файл читается пакетами строк
+// (open, nextChunk), так что в памяти одновременно находится не больше одного пакета.
+public class CsvImporter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FIELD_COUNT = 6;
+    private static final int AMOUNT_FIELD = 4;
+    private static final int DESCRIPTION_FIELD = 5;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder();
+    // Одинаковые категории разделяют один экземпляр строки
+    private final Map<String, String> categoryNames = new HashMap<>();
+    private Reader reader;
+    private int position;
+    private int limit;
+    private long lineNumber;
+    private long amount;
+    private final String[] row = new String[FIELD_COUNT];
+
+    // Все строки файла одним списком
+    public List<Transaction> parse(Path path) throws IOException {
+        try {
+            open(path);
+            return nextChunk(Integer.MAX_VALUE);
+        } finally {
+            close();
+        }
+    }
+
+    public void open(Path path) throws IOException {
+        close();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            reader = openReader(channel, path);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        position = 0;
+        limit = 0;
+        lineNumber = 0;
+        categoryNames.clear();
+
+        if (peek() == '\uFEFF') {
+            position++;
+        }
+        if (isHeader()) {
+            skipLine();
+        }
+    }
+
+    // Следующие строки файла, не больше maxRows; пустой список - файл прочитан
+    public List<Transaction> nextChunk(int maxRows) throws IOException {
+        List<Transaction> transactions = new ArrayList<>(Math.min(maxRows, 1024));
+        while (transactions.size() < maxRows && peek() != -1) {
+            lineNumber++;
+            if (peek() == '\n' || peek() == '\r') {
+                skipLine();
+                continue;
+            }
+            readRow(row);
+            transactions.add(toTransaction(row));
+        }
+        return transactions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            try {
+                reader.close();
+            } finally {
+                reader = null;
+            }
+        }
+    }
+
+    // Файлы *.gz, созданные экспортом, читаются с распаковкой
+    private static Reader openReader(FileChannel channel, Path path) throws IOException {
+        if (path.getFileName().toString().endsWith(".gz")) {
+            return new InputStreamReader(new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE),
+                    StandardCharsets.UTF_8);
+        }
+        return Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE);
+    }
+
+    private void readRow(String[] row) throws IOException {
+        int index = 0;
+        int terminator = ',';
+        while (terminator == ',' && index < FIELD_COUNT) {
+            field.setLength(0);
+            terminator = peek() == '"' ? readQuoted() : readPlain(index == DESCRIPTION_FIELD);
+            if (index == AMOUNT_FIELD) {
+                amount = parseAmount();
+            } else {
+                row[index] = field.toString();
+            }
+            index++;
+        }
+
+        if (terminator == ',') {
+            throw error("лишние поля после описания");
+        }
+        if (index < DESCRIPTION_FIELD) {
+            throw error("ожидалось не менее " + DESCRIPTION_FIELD + " полей, найдено " + index);
+        }
+        if (index == DESCRIPTION_FIELD) {
+            row[DESCRIPTION_FIELD] = "";
+        }
+    }
+
+    private int readPlain(boolean untilEndOfLine) throws IOException {
+        while (true) {
+            int c = next();
+            if (c == -1 || c == '\n') {
+                return '\n';
+            }
+            if (c == '\r') {
+                if (peek() == '\n') {
+                    position++;
+                }
+                return '\n';
+            }
+            if (c == ',' && !untilEndOfLine) {
+                return ',';
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int readQuoted() throws IOException {
+        position++;
+        while (true) {
+            int c = next();
+            if (c == -1) {
+                throw error("незакрытая кавычка");
+            }
+            if (c == '"') {
+                if (peek() == '"') {
+                    position++;
+                    field.append('"');
+                    continue;
+                }
+                int terminator = next();
+                if (terminator == '\r' && peek() == '\n') {
+                    position++;
+                }
+                if (terminator == -1 || terminator == '\r') {
+                    return '\n';
+                }
+                if (terminator != ',' && terminator != '\n') {
+                    throw error("лишние символы после закрывающей кавычки");
+                }
+                return terminator;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private Transaction toTransaction(String[] row) {
+        TransactionType type;
+        if ("INCOME".equals(row[2])) {
+            type = TransactionType.INCOME;
+        } else if ("EXPENSE".equals(row[2])) {
+            type = TransactionType.EXPENSE;
+        } else {
+            throw error("неизвестный тип операции '" + row[2] + "'");
+        }
+
+        String category = categoryNames.computeIfAbsent(row[3], k -> k);
+        if (amount <= 0) {
+            throw error("сумма должна быть положительной");
+        }
+
+        try {
+            if (row[1].isEmpty()) {
+                return new Transaction(row[0], amount, type, category, row[DESCRIPTION_FIELD]);
+            }
+            return new Transaction(row[0], amount, type, category, row[DESCRIPTION_FIELD], row[1]);
+        } catch (RuntimeException e) {
+            throw error("некорректная дата '" + row[1] + "'");
+        }
+    }
+
+    // Разбор суммы в копейки без создания строки: целая часть, затем до двух знаков через '.' или ','
+    private long parseAmount() {
+        int length = field.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (field.charAt(i) == '-' || field.charAt(i) == '+')) {
+            negative = field.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int scale = -1;
+        int digits = 0;
+        for (; i < length; i++) {
+            char c = field.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == 16) {
+                    throw error("слишком длинная сумма '" + field + "'");
+                }
+                if (scale == 2) {
+                    throw error("больше двух знаков после запятой в сумме '" + field + "'");
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if ((c == '.' || c == ',') && scale < 0) {
+                scale = 0;
+            } else if (c != ' ') {
+                throw error("некорректная сумма '" + field + "'");
+            }
+        }
+        if (digits == 0) {
+            throw error("пустая сумма");
+        }
+
+        long value = scale == 2 ? mantissa : scale == 1 ? mantissa * 10 : mantissa * Money.KOPECKS_PER_RUBLE;
+        return negative ? -value : value;
+    }
+
+    // Заголовок экспорта начинается с "ID,"
+    private boolean isHeader() throws IOException {
+        return peek() == 'I' && limit - position >= 3
+                && buffer[position + 1] == 'D' && buffer[position + 2] == ',';
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c != -1 && c != '\n');
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Строка " + lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,607 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Category;
+import com.financemanager.model.CategoryDictionary;
+import com.financemanager.model.CategoryTotals;
+import com.financemanager.model.PeriodTotals;
+import com.financemanager.model.StatisticsReport;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Transfer;
+import com.financemanager.model.User;
+import com.financemanager.model.Wallet;
+import com.financemanager.model.WalletChange;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Хранилище во встроенной базе H2 (файл data/finance.mv.db, без сервера). Транзакции кошелька -
+// строки таблицы с индексами (пользователь, дата) и (пользователь, категория), поэтому итоги за период
+// и по категориям считаются запросами SQL без загрузки кошелька. Сохранение дописывает только новые
+// строки пакетами; переименование и удаление категорий переписывают категорию в уже записанных строках.
+// Учетные записи и переводы хранятся как JSON в одном столбце, как в журналах FileService.
+public class DatabaseStorage implements StorageBackend {
+    private static final int BATCH_SIZE = 1000;
+    private static final int IDLE_CONNECTIONS = 8;
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS users (username VARCHAR PRIMARY KEY, data VARCHAR NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS wallets (username VARCHAR PRIMARY KEY, balance BIGINT NOT NULL, "
+                    + "version BIGINT NOT NULL, row_count INT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS categories (username VARCHAR NOT NULL, name VARCHAR NOT NULL, "
+                    + "budget_limit BIGINT NOT NULL, PRIMARY KEY (username, name))",
+            "CREATE TABLE IF NOT EXISTS transactions (username VARCHAR NOT NULL, row_no INT NOT NULL, "
+                    + "text_id VARCHAR, id_number BIGINT NOT NULL, income_prefix BOOLEAN NOT NULL, type VARCHAR, "
+                    + "income BOOLEAN NOT NULL, amount BIGINT NOT NULL, category VARCHAR, description VARCHAR, "
+                    + "ts BIGINT NOT NULL, has_date BOOLEAN NOT NULL, PRIMARY KEY (username, row_no))",
+            // Индексы покрывают сумму и тип, поэтому итоги считаются по индексу без чтения строк таблицы
+            "CREATE INDEX IF NOT EXISTS transactions_user_date ON transactions (username, ts, income, amount)",
+            "CREATE INDEX IF NOT EXISTS transactions_user_category ON transactions "
+                    + "(username, category, income, amount)",
+            "CREATE TABLE IF NOT EXISTS transfers (seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "data VARCHAR NOT NULL)"
+    };
+    private static final String INSERT_TRANSACTION = "INSERT INTO transactions (username, row_no, text_id, "
+            + "id_number, income_prefix, type, income, amount, category, description, ts, has_date) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final String url;
+    private final Gson gson;
+    // Открытые соединения между запросами; пока хотя бы одно открыто, база не закрывается
+    private final BlockingQueue<Connection> idle = new ArrayBlockingQueue<>(IDLE_CONNECTIONS);
+    // Объем журнала переводов: считается запросом один раз при открытии, дальше ведется при записи
+    private final AtomicLong transfersSize = new AtomicLong();
+
+    public DatabaseStorage(String dataDir, DurabilityMode durabilityMode) {
+        new File(dataDir).mkdirs();
+        // Без отложенной записи каждая фиксация сразу попадает в файл базы. База не закрывается
+        // собственным обработчиком завершения H2: при выходе ее закрывает close() после записи кошельков
+        this.url = "jdbc:h2:file:" + new File(dataDir, "finance").getAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE"
+                + (durabilityMode == DurabilityMode.NONE ? "" : ";WRITE_DELAY=0");
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(Transaction.class, new TransactionAdapter())
+                .disableHtmlEscaping()
+                .create();
+        inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            return null;
+        });
+        Long size = inTransaction(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT COALESCE(SUM(LENGTH(data)), 0) FROM transfers")) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        });
+        transfersSize.set(size != null ? size : 0);
+    }
+
+    @Override
+    public Map<String, User> loadUsers() {
+        Map<String, User> loaded = inTransaction(connection -> {
+            Map<String, User> users = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT data FROM users")) {
+                while (rows.next()) {
+                    User user = gson.fromJson(rows.getString(1), User.class);
+                    users.put(user.getUsername(), user);
+                }
+            }
+            return users;
+        });
+        return loaded != null ? loaded : new HashMap<>();
+    }
+
+    @Override
+    public User loadUser(String username) {
+        return inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT data FROM users WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? gson.fromJson(rows.getString(1), User.class) : null;
+                }
+            }
+        });
+    }
+
+    // Учетная запись читается по первичному ключу при обращении; при запуске считается только их число
+    @Override
+    public UserIndex openUserIndex() {
+        Integer count = inTransaction(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM users")) {
+                return rows.next() ? rows.getInt(1) : 0;
+            }
+        });
+        int size = count != null ? count : 0;
+        return new UserIndex() {
+            @Override
+            public int size() { return size; }
+
+            @Override
+            public boolean contains(String username) { return loadUser(username) != null; }
+
+            @Override
+            public User load(String username) { return loadUser(username); }
+        };
+    }
+
+    @Override
+    public void saveUsers(Map<String, User> users) {
+        inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM users");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO users VALUES (?, ?)")) {
+                int pending = 0;
+                for (User user : users.values()) {
+                    statement.setString(1, user.getUsername());
+                    statement.setString(2, gson.toJson(user));
+                    statement.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void saveUser(User user) {
+        inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("MERGE INTO users KEY (username) VALUES (?, ?)")) {
+                statement.setString(1, user.getUsername());
+                statement.setString(2, gson.toJson(user));
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Wallet loadWallet(String username) {
+        // При ошибке базы - пустой кошелек, как у FileService; затереть историю он не даст (см. saveWallet)
+        Wallet loaded = inTransaction(connection -> {
+            long balance;
+            long version;
+            int rowCount;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT balance, version, row_count FROM wallets WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet rows = statement.executeQuery()) {
+                    if (!rows.next()) {
+                        return new Wallet();
+                    }
+                    balance = rows.getLong(1);
+                    version = rows.getLong(2);
+                    rowCount = rows.getInt(3);
+                }
+            }
+
+            Map<String, Category> categories = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT name, budget_limit FROM categories WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        categories.put(rows.getString(1), new Category(rows.getString(1), rows.getLong(2)));
+                    }
+                }
+            }
+
+            TransactionStore transactions = new TransactionStore();
+            transactions.ensureCapacity(rowCount);
+            CategoryDictionary dictionary = transactions.getCategoryDictionary();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT text_id, id_number, "
+                    + "income_prefix, type, amount, category, description, ts, has_date FROM transactions "
+                    + "WHERE username = ? ORDER BY row_no")) {
+                statement.setString(1, username);
+                statement.setFetchSize(BATCH_SIZE);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        String type = rows.getString(4);
+                        String category = rows.getString(6);
+                        transactions.addRow(rows.getString(1), rows.getLong(2), rows.getBoolean(3),
+                                type != null ? TransactionType.valueOf(type) : null, rows.getLong(5),
+                                category != null ? dictionary.intern(category) : -1, rows.getString(7),
+                                rows.getLong(8), rows.getBoolean(9));
+                    }
+                }
+            }
+
+            Wallet wallet = new Wallet();
+            wallet.restoreSnapshot(balance, categories, transactions, version);
+            wallet.rebuildAggregates();
+            return wallet;
+        });
+        return loaded != null ? loaded : new Wallet();
+    }
+
+    @Override
+    public void saveWallet(Wallet wallet, String username) {
+        saveWallet(wallet, username, false);
+    }
+
+    @Override
+    public void saveWalletSnapshot(Wallet wallet, String username) {
+        saveWallet(wallet, username, true);
+    }
+
+    private void saveWallet(Wallet wallet, String username, boolean rewrite) {
+        List<WalletChange> changes = wallet.getPendingChanges();
+        TransactionStore transactions = wallet.getTransactions();
+        Boolean saved = inTransaction(connection -> {
+            int storedRows = -1;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT row_count FROM wallets WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet rows = statement.executeQuery()) {
+                    if (rows.next()) {
+                        storedRows = rows.getInt(1);
+                    }
+                }
+            }
+            if (!rewrite && storedRows > transactions.size()) {
+                // В базе больше строк, чем в кошельке: кошелек загружен не полностью, историю не затираем
+                System.out.println("Кошелек пользователя " + username + " в базе длиннее загруженного, "
+                        + "сохранение пропущено");
+                return false;
+            }
+
+            boolean categoriesChanged = rewrite || storedRows < 0;
+            if (categoriesChanged) {
+                deleteWalletRows(connection, "transactions", username);
+                storedRows = 0;
+            }
+            for (WalletChange change : changes) {
+                switch (change.getType()) {
+                    case CATEGORY -> categoriesChanged = true;
+                    case RENAME_CATEGORY, DELETE_CATEGORY -> {
+                        // Строки, записанные до этого сохранения; новые уже несут текущее название
+                        reassignCategory(connection, username, change.getCategory(), change.getNewCategory(),
+                                storedRows);
+                        categoriesChanged = true;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            insertTransactions(connection, username, transactions, storedRows);
+            if (categoriesChanged) {
+                saveCategories(connection, username, wallet.getCategories());
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "MERGE INTO wallets KEY (username) VALUES (?, ?, ?, ?)")) {
+                statement.setString(1, username);
+                statement.setLong(2, wallet.getBalance());
+                statement.setLong(3, wallet.getVersion());
+                statement.setInt(4, transactions.size());
+                statement.executeUpdate();
+            }
+            return true;
+        });
+        if (saved != null && saved) {
+            wallet.clearPendingChanges(changes.size());
+        }
+    }
+
+    private static void deleteWalletRows(Connection connection, String table, String username) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM " + table + " WHERE username = ?")) {
+            statement.setString(1, username);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void reassignCategory(Connection connection, String username, String from, String to,
+                                         int storedRows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE transactions SET category = ? "
+                + "WHERE username = ? AND category = ? AND row_no < ?")) {
+            statement.setString(1, to);
+            statement.setString(2, username);
+            statement.setString(3, from);
+            statement.setInt(4, storedRows);
+            statement.executeUpdate();
+        }
+    }
+
+    // Строки с номера firstRow пакетами по BATCH_SIZE (импорт добавляет тысячи строк одним сохранением)
+    private static void insertTransactions(Connection connection, String username, TransactionStore transactions,
+                                           int firstRow) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_TRANSACTION)) {
+            int pending = 0;
+            for (int row = firstRow; row < transactions.size(); row++) {
+                boolean textId = transactions.hasTextId(row);
+                TransactionType type = transactions.getType(row);
+                statement.setString(1, username);
+                statement.setInt(2, row);
+                statement.setString(3, textId ? transactions.getId(row) : null);
+                statement.setLong(4, textId ? 0 : transactions.getIdNumber(row));
+                statement.setBoolean(5, transactions.hasIncomeIdPrefix(row));
+                statement.setString(6, type != null ? type.name() : null);
+                statement.setBoolean(7, transactions.isIncome(row));
+                statement.setLong(8, transactions.getAmount(row));
+                statement.setString(9, transactions.getCategory(row));
+                statement.setString(10, transactions.getDescription(row));
+                statement.setLong(11, transactions.getTimestamp(row));
+                statement.setBoolean(12, transactions.hasDate(row));
+                statement.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private static void saveCategories(Connection connection, String username, Map<String, Category> categories)
+            throws SQLException {
+        deleteWalletRows(connection, "categories", username);
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO categories VALUES (?, ?, ?)")) {
+            for (Category category : categories.values()) {
+                statement.setString(1, username);
+                statement.setString(2, category.getName());
+                statement.setLong(3, category.getBudgetLimit());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @Override
+    public void appendTransfer(Transfer transfer) throws IOException {
+        String data = gson.toJson(transfer);
+        Boolean saved = inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO transfers (data) VALUES (?)")) {
+                statement.setString(1, data);
+                statement.executeUpdate();
+            }
+            return true;
+        });
+        if (saved == null) {
+            throw new IOException("Не удалось записать перевод в базу данных");
+        }
+        transfersSize.addAndGet(data.length());
+    }
+
+    @Override
+    public List<Transfer> loadTransfers() {
+        List<Transfer> transfers = inTransaction(connection -> {
+            List<Transfer> loaded = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT data FROM transfers ORDER BY seq")) {
+                while (rows.next()) {
+                    loaded.add(gson.fromJson(rows.getString(1), Transfer.class));
+                }
+            }
+            return loaded;
+        });
+        return transfers != null ? transfers : new ArrayList<>();
+    }
+
+    @Override
+    public long getTransfersJournalSize() {
+        return transfersSize.get();
+    }
+
+    @Override
+    public void clearTransfers() {
+        Boolean cleared = inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM transfers");
+            }
+            return true;
+        });
+        if (cleared != null) {
+            transfersSize.set(0);
+        }
+    }
+
+    @Override
+    public boolean supportsQueries() { return true; }
+
+    // Та же статистика, что TransactionService.buildStatisticsReport; null, если кошелек не сохранен
+    @Override
+    public StatisticsReport queryStatistics(String username) {
+        return inTransaction(connection -> {
+            long balance;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT balance FROM wallets WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet rows = statement.executeQuery()) {
+                    if (!rows.next()) {
+                        return null;
+                    }
+                    balance = rows.getLong(1);
+                }
+            }
+
+            Map<String, Category> categories = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT name, budget_limit FROM categories WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        categories.put(rows.getString(1), new Category(rows.getString(1), rows.getLong(2)));
+                    }
+                }
+            }
+
+            Map<String, CategoryTotals> totals = queryTotals(connection, username, null);
+            long totalIncome = 0;
+            long totalExpenses = 0;
+            int incomeCount = 0;
+            int expenseCount = 0;
+            for (CategoryTotals categoryTotals : totals.values()) {
+                totalIncome += categoryTotals.getIncome();
+                totalExpenses += categoryTotals.getExpenses();
+                incomeCount += categoryTotals.getIncomeCount();
+                expenseCount += categoryTotals.getExpenseCount();
+            }
+
+            List<StatisticsReport.CategoryStatistics> statistics = new ArrayList<>(categories.size());
+            for (Category category : categories.values()) {
+                statistics.add(new StatisticsReport.CategoryStatistics(category.getName(), category.getBudgetLimit(),
+                        totals.getOrDefault(category.getName(), new CategoryTotals())));
+            }
+            return new StatisticsReport(totalIncome, totalExpenses, balance, incomeCount, expenseCount, statistics);
+        });
+    }
+
+    @Override
+    public PeriodTotals queryPeriodTotals(String username, long from, long to) {
+        return inTransaction(connection -> {
+            long income = 0;
+            long expenses = 0;
+            int count = 0;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT income, SUM(amount), COUNT(*) "
+                    + "FROM transactions WHERE username = ? AND ts BETWEEN ? AND ? GROUP BY income")) {
+                statement.setString(1, username);
+                statement.setLong(2, from);
+                statement.setLong(3, to);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        if (rows.getBoolean(1)) {
+                            income = rows.getLong(2);
+                        } else {
+                            expenses = rows.getLong(2);
+                        }
+                        count += rows.getInt(3);
+                    }
+                }
+            }
+            return new PeriodTotals(income, expenses, count);
+        });
+    }
+
+    @Override
+    public Map<String, CategoryTotals> queryCategoryTotals(String username, List<String> categories) {
+        return inTransaction(connection -> queryTotals(connection, username, categories));
+    }
+
+    // Итоги по категориям; categories == null - по всем категориям пользователя
+    private static Map<String, CategoryTotals> queryTotals(Connection connection, String username,
+                                                           List<String> categories) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT category, income, SUM(amount), COUNT(*), MIN(amount), "
+                + "MAX(amount) FROM transactions WHERE username = ?");
+        if (categories != null) {
+            sql.append(" AND category IN (").append(String.join(", ", Collections.nCopies(categories.size(), "?")))
+                    .append(')');
+        }
+        // Группировка в порядке индекса (пользователь, категория, тип) идет потоком, без хэш-таблицы групп
+        sql.append(" GROUP BY username, category, income");
+
+        Map<String, long[]> groups = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            statement.setString(1, username);
+            if (categories != null) {
+                for (int i = 0; i < categories.size(); i++) {
+                    statement.setString(i + 2, categories.get(i));
+                }
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    // [доходы, расходы, число доходов, число расходов, мин./макс. дохода, мин./макс. расхода]
+                    long[] group = groups.computeIfAbsent(rows.getString(1), name -> new long[8]);
+                    int offset = rows.getBoolean(2) ? 0 : 1;
+                    group[offset] = rows.getLong(3);
+                    group[2 + offset] = rows.getLong(4);
+                    group[4 + offset * 2] = rows.getLong(5);
+                    group[5 + offset * 2] = rows.getLong(6);
+                }
+            }
+        }
+
+        Map<String, CategoryTotals> totals = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : groups.entrySet()) {
+            long[] group = entry.getValue();
+            totals.put(entry.getKey(), new CategoryTotals(group[0], group[1], (int) group[2], (int) group[3],
+                    group[4], group[5], group[6], group[7]));
+        }
+        return totals;
+    }
+
+    // Выполняет работу в одной транзакции базы; при ошибке откатывает ее, печатает причину и возвращает null
+    private <T> T inTransaction(SqlWork<T> work) {
+        Connection connection = null;
+        try {
+            connection = idle.poll();
+            if (connection == null) {
+                connection = DriverManager.getConnection(url, "sa", "");
+                connection.setAutoCommit(false);
+            }
+            T result = work.run(connection);
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            System.out.println("Ошибка базы данных: " + e.getMessage());
+            e.printStackTrace();
+            rollback(connection);
+            return null;
+        } finally {
+            if (connection != null && !idle.offer(connection)) {
+                close(connection);
+            }
+        }
+    }
+
+    // Закрывает простаивающие соединения; с последним из них H2 закрывает и файл базы
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    private static void rollback(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,11 @@
+package com.financemanager.service;
+
+// Режим сброса данных на диск при записи журнала
+public enum DurabilityMode {
+    // fsync после каждой записи журнала
+    SYNC,
+    // один fsync на пакет записей, сохраняемых за один вызов
+    GROUP_COMMIT,
+    // без fsync, сброс остается на усмотрение ОС
+    NONE
+}
@@ -1,59 +1,281 @@
 package com.financemanager.service;
 
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.Transfer;
 import com.financemanager.model.User;
 import com.financemanager.model.Wallet;
+import com.financemanager.model.WalletChange;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
-public class FileService {
-    private static final String USERS_DATA_FILE = "data/users.json";
-    private static final String WALLETS_DATA_DIR = "data/wallets/";
+public class FileService implements StorageBackend {
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String CORRUPT_EXTENSION = ".corrupt";
+    // Файлы отчетного представления кошелька, см. WalletReportView
+    private static final String ROWS_EXTENSION = ".rows";
+    private static final String TEXT_EXTENSION = ".text";
+    private static final String VIEW_EXTENSION = ".view";
+    // Журнал сжимается в снимок, когда становится больше снимка, но не раньше этого размера
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final Type USERS_TYPE = new TypeToken<Map<String, User>>(){}.getType();
+    private final String dataDir;
+    // Прежний формат, где пользователи хранились вместе с кошельками
+    private final String usersDataFile;
+    private final StorageLayout layout;
+    private final String transfersJournalFile;
+    // Части учетных записей читаются и пишутся параллельно ограниченным числом потоков
+    private final int storageThreads;
+    private ExecutorService shardExecutor;
     private Gson gson;
+    private Gson journalGson;
+    private DurabilityMode durabilityMode;
+    private final WalletFormat walletFormat;
+    private final boolean reportView;
 
     public FileService() {
-        this.gson = new GsonBuilder()
-                .setPrettyPrinting()
+        this(System.getProperty("finance.dataDir", "data"),
+                DurabilityMode.valueOf(System.getProperty("finance.durability", DurabilityMode.GROUP_COMMIT.name())));
+    }
+
+    public FileService(String dataDir, DurabilityMode durabilityMode) {
+        this(dataDir, durabilityMode,
+                WalletFormat.valueOf(System.getProperty("finance.walletFormat", WalletFormat.JSON.name())));
+    }
+
+    public FileService(String dataDir, DurabilityMode durabilityMode, WalletFormat walletFormat) {
+        this(dataDir, durabilityMode, walletFormat, StorageLayout.open(dataDir));
+    }
+
+    public FileService(String dataDir, DurabilityMode durabilityMode, WalletFormat walletFormat,
+                       StorageLayout layout) {
+        this.dataDir = dataDir;
+        this.usersDataFile = dataDir + "/users.json";
+        this.layout = layout;
+        this.storageThreads = Integer.getInteger("finance.storage.threads",
+                Math.min(8, Runtime.getRuntime().availableProcessors()));
+        this.transfersJournalFile = dataDir + "/transfers.journal";
+        GsonBuilder builder = new GsonBuilder()
+                .registerTypeAdapter(Transaction.class, new TransactionAdapter())
+                .registerTypeAdapter(TransactionStore.class, new TransactionStoreAdapter())
+                .disableHtmlEscaping()
+                .setLenient();
+        // Снимки пишутся компактно; форматированный вывод включается для отладки
+        if (Boolean.getBoolean("finance.prettyJson")) {
+            builder.setPrettyPrinting();
+        }
+        this.gson = builder.create();
+        this.journalGson = new GsonBuilder()
+                .registerTypeAdapter(Transaction.class, new TransactionAdapter())
+                .registerTypeAdapter(TransactionStore.class, new TransactionStoreAdapter())
                 .disableHtmlEscaping()
-                .setLenient()
                 .create();
+        this.durabilityMode = durabilityMode;
+        this.walletFormat = walletFormat;
+        this.reportView = Boolean.getBoolean("finance.reportView");
         createDataDirectories();
     }
 
     private void createDataDirectories() {
-        new File("data").mkdirs();
-        new File(WALLETS_DATA_DIR).mkdirs();
+        for (File directory : layout.directories()) {
+            directory.mkdirs();
+        }
     }
 
-    public void saveUsers(Map<String, User> users) {
-        try (Writer writer = new OutputStreamWriter(new FileOutputStream(USERS_DATA_FILE), StandardCharsets.UTF_8)) {
-            gson.toJson(users, writer);
-            writer.flush();
+    public StorageLayout getLayout() { return layout; }
+
+    // Файлы учетных записей общие для всех сессий, поэтому запись в них последовательная
+    public synchronized void saveUsers(Map<String, User> users) {
+        List<Map<String, User>> shards = new ArrayList<>();
+        for (int shard = 0; shard < layout.getShardCount(); shard++) {
+            shards.add(new HashMap<>());
+        }
+        for (User user : users.values()) {
+            shards.get(layout.shardOf(user.getUsername())).put(user.getUsername(), user);
+        }
+        forEachShard(shard -> {
+            saveUsersShard(shard, shards.get(shard));
+            return null;
+        });
+    }
+
+    private void saveUsersShard(int shard, Map<String, User> users) {
+        try {
+            writeTextAtomically(layout.usersFile(shard),
+                    writer -> gson.toJson(users, USERS_TYPE, gson.newJsonWriter(writer)));
+            layout.usersJournalFile(shard).delete();
+            // Прежний data/users.json перенесен в записанный снимок и больше не хранится рядом с ним
+            if (layout.getShardCount() == 1) {
+                new File(usersDataFile).delete();
+            }
         } catch (IOException e) {
             System.out.println("Ошибка при сохранении данных пользователей: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    // Дописывает актуальную учетную запись одного пользователя в журнал его части
+    public synchronized void saveUser(User user) {
+        File journalFile = layout.usersJournalFile(layout.shardOf(user.getUsername()));
+        try (FileOutputStream out = new FileOutputStream(journalFile, true);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(journalGson.toJson(user));
+            writer.write('\n');
+            writer.flush();
+            if (durabilityMode != DurabilityMode.NONE) {
+                out.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка при сохранении пользователя " + user.getUsername() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Все учетные записи; части читаются параллельно
     public Map<String, User> loadUsers() {
-        File file = new File(USERS_DATA_FILE);
-        if (!file.exists()) {
-            return new HashMap<>();
+        boolean[] compact = new boolean[layout.getShardCount()];
+        List<Map<String, User>> shards = forEachShard(shard -> loadUsersShard(shard, compact));
+
+        Map<String, User> users = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            users.putAll(shards.get(shard));
+            if (compact[shard]) {
+                // Сжатие в вызывающем потоке: потоки частей не должны ждать монитор сервиса
+                synchronized (this) {
+                    saveUsersShard(shard, shards.get(shard));
+                }
+            }
+        }
+        return users;
+    }
+
+    // Учетная запись одного пользователя: читается только его часть; null, если такого нет
+    public User loadUser(String username) {
+        int shard = layout.shardOf(username);
+        Map<String, User> users = readUsersSnapshot(layout.usersFile(shard));
+        replayUsersJournal(users, layout.usersJournalFile(shard));
+        return users.get(username);
+    }
+
+    // Индекс учетных записей без их разбора (MappedUserIndex). Если какую-то часть нужно перенести
+    // из старого формата или сжать, учетные записи один раз загружаются полностью и индекс строится заново
+    @Override
+    public UserIndex openUserIndex() {
+        List<MappedUserIndex.Shard> shards = forEachShard(this::indexUsersShard);
+        if (shards.contains(null)) {
+            Map<String, User> users = loadUsers();
+            shards = forEachShard(this::indexUsersShard);
+            if (shards.contains(null)) {
+                return UserIndex.of(users);
+            }
         }
+        return new MappedUserIndex(layout, gson, shards);
+    }
 
-        if (file.length() == 0) {
+    private MappedUserIndex.Shard indexUsersShard(int shard) {
+        File file = layout.usersFile(shard);
+        File journalFile = layout.usersJournalFile(shard);
+        if (layout.getShardCount() == 1 && !file.exists() && new File(usersDataFile).exists()
+                || journalFile.length() > Math.max(MIN_COMPACTION_BYTES, file.length())) {
+            return null;
+        }
+        try {
+            return MappedUserIndex.indexShard(file, journalFile);
+        } catch (IOException e) {
+            System.out.println("Ошибка при чтении индекса пользователей: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private Map<String, User> loadUsersShard(int shard, boolean[] compact) {
+        File file = layout.usersFile(shard);
+        boolean migrateLegacy = false;
+        if (layout.getShardCount() == 1 && !file.exists() && new File(usersDataFile).exists()) {
+            // Старый формат: кошельки вложены в пользователей и при чтении пропускаются
+            file = new File(usersDataFile);
+            migrateLegacy = true;
+        }
+
+        Map<String, User> users = readUsersSnapshot(file);
+        File journalFile = layout.usersJournalFile(shard);
+        boolean journalIntact = replayUsersJournal(users, journalFile);
+
+        compact[shard] = migrateLegacy || !journalIntact
+                || journalFile.length() > Math.max(MIN_COMPACTION_BYTES, file.length());
+        return users;
+    }
+
+    // Выполняет задачу для каждой части; при одной части - в вызывающем потоке
+    private <T> List<T> forEachShard(IntFunction<T> task) {
+        int shards = layout.getShardCount();
+        List<T> results = new ArrayList<>(shards);
+        if (shards == 1) {
+            results.add(task.apply(0));
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(shards);
+        ExecutorService executor = shardExecutor();
+        for (int shard = 0; shard < shards; shard++) {
+            int current = shard;
+            futures.add(executor.submit(() -> task.apply(current)));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Прервано чтение частей хранилища", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Ошибка при обработке части хранилища", e.getCause());
+        }
+        return results;
+    }
+
+    private synchronized ExecutorService shardExecutor() {
+        if (shardExecutor == null) {
+            shardExecutor = Executors.newFixedThreadPool(Math.max(1, storageThreads), runnable -> {
+                Thread thread = new Thread(runnable, "storage-shard");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return shardExecutor;
+    }
+
+    private Map<String, User> readUsersSnapshot(File file) {
+        if (!file.exists() || file.length() == 0) {
             return new HashMap<>();
         }
 
-        try (Reader reader = new InputStreamReader(new FileInputStream(USERS_DATA_FILE), StandardCharsets.UTF_8)) {
-            Type type = new TypeToken<Map<String, User>>(){}.getType();
-            Map<String, User> users = gson.fromJson(reader, type);
+        try (JsonReader reader = gson.newJsonReader(newBufferedReader(file))) {
+            Map<String, User> users = gson.fromJson(reader, USERS_TYPE);
 
             if (users == null) {
                 return new HashMap<>();
@@ -67,38 +289,418 @@ public class FileService {
         }
     }
 
+    private boolean replayUsersJournal(Map<String, User> users, File journalFile) {
+        if (!journalFile.exists()) {
+            return true;
+        }
+
+        try (BufferedReader reader = newBufferedReader(journalFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                User user;
+                try {
+                    user = journalGson.fromJson(line, User.class);
+                } catch (Exception e) {
+                    System.out.println("Журнал пользователей обрезан на поврежденной записи");
+                    return false;
+                }
+                users.put(user.getUsername(), user);
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Ошибка при загрузке журнала пользователей: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     public void saveWallet(Wallet wallet, String username) {
-        String walletFile = WALLETS_DATA_DIR + username + ".json";
-        try (Writer writer = new OutputStreamWriter(new FileOutputStream(walletFile), StandardCharsets.UTF_8)) {
-            gson.toJson(wallet, writer);
-            writer.flush();
+        File snapshotFile = snapshotFile(username, walletFormat);
+        File journalFile = layout.walletFile(username, JOURNAL_EXTENSION);
+        List<WalletChange> changes = wallet.getPendingChanges();
+        try {
+            if (!snapshotFile.exists()
+                    || journalFile.length() > Math.max(MIN_COMPACTION_BYTES, snapshotFile.length())) {
+                writeSnapshot(wallet, snapshotFile);
+                journalFile.delete();
+            } else if (!changes.isEmpty()) {
+                appendToJournal(changes, journalFile);
+            }
+            wallet.clearPendingChanges(changes.size());
+            updateReportView(wallet, username);
         } catch (IOException e) {
             System.out.println("Ошибка при сохранении кошелька пользователя " + username + ": " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    public Wallet loadWallet(String username) {
-        String walletFile = WALLETS_DATA_DIR + username + ".json";
-        File file = new File(walletFile);
-        if (!file.exists()) {
-            return new Wallet();
+    // Полностью перезаписывает кошелек снимком и очищает журнал
+    public void saveWalletSnapshot(Wallet wallet, String username) {
+        List<WalletChange> changes = wallet.getPendingChanges();
+        try {
+            writeSnapshot(wallet, snapshotFile(username, walletFormat));
+            layout.walletFile(username, JOURNAL_EXTENSION).delete();
+            wallet.clearPendingChanges(changes.size());
+            updateReportView(wallet, username);
+        } catch (IOException e) {
+            System.out.println("Ошибка при сохранении кошелька пользователя " + username + ": " + e.getMessage());
+            e.printStackTrace();
         }
+    }
 
-        if (file.length() == 0) {
-            return new Wallet();
+    public WalletFormat getWalletFormat() { return walletFormat; }
+
+    // Файл снимка кошелька в выбранном формате (например, для сравнения размеров)
+    public File getWalletSnapshotFile(String username) {
+        return snapshotFile(username, walletFormat);
+    }
+
+    private File snapshotFile(String username, WalletFormat format) {
+        return layout.walletFile(username, format.getExtension());
+    }
+
+    private void writeSnapshot(Wallet wallet, File snapshotFile) throws IOException {
+        if (walletFormat == WalletFormat.BINARY) {
+            writeAtomically(snapshotFile, out -> WalletBinaryFormat.write(wallet, out.getChannel()));
+        } else {
+            writeTextAtomically(snapshotFile, writer -> gson.toJson(wallet, Wallet.class, gson.newJsonWriter(writer)));
         }
+    }
 
-        try (Reader reader = new InputStreamReader(new FileInputStream(walletFile), StandardCharsets.UTF_8)) {
+    private Wallet readSnapshot(File file, WalletFormat format) throws IOException {
+        if (format == WalletFormat.BINARY) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                return WalletBinaryFormat.read(channel);
+            }
+        }
+        try (JsonReader reader = gson.newJsonReader(newBufferedReader(file))) {
             return gson.fromJson(reader, Wallet.class);
+        }
+    }
+
+    private void writeTextAtomically(File target, TextSnapshotWriter content) throws IOException {
+        writeAtomically(target, out -> {
+            Writer writer = newBufferedWriter(out);
+            content.write(writer);
+            writer.flush();
+        });
+    }
+
+    // Снимок пишется во временный файл рядом с целевым и заменяет его переименованием:
+    // при сбое на диске остается либо прежний файл целиком, либо новый целиком.
+    // Доступ из пакета - для тестов, внедряющих сбой посреди записи
+    void writeAtomically(File target, SnapshotWriter content) throws IOException {
+        File temp = new File(target.getPath() + TEMP_EXTENSION);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            content.write(out);
+            if (durabilityMode != DurabilityMode.NONE) {
+                out.getChannel().force(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (durabilityMode != DurabilityMode.NONE) {
+            forceDirectory(target.getAbsoluteFile().getParentFile().toPath());
+        }
+    }
+
+    // Сбрасывает на диск сам факт переименования; не на всех системах каталог можно открыть
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Переименование уже выполнено, не сброшена только запись каталога
+        }
+    }
+
+    interface SnapshotWriter {
+        void write(FileOutputStream out) throws IOException;
+    }
+
+    private interface TextSnapshotWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    private void appendToJournal(List<WalletChange> changes, File journalFile) throws IOException {
+        appendJournal(journalFile, out -> {
+            Writer writer = newBufferedWriter(out);
+            for (WalletChange change : changes) {
+                journalGson.toJson(change, WalletChange.class, journalGson.newJsonWriter(writer));
+                writer.write('\n');
+                if (durabilityMode == DurabilityMode.SYNC) {
+                    writer.flush();
+                    out.getChannel().force(false);
+                }
+            }
+            writer.flush();
+            if (durabilityMode == DurabilityMode.GROUP_COMMIT) {
+                out.getChannel().force(false);
+            }
+        });
+    }
+
+    // Дозапись в журнал: при ошибке журнал обрезается до прежней длины, чтобы повторная запись
+    // не склеилась с недописанной строкой. Доступ из пакета - для тестов, внедряющих сбой
+    void appendJournal(File journalFile, SnapshotWriter content) throws IOException {
+        long length = journalFile.length();
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            content.write(out);
+        } catch (IOException | RuntimeException e) {
+            try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+    }
+
+    public Wallet loadWallet(String username) {
+        File file = snapshotFile(username, walletFormat);
+        WalletFormat format = walletFormat;
+        WalletFormat otherFormat = walletFormat == WalletFormat.BINARY ? WalletFormat.JSON : WalletFormat.BINARY;
+        if (!file.exists() && snapshotFile(username, otherFormat).exists()) {
+            // Снимок в другом формате переводится в выбранный при первой загрузке
+            file = snapshotFile(username, otherFormat);
+            format = otherFormat;
+        }
+        if (!file.exists()) {
+            return new Wallet();
+        }
+
+        File journalFile = layout.walletFile(username, JOURNAL_EXTENSION);
+        try {
+            // Пустой снимок: изменения из журнала повторяются поверх пустого кошелька, а не теряются
+            boolean emptySnapshot = file.length() == 0;
+            Wallet wallet = emptySnapshot ? new Wallet() : readSnapshot(file, format);
+            boolean legacyMoney = wallet.migrateLegacyMoney();
+            wallet.rebuildAggregates();
+            if (!replayJournal(wallet, journalFile) || legacyMoney || format != walletFormat
+                    || emptySnapshot && journalFile.exists()) {
+                // Сразу сжимаем журнал, чтобы новые записи не дописывались к поврежденной строке,
+                // а снимок прежнего формата с суммами в double переписываем в копейках
+                writeSnapshot(wallet, snapshotFile(username, walletFormat));
+                journalFile.delete();
+                if (format != walletFormat) {
+                    file.delete();
+                }
+            }
+            updateReportView(wallet, username);
+            return wallet;
         } catch (Exception e) {
             System.out.println("Ошибка при загрузке кошелька пользователя " + username + ": " + e.getMessage());
             e.printStackTrace();
+            if (e instanceof JsonParseException || e instanceof StreamCorruptedException) {
+                // Поврежденный снимок откладываем в сторону, чтобы пустой кошелек не записался поверх истории;
+                // журнал к нему тоже, иначе следующая запись снимка его удалит
+                preserveCorrupt(file);
+                if (journalFile.exists()) {
+                    preserveCorrupt(journalFile);
+                }
+            }
             return new Wallet();
         }
     }
 
-    public void exportStatisticsToFile(String statistics, String filename) {
+    public boolean isReportViewEnabled() { return reportView; }
+
+    // Открывает отчетное представление кошелька в том виде, в каком он был сохранен последним
+    public WalletReportView openReportView(String username) throws IOException {
+        WalletReportView.Meta meta = readReportViewMeta(username);
+        if (meta == null) {
+            throw new FileNotFoundException("Нет отчетного представления кошелька пользователя " + username);
+        }
+        FileChannel rows = FileChannel.open(walletFile(username, ROWS_EXTENSION).toPath(), StandardOpenOption.READ);
+        FileChannel text = FileChannel.open(walletFile(username, TEXT_EXTENSION).toPath(), StandardOpenOption.READ);
+        try {
+            return new WalletReportView(meta, rows, text);
+        } catch (IOException | RuntimeException e) {
+            rows.close();
+            text.close();
+            throw e;
+        }
+    }
+
+    // Дописывает в файлы отчетного представления строки, появившиеся с прошлого сохранения.
+    // Представление производное: ошибка здесь не мешает сохранению кошелька
+    private void updateReportView(Wallet wallet, String username) {
+        if (!reportView) {
+            return;
+        }
+        File rowsFile = walletFile(username, ROWS_EXTENSION);
+        File textFile = walletFile(username, TEXT_EXTENSION);
+        File viewFile = walletFile(username, VIEW_EXTENSION);
+        try {
+            WalletReportView.Meta previous = readReportViewMeta(username);
+            if (previous != null && previous.getRows() == wallet.getTransactions().size()
+                    && previous.getVersion() == wallet.getVersion()) {
+                return;
+            }
+            if (previous != null && !WalletReportView.continues(previous, rowsFile, textFile, wallet)) {
+                // Кошелек не продолжает файлы (например, снимок был отложен как поврежденный): пишем заново.
+                // Новые файлы вместо усечения старых, чтобы не оборвать уже открытые отображения
+                previous = null;
+            }
+            if (previous == null) {
+                viewFile.delete();
+                rowsFile.delete();
+                textFile.delete();
+            }
+
+            WalletReportView.Meta meta;
+            try (FileChannel rows = FileChannel.open(rowsFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileChannel text = FileChannel.open(textFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                meta = WalletReportView.append(wallet, previous, rows, text);
+                if (durabilityMode != DurabilityMode.NONE) {
+                    rows.force(false);
+                    text.force(false);
+                }
+            }
+            // Строки становятся видны читателям только вместе с новыми сведениями
+            writeTextAtomically(viewFile, writer -> gson.toJson(meta, WalletReportView.Meta.class, gson.newJsonWriter(writer)));
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ошибка при обновлении отчетного представления кошелька " + username + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private WalletReportView.Meta readReportViewMeta(String username) {
+        File viewFile = walletFile(username, VIEW_EXTENSION);
+        if (!viewFile.exists()) {
+            return null;
+        }
+        try (JsonReader reader = gson.newJsonReader(newBufferedReader(viewFile))) {
+            return gson.fromJson(reader, WalletReportView.Meta.class);
+        } catch (IOException | RuntimeException e) {
+            // Представление пересобирается из кошелька при следующем сохранении
+            return null;
+        }
+    }
+
+    private File walletFile(String username, String extension) {
+        return layout.walletFile(username, extension);
+    }
+
+    // Расширения всех постоянных файлов кошелька (для переноса между расположениями)
+    public static List<String> walletFileExtensions() {
+        List<String> extensions = new ArrayList<>();
+        for (WalletFormat format : WalletFormat.values()) {
+            extensions.add(format.getExtension());
+        }
+        extensions.addAll(List.of(JOURNAL_EXTENSION, ROWS_EXTENSION, TEXT_EXTENSION, VIEW_EXTENSION));
+        return extensions;
+    }
+
+    private static void preserveCorrupt(File file) {
+        File backup = new File(file.getPath() + CORRUPT_EXTENSION + "." + System.currentTimeMillis());
+        if (file.renameTo(backup)) {
+            System.out.println("Поврежденный файл сохранен как " + backup.getName());
+        }
+    }
+
+    private boolean replayJournal(Wallet wallet, File journalFile) throws IOException {
+        if (!journalFile.exists()) {
+            return true;
+        }
+
+        boolean intact = true;
+        try (BufferedReader reader = newBufferedReader(journalFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                WalletChange change;
+                try {
+                    change = journalGson.fromJson(line, WalletChange.class);
+                } catch (Exception e) {
+                    // Недописанная запись после сбоя: пропускается, следующие строки повторяются,
+                    // а вызывающий сжимает журнал
+                    System.out.println("Пропущена поврежденная запись журнала кошелька: " + journalFile.getName());
+                    intact = false;
+                    continue;
+                }
+                // Записи с номером не больше текущей версии уже учтены: вошли в снимок или повторно
+                // дописаны в журнал после сбоя посреди прежней дозаписи
+                if (change.getSeq() > wallet.getVersion()) {
+                    wallet.replay(change);
+                }
+            }
+        }
+        return intact;
+    }
+
+    // Дописывает перевод в общий журнал переводов; после возврата перевод считается совершенным
+    public synchronized void appendTransfer(Transfer transfer) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(transfersJournalFile, true);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(journalGson.toJson(transfer));
+            writer.write('\n');
+            writer.flush();
+            if (durabilityMode != DurabilityMode.NONE) {
+                out.getChannel().force(false);
+            }
+        }
+    }
+
+    public synchronized List<Transfer> loadTransfers() {
+        List<Transfer> transfers = new ArrayList<>();
+        File journalFile = new File(transfersJournalFile);
+        if (!journalFile.exists()) {
+            return transfers;
+        }
+
+        try (BufferedReader reader = newBufferedReader(journalFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    transfers.add(journalGson.fromJson(line, Transfer.class));
+                } catch (Exception e) {
+                    // Недописанная запись: перевод не был совершен и не применялся
+                    System.out.println("Журнал переводов обрезан на поврежденной записи");
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка при загрузке журнала переводов: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return transfers;
+    }
+
+    public synchronized long getTransfersJournalSize() {
+        return new File(transfersJournalFile).length();
+    }
+
+    // Вызывается, только когда все переводы из журнала уже записаны в кошельки
+    public synchronized void clearTransfers() {
+        new File(transfersJournalFile).delete();
+    }
+
+    private static BufferedReader newBufferedReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8),
+                IO_BUFFER_SIZE);
+    }
+
+    private static Writer newBufferedWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+    }
+
+    public static void exportStatisticsToFile(String statistics, String filename) {
         try (Writer writer = new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8)) {
             writer.write(statistics);
             writer.flush();
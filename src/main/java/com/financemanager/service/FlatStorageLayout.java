@@ -0,0 +1,47 @@
+package com.financemanager.service;
+
+import java.io.File;
+
+// Прежнее расположение: все кошельки в data/wallets, все учетные записи в data/credentials.json
+public class FlatStorageLayout implements StorageLayout {
+    private final String dataDir;
+    private final String walletsDir;
+
+    public FlatStorageLayout(String dataDir) {
+        this.dataDir = dataDir;
+        this.walletsDir = dataDir + "/wallets/";
+    }
+
+    @Override
+    public File walletFile(String username, String extension) {
+        return new File(walletsDir + username + extension);
+    }
+
+    @Override
+    public int getShardCount() { return 1; }
+
+    @Override
+    public int shardOf(String username) { return 0; }
+
+    @Override
+    public File usersFile(int shard) {
+        return new File(dataDir + "/credentials.json");
+    }
+
+    @Override
+    public File usersJournalFile(int shard) {
+        return new File(dataDir + "/credentials.journal");
+    }
+
+    @Override
+    public File[] directories() {
+        return new File[]{new File(dataDir), new File(walletsDir)};
+    }
+
+    // Есть ли уже данные в этом расположении (в том числе прежний data/users.json)
+    boolean hasData() {
+        String[] wallets = new File(walletsDir).list();
+        return usersFile(0).exists() || new File(dataDir + "/users.json").exists()
+                || (wallets != null && wallets.length > 0);
+    }
+}
@@ -0,0 +1,40 @@
+package com.financemanager.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Генератор 64-битных идентификаторов, упорядоченных по времени:
+// 41 бит - миллисекунды от EPOCH_MILLIS, 10 бит - номер узла, 12 бит - счетчик внутри миллисекунды
+public class IdGenerator {
+    private static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final IdGenerator SHARED = new IdGenerator(Long.getLong("finance.nodeId", 0L));
+
+    private final long node;
+    // Время и счетчик без номера узла: переполнение счетчика переносится в следующую миллисекунду
+    private final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+    public IdGenerator(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Номер узла должен быть от 0 до " + MAX_NODE);
+        }
+        this.node = node;
+    }
+
+    // Общий генератор процесса: несколько генераторов с одним номером узла дали бы совпадения
+    public static IdGenerator shared() {
+        return SHARED;
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        // Монотонно даже при переводе часов назад
+        long timeAndSequence = lastTimeAndSequence.accumulateAndGet(now, (last, candidate) -> Math.max(last + 1, candidate));
+        long millis = timeAndSequence >>> SEQUENCE_BITS;
+        long sequence = timeAndSequence & SEQUENCE_MASK;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+}
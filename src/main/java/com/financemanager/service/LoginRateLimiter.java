@@ -0,0 +1,80 @@
+package com.financemanager.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограничение проверок пароля и ответа на секретный вопрос по логину: не больше maxAttempts
+// попыток за окно windowMillis, успешная попытка сбрасывает счетчик. Отклоненная попытка не считает
+// хеш, поэтому перебор по одному логину тратит не больше maxAttempts хешей за окно.
+// Счетчики заводятся и для несуществующих логинов; истекшие окна удаляются, когда таблица
+// вырастает вдвое, так что она ограничена числом логинов, опробованных за одно окно
+public class LoginRateLimiter {
+    private static final int MIN_PURGE_SIZE = 1024;
+
+    private final int maxAttempts;
+    private final long windowNanos;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int purgeSize = MIN_PURGE_SIZE;
+
+    public LoginRateLimiter() {
+        this(Integer.getInteger("finance.auth.maxAttempts", 5), Long.getLong("finance.auth.windowMillis", 60_000));
+    }
+
+    public LoginRateLimiter(int maxAttempts, long windowMillis) {
+        if (maxAttempts <= 0 || windowMillis < 0) {
+            throw new IllegalArgumentException("Неверные параметры ограничения попыток входа");
+        }
+        this.maxAttempts = maxAttempts;
+        this.windowNanos = windowMillis * 1_000_000;
+    }
+
+    // true - попытку можно проверять; она сразу учитывается, чтобы одновременные попытки не обходили предел
+    public boolean tryAcquire(String username) {
+        long now = System.nanoTime();
+        boolean[] allowed = new boolean[1];
+        windows.compute(username, (key, window) -> {
+            if (window == null || now - window.startedAt >= windowNanos) {
+                window = new Window(now);
+            }
+            if (window.attempts < maxAttempts) {
+                window.attempts++;
+                allowed[0] = true;
+            }
+            return window;
+        });
+        if (!allowed[0]) {
+            rejected.incrementAndGet();
+        }
+        if (windows.size() > purgeSize) {
+            purgeExpired(now);
+        }
+        return allowed[0];
+    }
+
+    private synchronized void purgeExpired(long now) {
+        if (windows.size() <= purgeSize) {
+            return;
+        }
+        windows.values().removeIf(window -> now - window.startedAt >= windowNanos);
+        purgeSize = Math.max(MIN_PURGE_SIZE, windows.size() * 2);
+    }
+
+    public int getTrackedLogins() { return windows.size(); }
+
+    public void recordSuccess(String username) {
+        windows.remove(username);
+    }
+
+    public long getRejected() { return rejected.get(); }
+
+    private static final class Window {
+        private final long startedAt;
+        private int attempts;
+
+        private Window(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.financemanager.service;
+
+import com.financemanager.model.User;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Индекс учетных записей по отображенным в память файлам частей: снимок и журнал только
+// просматриваются, и для каждого логина запоминается лишь смещение его байтов в файле.
+// Запись разбирается при обращении; поздние записи журнала перекрывают снимок, как при загрузке
+final class MappedUserIndex implements UserIndex {
+    private final StorageLayout layout;
+    private final Gson gson;
+    private final List<Shard> shards;
+    private final int size;
+
+    MappedUserIndex(StorageLayout layout, Gson gson, List<Shard> shards) {
+        this.layout = layout;
+        this.gson = gson;
+        this.shards = shards;
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.size;
+        }
+        this.size = total;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean contains(String username) {
+        byte[] key = username.getBytes(StandardCharsets.UTF_8);
+        Shard shard = shards.get(layout.shardOf(username));
+        return shard.journal.find(key) >= 0 || shard.snapshot.find(key) >= 0;
+    }
+
+    @Override
+    public User load(String username) {
+        byte[] key = username.getBytes(StandardCharsets.UTF_8);
+        Shard shard = shards.get(layout.shardOf(username));
+        int offset = shard.journal.find(key);
+        if (offset >= 0) {
+            return gson.fromJson(journalLine(shard.journal.data, offset), User.class);
+        }
+        offset = shard.snapshot.find(key);
+        return offset >= 0 ? gson.fromJson(snapshotValue(shard.snapshot.data, offset), User.class) : null;
+    }
+
+    // Индекс одной части или null, если файлы нельзя разобрать без полной загрузки
+    // (экранированные логины, недописанная запись журнала, файл больше 2 ГБ)
+    static Shard indexShard(File snapshotFile, File journalFile) throws IOException {
+        ByteBuffer snapshotData = map(snapshotFile);
+        ByteBuffer journalData = map(journalFile);
+        if (snapshotData == null || journalData == null) {
+            return null;
+        }
+        Table snapshot = indexSnapshot(snapshotData);
+        Table journal = snapshot != null ? indexJournal(journalData, snapshot) : null;
+        return journal != null ? new Shard(snapshot, journal) : null;
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        if (file.length() >= Integer.MAX_VALUE) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Снимок - объект JSON вида {"логин": {...}, ...}; запоминается начало каждого ключа
+    private static Table indexSnapshot(ByteBuffer data) {
+        Table table = new Table(data);
+        int end = data.limit();
+        int pos = skipWhitespace(data, 0, end);
+        if (pos == end) {
+            return table;
+        }
+        if (data.get(pos) != '{') {
+            return null;
+        }
+        pos++;
+        while (true) {
+            pos = skipWhitespace(data, pos, end);
+            if (pos == end) {
+                return null;
+            }
+            byte b = data.get(pos);
+            if (b == '}') {
+                return table;
+            }
+            if (b == ',') {
+                pos++;
+                continue;
+            }
+            int keyStart = pos;
+            pos = skipKey(data, pos, end);
+            if (pos < 0) {
+                return null;
+            }
+            pos = skipWhitespace(data, pos, end);
+            if (pos == end || data.get(pos) != ':') {
+                return null;
+            }
+            pos = skipValue(data, skipWhitespace(data, pos + 1, end), end);
+            if (pos < 0) {
+                return null;
+            }
+            table.put(keyStart);
+        }
+    }
+
+    // Журнал - учетная запись JSON в строке; запоминается начало значения поля username
+    private static Table indexJournal(ByteBuffer data, Table snapshot) {
+        Table table = new Table(data);
+        int end = data.limit();
+        int pos = 0;
+        while (pos < end) {
+            int lineEnd = pos;
+            while (lineEnd < end && data.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == end) {
+                // Недописанная запись: разбирается и отбрасывается полной загрузкой
+                return null;
+            }
+            if (skipWhitespace(data, pos, lineEnd) < lineEnd) {
+                int key = findUsername(data, pos, lineEnd);
+                if (key < 0) {
+                    return null;
+                }
+                if (table.put(key) && snapshot.find(keyBytes(data, key)) < 0) {
+                    table.added++;
+                }
+            }
+            pos = lineEnd + 1;
+        }
+        return table;
+    }
+
+    private static int findUsername(ByteBuffer data, int pos, int end) {
+        pos = skipWhitespace(data, pos, end);
+        if (pos == end || data.get(pos) != '{') {
+            return -1;
+        }
+        pos++;
+        while (true) {
+            pos = skipWhitespace(data, pos, end);
+            if (pos == end || data.get(pos) == '}') {
+                return -1;
+            }
+            if (data.get(pos) == ',') {
+                pos++;
+                continue;
+            }
+            int keyStart = pos;
+            pos = skipKey(data, pos, end);
+            if (pos < 0) {
+                return -1;
+            }
+            pos = skipWhitespace(data, pos, end);
+            if (pos == end || data.get(pos) != ':') {
+                return -1;
+            }
+            int valueStart = skipWhitespace(data, pos + 1, end);
+            if (isUsernameKey(data, keyStart)) {
+                return skipKey(data, valueStart, end) < 0 ? -1 : valueStart;
+            }
+            pos = skipValue(data, valueStart, end);
+            if (pos < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private static boolean isUsernameKey(ByteBuffer data, int keyStart) {
+        byte[] name = {'u', 's', 'e', 'r', 'n', 'a', 'm', 'e', '"'};
+        for (int i = 0; i < name.length; i++) {
+            if (keyStart + 1 + i >= data.limit() || data.get(keyStart + 1 + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String journalLine(ByteBuffer data, int offset) {
+        int start = offset;
+        while (start > 0 && data.get(start - 1) != '\n') {
+            start--;
+        }
+        int end = offset;
+        while (data.get(end) != '\n') {
+            end++;
+        }
+        return text(data, start, end);
+    }
+
+    private static String snapshotValue(ByteBuffer data, int offset) {
+        int end = data.limit();
+        int pos = skipWhitespace(data, skipKey(data, offset, end), end);
+        int valueStart = skipWhitespace(data, pos + 1, end);
+        return text(data, valueStart, skipValue(data, valueStart, end));
+    }
+
+    private static String text(ByteBuffer data, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        data.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] keyBytes(ByteBuffer data, int keyStart) {
+        int end = keyStart + 1;
+        while (data.get(end) != '"') {
+            end++;
+        }
+        byte[] bytes = new byte[end - keyStart - 1];
+        data.get(keyStart + 1, bytes);
+        return bytes;
+    }
+
+    private static int skipWhitespace(ByteBuffer data, int pos, int end) {
+        while (pos < end) {
+            byte b = data.get(pos);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    // Строка без экранирования (ключ или логин): позиция за закрывающей кавычкой или -1
+    private static int skipKey(ByteBuffer data, int pos, int end) {
+        if (pos >= end || data.get(pos) != '"') {
+            return -1;
+        }
+        for (pos++; pos < end; pos++) {
+            byte b = data.get(pos);
+            if (b == '"') {
+                return pos + 1;
+            }
+            if (b == '\\') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipString(ByteBuffer data, int pos, int end) {
+        for (pos++; pos < end; pos++) {
+            byte b = data.get(pos);
+            if (b == '"') {
+                return pos + 1;
+            }
+            if (b == '\\') {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    // Любое значение JSON: позиция за его концом или -1, если значение не завершено
+    private static int skipValue(ByteBuffer data, int pos, int end) {
+        if (pos >= end) {
+            return -1;
+        }
+        byte first = data.get(pos);
+        if (first == '"') {
+            return skipString(data, pos, end);
+        }
+        if (first != '{' && first != '[') {
+            while (pos < end) {
+                byte b = data.get(pos);
+                if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                    break;
+                }
+                pos++;
+            }
+            return pos;
+        }
+        int depth = 0;
+        while (pos < end) {
+            byte b = data.get(pos);
+            if (b == '"') {
+                pos = skipString(data, pos, end);
+                if (pos < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if ((b == '}' || b == ']') && --depth == 0) {
+                return pos + 1;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    static final class Shard {
+        private final Table snapshot;
+        private final Table journal;
+        private final int size;
+
+        private Shard(Table snapshot, Table journal) {
+            this.snapshot = snapshot;
+            this.journal = journal;
+            this.size = snapshot.count + journal.added;
+        }
+    }
+
+    // Открытая адресация по смещениям логинов (смещение + 1, 0 - пустая ячейка) с хешами рядом:
+    // ключи не копируются в строки, при поиске байты логина сравниваются прямо в отображенном файле
+    private static final class Table {
+        private final ByteBuffer data;
+        private int[] slots = new int[16];
+        private int[] hashes = new int[16];
+        private int count;
+        // Логины журнала, которых нет в снимке
+        private int added;
+
+        private Table(ByteBuffer data) {
+            this.data = data;
+        }
+
+        // true, если логин новый; иначе смещение заменяется более поздним
+        private boolean put(int keyStart) {
+            if ((count + 1) * 2 > slots.length) {
+                resize();
+            }
+            int h = 1;
+            int pos = keyStart + 1;
+            for (byte b = data.get(pos); b != '"'; b = data.get(++pos)) {
+                h = 31 * h + b;
+            }
+            int hash = h ^ (h >>> 16);
+            int length = pos - keyStart - 1;
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                if (slots[slot] == 0) {
+                    slots[slot] = keyStart + 1;
+                    hashes[slot] = hash;
+                    count++;
+                    return true;
+                }
+                if (hashes[slot] == hash && sameKey(slots[slot] - 1, keyStart, length)) {
+                    slots[slot] = keyStart + 1;
+                    return false;
+                }
+            }
+        }
+
+        private int find(byte[] key) {
+            if (count == 0) {
+                return -1;
+            }
+            int hash = hash(key);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && matches(slots[slot] - 1, key)) {
+                    return slots[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        private boolean sameKey(int keyStart, int otherStart, int length) {
+            for (int i = 1; i <= length; i++) {
+                if (data.get(keyStart + i) != data.get(otherStart + i)) {
+                    return false;
+                }
+            }
+            return data.get(keyStart + 1 + length) == '"';
+        }
+
+        private boolean matches(int keyStart, byte[] key) {
+            if (keyStart + 1 + key.length >= data.limit()) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (data.get(keyStart + 1 + i) != key[i]) {
+                    return false;
+                }
+            }
+            return data.get(keyStart + 1 + key.length) == '"';
+        }
+
+        private void resize() {
+            int[] oldSlots = slots;
+            int[] oldHashes = hashes;
+            slots = new int[oldSlots.length * 2];
+            hashes = new int[oldSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != 0) {
+                    int slot = oldHashes[i] & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = oldSlots[i];
+                    hashes[slot] = oldHashes[i];
+                }
+            }
+        }
+
+        private static int hash(byte[] key) {
+            int h = 1;
+            for (byte b : key) {
+                h = 31 * h + b;
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.financemanager.service;
+
+import java.io.File;
+
+// Расположение по частям: кошелек в data/wallets/<часть>/, учетная запись в data/users/<часть>.json.
+// Часть - хэш логина, поэтому в каталоге остается порядка (пользователей / частей) файлов,
+// а одна учетная запись читается из своей части без разбора остальных
+public class ShardedStorageLayout implements StorageLayout {
+    private final String dataDir;
+    private final int shards;
+    private final String[] shardNames;
+
+    public ShardedStorageLayout(String dataDir, int shards) {
+        if (shards < 1 || shards > 65536) {
+            throw new IllegalArgumentException("Число частей должно быть от 1 до 65536");
+        }
+        this.dataDir = dataDir;
+        // Округляем до степени двойки, чтобы часть бралась маской
+        int size = 1;
+        while (size < shards) {
+            size <<= 1;
+        }
+        this.shards = size;
+        int width = Math.max(2, (Integer.numberOfTrailingZeros(this.shards) + 3) / 4);
+        this.shardNames = new String[this.shards];
+        for (int shard = 0; shard < this.shards; shard++) {
+            shardNames[shard] = String.format("%0" + width + "x", shard);
+        }
+    }
+
+    @Override
+    public File walletFile(String username, String extension) {
+        return new File(dataDir + "/wallets/" + shardNames[shardOf(username)] + "/" + username + extension);
+    }
+
+    @Override
+    public int getShardCount() { return shards; }
+
+    // String.hashCode одинаков во всех JVM, поэтому часть пользователя не меняется между запусками
+    @Override
+    public int shardOf(String username) {
+        int hash = username.hashCode() * 0x9e3779b9;
+        return (hash ^ (hash >>> 16)) & (shards - 1);
+    }
+
+    @Override
+    public File usersFile(int shard) {
+        return new File(dataDir + "/users/" + shardNames[shard] + ".json");
+    }
+
+    @Override
+    public File usersJournalFile(int shard) {
+        return new File(dataDir + "/users/" + shardNames[shard] + ".journal");
+    }
+
+    @Override
+    public File[] directories() {
+        File[] directories = new File[shards + 2];
+        directories[0] = new File(dataDir);
+        directories[1] = new File(dataDir + "/users");
+        for (int shard = 0; shard < shards; shard++) {
+            directories[shard + 2] = new File(dataDir + "/wallets/" + shardNames[shard]);
+        }
+        return directories;
+    }
+}
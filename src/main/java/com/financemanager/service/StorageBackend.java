@@ -0,0 +1,85 @@
+package com.financemanager.service;
+
+import com.financemanager.model.CategoryTotals;
+import com.financemanager.model.PeriodTotals;
+import com.financemanager.model.StatisticsReport;
+import com.financemanager.model.Transfer;
+import com.financemanager.model.User;
+import com.financemanager.model.Wallet;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// Хранилище учетных записей, кошельков и журнала переводов: файлы (FileService, по умолчанию)
+// или встроенная база данных (DatabaseStorage), выбирается свойством finance.storage
+public interface StorageBackend {
+    Map<String, User> loadUsers();
+    // null, если такого пользователя нет
+    User loadUser(String username);
+    void saveUsers(Map<String, User> users);
+    void saveUser(User user);
+    // Учетные записи для AuthService; по умолчанию загружаются сразу все
+    default UserIndex openUserIndex() { return UserIndex.of(loadUsers()); }
+
+    Wallet loadWallet(String username);
+    // Записывает накопленные изменения кошелька (Wallet.getPendingChanges)
+    void saveWallet(Wallet wallet, String username);
+    // Полностью перезаписывает сохраненный кошелек
+    void saveWalletSnapshot(Wallet wallet, String username);
+
+    // После возврата перевод считается совершенным
+    void appendTransfer(Transfer transfer) throws IOException;
+    List<Transfer> loadTransfers();
+    // Примерный объем журнала переводов в байтах
+    long getTransfersJournalSize();
+    // Вызывается, только когда все переводы из журнала уже записаны в кошельки
+    void clearTransfers();
+
+    // Отчетное представление кошелька в отображенных файлах, см. WalletReportView
+    default boolean isReportViewEnabled() { return false; }
+
+    default WalletReportView openReportView(String username) throws IOException {
+        throw new FileNotFoundException("Отчетное представление не поддерживается: " + username);
+    }
+
+    // Запросы по последнему сохраненному состоянию кошелька, которые хранилище выполняет само,
+    // не загружая транзакции в память; без поддержки итоги считаются по кошельку (TransactionService).
+    // null - запрос не удался, итоги тоже считаются по кошельку
+    default boolean supportsQueries() { return false; }
+
+    default StatisticsReport queryStatistics(String username) {
+        throw new UnsupportedOperationException("Запросы не поддерживаются хранилищем");
+    }
+
+    // Итоги за период [from, to] в миллисекундах (включительно), как Wallet.getPeriodTotals
+    default PeriodTotals queryPeriodTotals(String username, long from, long to) {
+        throw new UnsupportedOperationException("Запросы не поддерживаются хранилищем");
+    }
+
+    default Map<String, CategoryTotals> queryCategoryTotals(String username, List<String> categories) {
+        throw new UnsupportedOperationException("Запросы не поддерживаются хранилищем");
+    }
+
+    // Освобождает ресурсы хранилища; вызывается после записи отложенных кошельков (WalletCache.close)
+    default void close() {
+    }
+
+    // Хранилище по finance.storage: FILES (по умолчанию) или H2, в каталоге finance.dataDir
+    static StorageBackend open() {
+        return open(System.getProperty("finance.dataDir", "data"),
+                DurabilityMode.valueOf(System.getProperty("finance.durability", DurabilityMode.GROUP_COMMIT.name())));
+    }
+
+    static StorageBackend open(String dataDir, DurabilityMode durabilityMode) {
+        String storage = System.getProperty("finance.storage", "FILES");
+        if ("H2".equalsIgnoreCase(storage)) {
+            return new DatabaseStorage(dataDir, durabilityMode);
+        }
+        if (!"FILES".equalsIgnoreCase(storage)) {
+            throw new IllegalArgumentException("Неизвестное хранилище finance.storage: " + storage);
+        }
+        return new FileService(dataDir, durabilityMode);
+    }
+}
@@ -0,0 +1,67 @@
+package com.financemanager.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+// Расположение файлов учетных записей и кошельков в каталоге данных. Выбранное расположение
+// записывается в storage.properties, чтобы данные не "пропали" при запуске с другой настройкой
+public interface StorageLayout {
+    String MARKER_FILE = "storage.properties";
+
+    // Файл кошелька пользователя с расширением (.json, .journal, ...)
+    File walletFile(String username, String extension);
+
+    // Учетные записи делятся на части; у каждой свой снимок и журнал
+    int getShardCount();
+    int shardOf(String username);
+    File usersFile(int shard);
+    File usersJournalFile(int shard);
+
+    // Каталоги, которые создаются при запуске
+    File[] directories();
+
+    // Расположение из storage.properties, иначе по finance.storage.shards (0 - все в одном каталоге)
+    static StorageLayout open(String dataDir) {
+        File marker = new File(dataDir, MARKER_FILE);
+        if (marker.exists()) {
+            Properties properties = new Properties();
+            try (Reader in = Files.newBufferedReader(marker.toPath(), StandardCharsets.UTF_8)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new IllegalStateException("Не удалось прочитать " + marker + ": " + e.getMessage(), e);
+            }
+            int shards = Integer.parseInt(properties.getProperty("shards", "0"));
+            return shards > 0 ? new ShardedStorageLayout(dataDir, shards) : new FlatStorageLayout(dataDir);
+        }
+
+        int shards = Integer.getInteger("finance.storage.shards", 0);
+        FlatStorageLayout flat = new FlatStorageLayout(dataDir);
+        if (shards <= 0) {
+            return flat;
+        }
+        if (flat.hasData()) {
+            System.out.println("Каталог " + dataDir + " содержит данные без разбиения на части; "
+                    + "используется прежнее расположение. Перенос: com.financemanager.StorageMigration");
+            return flat;
+        }
+        ShardedStorageLayout sharded = new ShardedStorageLayout(dataDir, shards);
+        writeMarker(dataDir, sharded.getShardCount());
+        return sharded;
+    }
+
+    static void writeMarker(String dataDir, int shards) {
+        new File(dataDir).mkdirs();
+        Properties properties = new Properties();
+        properties.setProperty("shards", Integer.toString(shards));
+        try (Writer out = Files.newBufferedWriter(new File(dataDir, MARKER_FILE).toPath(), StandardCharsets.UTF_8)) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось записать " + MARKER_FILE + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Money;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
+
+// Потоковая (де)сериализация транзакции без рефлексии
+public class TransactionAdapter extends TypeAdapter<Transaction> {
+
+    @Override
+    public void write(JsonWriter out, Transaction transaction) throws IOException {
+        if (transaction == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("id").value(transaction.getId());
+        out.name("amountKopecks").value(transaction.getAmount());
+        out.name("type").value(transaction.getType() != null ? transaction.getType().name() : null);
+        out.name("category").value(transaction.getCategory());
+        out.name("description").value(transaction.getDescription());
+        out.name("date").value(transaction.getDate());
+        out.endObject();
+    }
+
+    @Override
+    public Transaction read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        String id = null;
+        long amount = 0;
+        TransactionType type = null;
+        String category = null;
+        String description = null;
+        String date = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id" -> id = in.nextString();
+                case "amountKopecks" -> amount = in.nextLong();
+                // Прежний формат: сумма в рублях (double)
+                case "amount" -> amount = Money.fromDouble(in.nextDouble());
+                case "type" -> type = parseType(in.nextString());
+                case "category" -> category = in.nextString();
+                case "description" -> description = in.nextString();
+                case "date" -> date = in.nextString();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        try {
+            return new Transaction(id, amount, type, category, description, date);
+        } catch (DateTimeParseException e) {
+            // Ошибка разбора JSON, а не сбой чтения: файл с такой записью сохраняется как поврежденный
+            throw new JsonParseException("Некорректная дата транзакции " + id + ": " + date, e);
+        }
+    }
+
+    private static TransactionType parseType(String name) {
+        try {
+            return TransactionType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Неизвестный тип транзакции: " + name, e);
+        }
+    }
+}
@@ -1,93 +1,140 @@
 package com.financemanager.service;
 
+import com.financemanager.model.Category;
+import com.financemanager.model.CategoryTotals;
+import com.financemanager.model.Money;
+import com.financemanager.model.PeriodTotals;
+import com.financemanager.model.StatisticsReport;
 import com.financemanager.model.Transaction;
 import com.financemanager.model.TransactionType;
 import com.financemanager.model.Wallet;
 import com.financemanager.exception.CategoryNotFoundException;
 import com.financemanager.exception.InsufficientFundsException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 public class TransactionService {
+    private final IdGenerator idGenerator;
+    // Хранилище, которому передаются запросы итогов (SQL); null - итоги только по кошельку в памяти
+    private final StorageBackend storage;
 
-    public void addIncome(Wallet wallet, double amount, String category, String description)
+    public TransactionService() {
+        this(IdGenerator.shared());
+    }
+
+    public TransactionService(StorageBackend storage) {
+        this(IdGenerator.shared(), storage);
+    }
+
+    public TransactionService(IdGenerator idGenerator) {
+        this(idGenerator, null);
+    }
+
+    public TransactionService(IdGenerator idGenerator, StorageBackend storage) {
+        this.idGenerator = idGenerator;
+        this.storage = storage;
+    }
+
+    // Итоги считает хранилище, если умеет; вызывающий сначала сбрасывает отложенную запись кошелька
+    public boolean isQueryPushdown() {
+        return storage != null && storage.supportsQueries();
+    }
+
+    // Запрос к хранилищу возможен, только если в нем уже все правки кошелька
+    private boolean canQuery(Wallet wallet) {
+        return isQueryPushdown() && !wallet.hasPendingChanges();
+    }
+
+    public void addIncome(Wallet wallet, long amount, String category, String description)
             throws CategoryNotFoundException {
 
         validateAmount(amount);
         validateCategory(wallet, category);
+        validateTotals(wallet, amount, 0);
 
-        String transactionId = "INC_" + System.currentTimeMillis();
+        String transactionId = "INC_" + idGenerator.nextId();
         Transaction transaction = new Transaction(transactionId, amount,
                 TransactionType.INCOME, category, description);
 
         wallet.addTransaction(transaction);
-        wallet.setBalance(wallet.getBalance() + amount);
 
-        System.out.println("Доход добавлен: +" + amount + " в категорию '" + category + "'");
+        System.out.println("Доход добавлен: +" + Money.format(amount) + " в категорию '" + category + "'");
         checkFinancialHealth(wallet);
     }
 
-    public void addExpense(Wallet wallet, double amount, String category, String description)
+    public void addExpense(Wallet wallet, long amount, String category, String description)
             throws CategoryNotFoundException, InsufficientFundsException {
 
         validateAmount(amount);
         validateCategory(wallet, category);
 
         if (wallet.getBalance() < amount) {
-            throw new InsufficientFundsException("Недостаточно средств на счете! Доступно: " + wallet.getBalance() + ", требуется: " + amount);
+            throw new InsufficientFundsException("Недостаточно средств на счете! Доступно: " + Money.format(wallet.getBalance())
+                    + ", требуется: " + Money.format(amount));
         }
 
-        String transactionId = "EXP_" + System.currentTimeMillis();
+        validateTotals(wallet, 0, amount);
+
+        String transactionId = "EXP_" + idGenerator.nextId();
         Transaction transaction = new Transaction(transactionId, amount,
                 TransactionType.EXPENSE, category, description);
 
         wallet.addTransaction(transaction);
-        wallet.setBalance(wallet.getBalance() - amount);
 
-        System.out.println("Расход добавлен: -" + amount + " в категорию '" + category + "'");
+        System.out.println("Расход добавлен: -" + Money.format(amount) + " в категорию '" + category + "'");
         checkBudgetExceeded(wallet, category, amount);
         checkFinancialHealth(wallet);
     }
 
-    private void validateAmount(double amount) {
+    private void validateAmount(long amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Сумма должна быть положительной!");
         }
     }
 
+    private void validateTotals(Wallet wallet, long income, long expenses) {
+        if (!wallet.canAdd(income, expenses)) {
+            throw new IllegalArgumentException("Сумма слишком велика: баланс или итоги кошелька превысят "
+                    + Money.format(Long.MAX_VALUE) + "!");
+        }
+    }
+
     private void validateCategory(Wallet wallet, String category) throws CategoryNotFoundException {
         if (!wallet.getCategories().containsKey(category)) {
             throw new CategoryNotFoundException("Категория '" + category + "' не найдена!");
         }
     }
 
-    private void checkBudgetExceeded(Wallet wallet, String category, double expenseAmount) {
-        double budgetLimit = wallet.getCategories().get(category).getBudgetLimit();
+    private void checkBudgetExceeded(Wallet wallet, String category, long expenseAmount) {
+        long budgetLimit = wallet.getCategories().get(category).getBudgetLimit();
         if (budgetLimit > 0) {
-            double categoryExpenses = getExpensesByCategory(wallet, category);
-            double remaining = budgetLimit - categoryExpenses;
+            long categoryExpenses = getExpensesByCategory(wallet, category);
+            long remaining = budgetLimit - categoryExpenses;
 
             if (remaining < 0) {
                 System.out.println("🚨 ПРЕВЫШЕН БЮДЖЕТ в категории '" + category + "'!");
-                System.out.printf("   Лимит: %.2f, Потрачено: %.2f, Превышение: %.2f%n",
-                        budgetLimit, categoryExpenses, Math.abs(remaining));
-            } else if (remaining < budgetLimit * 0.1) {
+                System.out.printf("   Лимит: %s, Потрачено: %s, Превышение: %s%n", Money.format(budgetLimit),
+                        Money.format(categoryExpenses), Money.format(Math.abs(remaining)));
+            } else if (remaining * 10 < budgetLimit) {
                 System.out.println("⚠️  Внимание: В категории '" + category + "' осталось менее 10% бюджета");
-                System.out.printf("   Лимит: %.2f, Потрачено: %.2f, Остаток: %.2f%n",
-                        budgetLimit, categoryExpenses, remaining);
+                System.out.printf("   Лимит: %s, Потрачено: %s, Остаток: %s%n", Money.format(budgetLimit),
+                        Money.format(categoryExpenses), Money.format(remaining));
             }
         }
     }
 
     private void checkFinancialHealth(Wallet wallet) {
-        double totalIncome = getTotalIncome(wallet);
-        double totalExpenses = getTotalExpenses(wallet);
+        long totalIncome = getTotalIncome(wallet);
+        long totalExpenses = getTotalExpenses(wallet);
 
         if (totalExpenses > totalIncome) {
             System.out.println("🚨 КРИТИЧЕСКОЕ: Расходы превышают доходы!");
-            System.out.printf("   Доходы: %.2f, Расходы: %.2f%n", totalIncome, totalExpenses);
-        } else if (totalExpenses > totalIncome * 0.8) {
+            System.out.printf("   Доходы: %s, Расходы: %s%n", Money.format(totalIncome), Money.format(totalExpenses));
+        } else if (totalExpenses * 10 > totalIncome * 8) {
             System.out.println("⚠️  ВНИМАНИЕ: Расходы составляют более 80% от доходов");
         }
 
@@ -98,38 +145,75 @@ public class TransactionService {
         }
     }
 
-    public double getTotalIncome(Wallet wallet) {
-        return wallet.getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public long getTotalIncome(Wallet wallet) {
+        return wallet.getTotalIncome();
     }
 
-    public double getTotalExpenses(Wallet wallet) {
-        return wallet.getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public long getTotalExpenses(Wallet wallet) {
+        return wallet.getTotalExpenses();
     }
 
-    public double getIncomeByCategory(Wallet wallet, String category) {
-        return wallet.getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.INCOME &&
-                        t.getCategory().equals(category))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public long getIncomeByCategory(Wallet wallet, String category) {
+        return wallet.getCategoryTotals(category).getIncome();
     }
 
-    public double getExpensesByCategory(Wallet wallet, String category) {
-        return wallet.getTransactions().stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE &&
-                        t.getCategory().equals(category))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public long getExpensesByCategory(Wallet wallet, String category) {
+        return wallet.getCategoryTotals(category).getExpenses();
+    }
+
+    // Статистика по всем категориям за один проход по поддерживаемым агрегатам кошелька
+    public StatisticsReport buildStatisticsReport(Wallet wallet) {
+        List<StatisticsReport.CategoryStatistics> categories = new ArrayList<>(wallet.getCategories().size());
+        for (Category category : wallet.getCategories().values()) {
+            categories.add(new StatisticsReport.CategoryStatistics(category.getName(), category.getBudgetLimit(),
+                    wallet.getCategoryTotals(category.getName())));
+        }
+        return new StatisticsReport(wallet.getTotalIncome(), wallet.getTotalExpenses(), wallet.getBalance(),
+                wallet.getIncomeCount(), wallet.getExpenseCount(), categories);
+    }
+
+    public StatisticsReport buildStatisticsReport(String username, Wallet wallet) {
+        if (canQuery(wallet)) {
+            StatisticsReport report = storage.queryStatistics(username);
+            if (report != null) {
+                return report;
+            }
+        }
+        return buildStatisticsReport(wallet);
+    }
+
+    public PeriodTotals getTotalsForPeriod(Wallet wallet, LocalDateTime start, LocalDateTime end) {
+        return wallet.getPeriodTotals(Transaction.toEpochMillis(start), Transaction.toEpochMillis(end));
+    }
+
+    public PeriodTotals getTotalsForPeriod(String username, Wallet wallet, LocalDateTime start, LocalDateTime end) {
+        if (canQuery(wallet)) {
+            PeriodTotals totals = storage.queryPeriodTotals(username,
+                    Transaction.toEpochMillis(start), Transaction.toEpochMillis(end));
+            if (totals != null) {
+                return totals;
+            }
+        }
+        return getTotalsForPeriod(wallet, start, end);
+    }
+
+    // Статистика только по выбранным категориям (существование категорий проверяет вызывающий)
+    public Map<String, StatisticsReport.CategoryStatistics> buildCategoryStatistics(String username, Wallet wallet,
+                                                                                   List<String> categories) {
+        Map<String, CategoryTotals> totals = canQuery(wallet)
+                ? storage.queryCategoryTotals(username, categories) : null;
+        Map<String, StatisticsReport.CategoryStatistics> statistics = new HashMap<>();
+        for (String name : categories) {
+            CategoryTotals categoryTotals = totals != null
+                    ? totals.getOrDefault(name, new CategoryTotals()) : wallet.getCategoryTotals(name);
+            statistics.put(name, new StatisticsReport.CategoryStatistics(name,
+                    wallet.getCategories().get(name).getBudgetLimit(), categoryTotals));
+        }
+        return statistics;
     }
 
-    public double getExpensesByCategories(Wallet wallet, List<String> categories) throws CategoryNotFoundException {
-        double total = 0;
+    public long getExpensesByCategories(Wallet wallet, List<String> categories) throws CategoryNotFoundException {
+        long total = 0;
         for (String category : categories) {
             if (!wallet.getCategories().containsKey(category)) {
                 throw new CategoryNotFoundException("Категория '" + category + "' не найдена!");
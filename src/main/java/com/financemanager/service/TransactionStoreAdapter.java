@@ -0,0 +1,52 @@
+package com.financemanager.service;
+
+import com.financemanager.model.TransactionStore;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+// Массив транзакций в том же JSON, что и TransactionAdapter, но запись идет прямо из колонок хранилища
+public class TransactionStoreAdapter extends TypeAdapter<TransactionStore> {
+    private final TransactionAdapter transactionAdapter = new TransactionAdapter();
+
+    @Override
+    public void write(JsonWriter out, TransactionStore transactions) throws IOException {
+        if (transactions == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginArray();
+        for (int row = 0; row < transactions.size(); row++) {
+            out.beginObject();
+            out.name("id").value(transactions.getId(row));
+            out.name("amountKopecks").value(transactions.getAmount(row));
+            out.name("type").value(transactions.getType(row) != null ? transactions.getType(row).name() : null);
+            out.name("category").value(transactions.getCategory(row));
+            out.name("description").value(transactions.getDescription(row));
+            out.name("date").value(transactions.getDate(row));
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    @Override
+    public TransactionStore read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        TransactionStore transactions = new TransactionStore();
+        in.beginArray();
+        while (in.hasNext()) {
+            transactions.add(transactionAdapter.read(in));
+        }
+        in.endArray();
+        transactions.trimToSize();
+        return transactions;
+    }
+}
@@ -0,0 +1,159 @@
+package com.financemanager.service;
+
+import com.financemanager.exception.CategoryNotFoundException;
+import com.financemanager.exception.InsufficientFundsException;
+import com.financemanager.model.Money;
+import com.financemanager.model.Session;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Transfer;
+import com.financemanager.model.Wallet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Переводы между кошельками. Оба кошелька блокируются в едином порядке, а перевод сначала
+// одной записью попадает в журнал переводов и только потом применяется к кошелькам:
+// после сбоя недостающие части переводов из журнала дописываются в кошельки при запуске.
+public class TransferService {
+    private static final String CATEGORY = "Переводы";
+    // Журнал переводов очищается, когда становится больше этого размера и все переводы уже в кошельках
+    private static final long COMPACTION_BYTES = 1024 * 1024;
+
+    private final StorageBackend storage;
+    private final WalletCache walletCache;
+    private final WalletLocks locks;
+    private final WalletPersister persister;
+    private final IdGenerator idGenerator;
+    // Переводы идут параллельно под чтением; очистке журнала нужна запись, то есть ни одного перевода в работе
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+    public TransferService(StorageBackend storage, WalletCache walletCache) {
+        this(storage, walletCache, IdGenerator.shared());
+    }
+
+    public TransferService(StorageBackend storage, WalletCache walletCache, IdGenerator idGenerator) {
+        this.storage = storage;
+        this.walletCache = walletCache;
+        this.locks = walletCache.getLocks();
+        this.persister = walletCache.getPersister();
+        this.idGenerator = idGenerator;
+        recover();
+    }
+
+    public Transfer transfer(Session session, String targetUsername, long amount, String description)
+            throws InsufficientFundsException, CategoryNotFoundException {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Сумма должна быть положительной!");
+        }
+        if (!session.isOpen()) {
+            throw new IllegalStateException("Сессия пользователя " + session.getUsername() + " закрыта");
+        }
+
+        String sourceUsername = session.getUsername();
+        Wallet source = session.getWallet();
+        // Кошелек получателя берется из кэша до блокировок и удерживается там до конца перевода
+        Wallet target = walletCache.acquire(targetUsername);
+        Transfer transfer;
+        try {
+            journalLock.readLock().lock();
+            locks.lockPair(sourceUsername, targetUsername);
+            try {
+                if (!source.getCategories().containsKey(CATEGORY) || !target.getCategories().containsKey(CATEGORY)) {
+                    throw new CategoryNotFoundException("Категория '" + CATEGORY + "' не найдена!");
+                }
+                if (source.getBalance() < amount) {
+                    throw new InsufficientFundsException("Недостаточно средств для перевода!");
+                }
+                // Проверка до записи в журнал: записанный перевод обязан дойти до обоих кошельков
+                if (!source.canAdd(0, amount) || !target.canAdd(amount, 0)) {
+                    throw new IllegalArgumentException("Сумма перевода слишком велика: баланс или итоги кошелька "
+                            + "превысят " + Money.format(Long.MAX_VALUE) + "!");
+                }
+
+                Transaction expense = new Transaction("EXP_" + idGenerator.nextId(), amount, TransactionType.EXPENSE,
+                        CATEGORY, "Перевод пользователю: " + targetUsername + ". " + description);
+                Transaction income = new Transaction("INC_" + idGenerator.nextId(), amount, TransactionType.INCOME,
+                        CATEGORY, "Перевод от пользователя: " + sourceUsername + ". " + description,
+                        expense.getDate());
+                transfer = new Transfer(idGenerator.nextId(), sourceUsername, targetUsername, expense, income);
+
+                try {
+                    storage.appendTransfer(transfer);
+                } catch (IOException e) {
+                    System.out.println("Ошибка при записи перевода: " + e.getMessage());
+                    throw new RuntimeException("Перевод не выполнен", e);
+                }
+
+                // Запись кошельков может быть отложенной: до нее перевод защищен журналом переводов
+                source.addTransaction(expense);
+                target.addTransaction(income);
+                persister.markDirty(sourceUsername, source);
+                persister.markDirty(targetUsername, target);
+            } finally {
+                locks.unlockPair(sourceUsername, targetUsername);
+                journalLock.readLock().unlock();
+            }
+        } finally {
+            walletCache.release(targetUsername);
+        }
+
+        compactIfNeeded();
+        return transfer;
+    }
+
+    // Дописывает в кошельки части переводов, которые были в журнале, но не дошли до файлов кошельков
+    private void recover() {
+        List<Transfer> transfers = storage.loadTransfers();
+        if (transfers.isEmpty()) {
+            storage.clearTransfers();
+            return;
+        }
+
+        int repaired = 0;
+        for (Transfer transfer : transfers) {
+            repaired += applyIfMissing(transfer.getFrom(), transfer.getExpense());
+            repaired += applyIfMissing(transfer.getTo(), transfer.getIncome());
+        }
+        if (repaired > 0) {
+            System.out.println("Восстановлено частей переводов после сбоя: " + repaired);
+        }
+        if (walletCache.flushAll()) {
+            storage.clearTransfers();
+        }
+    }
+
+    private int applyIfMissing(String username, Transaction leg) {
+        Wallet wallet = walletCache.acquire(username);
+        try {
+            locks.lockFor(username).lock();
+            try {
+                if (wallet.findTransaction(leg.getId()) != null) {
+                    return 0;
+                }
+                wallet.addTransaction(leg);
+                storage.saveWallet(wallet, username);
+                return 1;
+            } finally {
+                locks.lockFor(username).unlock();
+            }
+        } finally {
+            walletCache.release(username);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (storage.getTransfersJournalSize() < COMPACTION_BYTES || !journalLock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            // Несохраненный кошелек (например, после ошибки записи) держит свои переводы в журнале
+            if (storage.getTransfersJournalSize() >= COMPACTION_BYTES && walletCache.flushAll()) {
+                storage.clearTransfers();
+            }
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+}
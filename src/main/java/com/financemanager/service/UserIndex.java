@@ -0,0 +1,28 @@
+package com.financemanager.service;
+
+import com.financemanager.model.User;
+
+import java.util.Map;
+
+// Учетные записи, сохраненные к моменту запуска. Запись разбирается только при обращении
+// к ней (вход, поиск получателя перевода), поэтому запуск не зависит от их числа
+public interface UserIndex {
+    int size();
+    boolean contains(String username);
+    // null, если такого пользователя нет
+    User load(String username);
+
+    // Индекс поверх уже загруженных записей (хранилища без отложенного разбора)
+    static UserIndex of(Map<String, User> users) {
+        return new UserIndex() {
+            @Override
+            public int size() { return users.size(); }
+
+            @Override
+            public boolean contains(String username) { return users.containsKey(username); }
+
+            @Override
+            public User load(String username) { return users.get(username); }
+        };
+    }
+}
@@ -0,0 +1,373 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Category;
+import com.financemanager.model.CategoryDictionary;
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Двоичный снимок кошелька. Целые записываются как varint (7 бит на байт), знаковые - через zigzag.
+//   заголовок:  "FMWB", версия формата (байт), версия кошелька, баланс
+//   строки:     число, затем на каждую длина общего начала с предыдущей строкой (в символах)
+//               и остаток в UTF-8 (длина и байты); названия категорий, описания, текстовые идентификаторы
+//   категории:  число, затем номер названия в таблице строк и лимит
+//   транзакции: число, затем на каждую флаги, идентификатор (разность с предыдущим числовым
+//               или номер строки), сумма, разность времени с предыдущей, номера категории и описания
+final class WalletBinaryFormat {
+    private static final int MAGIC = 0x464D5742;
+    private static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Больше, чем занимает любая транзакция без строк
+    private static final int MAX_ROW_BYTES = 64;
+
+    // Флаги транзакции в файле (не совпадают с битами TransactionStore)
+    private static final int INCOME = 1;
+    private static final int NO_TYPE = 2;
+    private static final int TEXT_ID = 4;
+    private static final int INCOME_PREFIX = 8;
+    private static final int NO_CATEGORY = 16;
+    private static final int NO_DESCRIPTION = 32;
+    private static final int NO_DATE = 64;
+
+    private WalletBinaryFormat() {
+    }
+
+    static void write(Wallet wallet, FileChannel channel) throws IOException {
+        TransactionStore transactions = wallet.getTransactions();
+        int size = transactions.size();
+
+        // Первый проход собирает таблицу строк: каждое название и описание пишется один раз
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<String, Category> categories = wallet.getCategories();
+        int[] categoryNames = new int[categories.size()];
+        int next = 0;
+        for (String name : categories.keySet()) {
+            categoryNames[next++] = indexOf(name, stringIndex, strings);
+        }
+        int[] rowCategories = new int[size];
+        int[] rowTexts = new int[size * 2];
+        int[] categoryIndexById = new int[transactions.getCategoryCount()];
+        Arrays.fill(categoryIndexById, -1);
+        for (int row = 0; row < size; row++) {
+            int categoryId = transactions.getCategoryId(row);
+            if (categoryId >= 0 && categoryIndexById[categoryId] < 0) {
+                categoryIndexById[categoryId] = indexOf(transactions.getCategoryName(categoryId), stringIndex, strings);
+            }
+            rowCategories[row] = categoryId >= 0 ? categoryIndexById[categoryId] : -1;
+            rowTexts[row * 2] = transactions.hasTextId(row)
+                    ? indexOf(transactions.getId(row), stringIndex, strings) : -1;
+            String description = transactions.getDescription(row);
+            rowTexts[row * 2 + 1] = description != null ? indexOf(description, stringIndex, strings) : -1;
+        }
+
+        Output out = new Output(channel);
+        out.ensure(MAX_ROW_BYTES);
+        out.buffer.putInt(MAGIC);
+        out.buffer.put(VERSION);
+        out.putVarLong(wallet.getVersion());
+        out.putSignedVarLong(wallet.getBalance());
+
+        // Соседние описания обычно различаются только хвостом ("... 1041", "... 1042")
+        out.putVarLong(strings.size());
+        String previous = "";
+        for (String string : strings) {
+            out.putString(string, previous);
+            previous = string;
+        }
+
+        out.putVarLong(categories.size());
+        next = 0;
+        for (Category category : categories.values()) {
+            out.ensure(MAX_ROW_BYTES);
+            out.putVarLong(categoryNames[next++]);
+            out.putSignedVarLong(category.getBudgetLimit());
+        }
+
+        out.putVarLong(size);
+        long previousId = 0;
+        long previousTimestamp = 0;
+        for (int row = 0; row < size; row++) {
+            out.ensure(MAX_ROW_BYTES);
+            TransactionType type = transactions.getType(row);
+            int rowFlags = type == null ? NO_TYPE : type == TransactionType.INCOME ? INCOME : 0;
+            if (rowTexts[row * 2] >= 0) {
+                rowFlags |= TEXT_ID;
+            } else if (transactions.hasIncomeIdPrefix(row)) {
+                rowFlags |= INCOME_PREFIX;
+            }
+            if (rowCategories[row] < 0) {
+                rowFlags |= NO_CATEGORY;
+            }
+            if (rowTexts[row * 2 + 1] < 0) {
+                rowFlags |= NO_DESCRIPTION;
+            }
+            if (!transactions.hasDate(row)) {
+                rowFlags |= NO_DATE;
+            }
+            out.buffer.put((byte) rowFlags);
+
+            if (rowTexts[row * 2] >= 0) {
+                out.putVarLong(rowTexts[row * 2]);
+            } else {
+                // Идентификаторы из IdGenerator растут со временем, поэтому разность обычно короткая
+                long idNumber = transactions.getIdNumber(row);
+                out.putSignedVarLong(idNumber - previousId);
+                previousId = idNumber;
+            }
+            out.putSignedVarLong(transactions.getAmount(row));
+            long timestamp = transactions.getTimestamp(row);
+            out.putSignedVarLong(timestamp - previousTimestamp);
+            previousTimestamp = timestamp;
+            if (rowCategories[row] >= 0) {
+                out.putVarLong(rowCategories[row]);
+            }
+            if (rowTexts[row * 2 + 1] >= 0) {
+                out.putVarLong(rowTexts[row * 2 + 1]);
+            }
+        }
+        out.drain();
+    }
+
+    static Wallet read(FileChannel channel) throws IOException {
+        long length = channel.size();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Файл кошелька слишком большой: " + length + " байт");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Читаем файл целиком
+        }
+        buffer.flip();
+
+        Input in = new Input(buffer.array(), buffer.limit());
+        if (in.length < 5 || buffer.getInt() != MAGIC) {
+            throw new StreamCorruptedException("Файл не является двоичным снимком кошелька");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            // Не повреждение: файл записан более новой версией приложения
+            throw new IOException("Неподдерживаемая версия двоичного снимка кошелька: " + version);
+        }
+        in.position = 5;
+        try {
+            return decode(in);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new StreamCorruptedException("Двоичный снимок кошелька поврежден: " + e);
+        }
+    }
+
+    private static Wallet decode(Input in) throws StreamCorruptedException {
+        long walletVersion = in.readVarLong();
+        long balance = in.readSignedVarLong();
+
+        String[] strings = new String[in.readCount()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readString();
+        }
+
+        int categoryCount = in.readCount();
+        Map<String, Category> categories = new LinkedHashMap<>();
+        for (int i = 0; i < categoryCount; i++) {
+            String name = strings[in.readCount()];
+            categories.put(name, new Category(name, in.readSignedVarLong()));
+        }
+
+        int size = in.readCount();
+        TransactionStore transactions = new TransactionStore();
+        transactions.ensureCapacity(size);
+        CategoryDictionary dictionary = transactions.getCategoryDictionary();
+        int[] categoryIds = new int[strings.length];
+        Arrays.fill(categoryIds, -1);
+        long idNumber = 0;
+        long timestamp = 0;
+        for (int row = 0; row < size; row++) {
+            int rowFlags = in.readByte();
+            String textId = null;
+            if ((rowFlags & TEXT_ID) != 0) {
+                textId = strings[in.readCount()];
+            } else {
+                idNumber += in.readSignedVarLong();
+            }
+            long amount = in.readSignedVarLong();
+            timestamp += in.readSignedVarLong();
+            int categoryId = -1;
+            if ((rowFlags & NO_CATEGORY) == 0) {
+                int index = in.readCount();
+                categoryId = categoryIds[index];
+                if (categoryId < 0) {
+                    categoryId = dictionary.intern(strings[index]);
+                    categoryIds[index] = categoryId;
+                }
+            }
+            String description = (rowFlags & NO_DESCRIPTION) == 0 ? strings[in.readCount()] : null;
+            TransactionType type = (rowFlags & NO_TYPE) != 0 ? null
+                    : (rowFlags & INCOME) != 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+
+            transactions.addRow(textId, idNumber, (rowFlags & INCOME_PREFIX) != 0, type, amount, categoryId,
+                    description, timestamp, (rowFlags & NO_DATE) == 0);
+        }
+        if (in.position != in.length) {
+            throw new StreamCorruptedException("Лишние данные в конце двоичного снимка кошелька");
+        }
+        transactions.trimToSize();
+
+        Wallet wallet = new Wallet();
+        wallet.restoreSnapshot(balance, categories, transactions, walletVersion);
+        return wallet;
+    }
+
+    private static int indexOf(String string, Map<String, Integer> stringIndex, List<String> strings) {
+        Integer index = stringIndex.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndex.put(string, index);
+        }
+        return index;
+    }
+
+    // Запись через буфер, который сливается в канал по мере заполнения
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void putVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putSignedVarLong(long value) {
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void putString(String string, String previous) throws IOException {
+            int shared = 0;
+            int limit = Math.min(string.length(), previous.length());
+            while (shared < limit && string.charAt(shared) == previous.charAt(shared)) {
+                shared++;
+            }
+            // Суррогатная пара не разрывается между общим началом и остатком
+            if (shared > 0 && Character.isHighSurrogate(string.charAt(shared - 1))) {
+                shared--;
+            }
+            byte[] bytes = string.substring(shared).getBytes(StandardCharsets.UTF_8);
+            ensure(MAX_ROW_BYTES);
+            putVarLong(shared);
+            putVarLong(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+    }
+
+    // Разбор прямо из массива прочитанного файла; выход за его конец означает обрезанный снимок
+    private static final class Input {
+        private final byte[] data;
+        private final int length;
+        private int position;
+        // Предыдущая строка таблицы, к общему началу которой дописывается остаток следующей
+        private char[] chars = new char[64];
+        private int charCount;
+
+        Input(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        int readByte() {
+            if (position >= length) {
+                throw new IndexOutOfBoundsException("конец файла");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("слишком длинное число");
+        }
+
+        long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        // Число элементов или номер строки: неотрицательное и не больше оставшихся байтов файла
+        int readCount() {
+            long value = readVarLong();
+            if (value > length) {
+                throw new IllegalArgumentException("неверное число " + value);
+            }
+            return (int) value;
+        }
+
+        String readString() {
+            int shared = readCount();
+            int bytes = readCount();
+            if (shared > charCount || bytes > length - position) {
+                throw new IndexOutOfBoundsException("конец файла");
+            }
+            if (shared + bytes > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(shared + bytes, chars.length * 2));
+            }
+            // Остаток из ASCII (цифры номеров) копируется без декодера
+            int end = shared;
+            int i = position;
+            while (i < position + bytes && data[i] >= 0) {
+                chars[end++] = (char) data[i++];
+            }
+            if (i < position + bytes) {
+                String tail = new String(data, i, position + bytes - i, StandardCharsets.UTF_8);
+                tail.getChars(0, tail.length(), chars, end);
+                end += tail.length();
+            }
+            position += bytes;
+            charCount = end;
+            return new String(chars, 0, end);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Wallet;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Кэш кошельков с загрузкой по требованию и вытеснением давно не использованных (LRU).
+// Порядок блокировок: сначала кэш, затем блокировка кошелька; держа блокировку кошелька, в кэш не обращаются
+public class WalletCache {
+    // Грубая оценка памяти: пустой кошелек с категориями и одна транзакция
+    private static final long WALLET_BASE_BYTES = 2 * 1024;
+    private static final long TRANSACTION_BYTES = 128;
+
+    private final StorageBackend storage;
+    private final int maxWallets;
+    private final long maxBytes;
+    private final WalletLocks locks;
+    private final WalletPersister persister;
+    private final Map<String, Wallet> wallets = new LinkedHashMap<>(16, 0.75f, true);
+    // Кошельки открытых сессий и идущих операций не вытесняются; значение - число удержаний
+    private final Map<String, Integer> pinned = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public WalletCache(StorageBackend storage) {
+        this(storage,
+                Integer.getInteger("finance.cache.maxWallets", 100),
+                Long.getLong("finance.cache.maxBytes", 64L * 1024 * 1024));
+    }
+
+    public WalletCache(StorageBackend storage, int maxWallets, long maxBytes) {
+        this(storage, maxWallets, maxBytes, new WalletLocks());
+    }
+
+    public WalletCache(StorageBackend storage, int maxWallets, long maxBytes, WalletLocks locks) {
+        this.storage = storage;
+        this.maxWallets = maxWallets;
+        this.maxBytes = maxBytes;
+        this.locks = locks;
+        this.persister = new WalletPersister(storage, locks);
+    }
+
+    public WalletLocks getLocks() {
+        return locks;
+    }
+
+    public WalletPersister getPersister() {
+        return persister;
+    }
+
+    public synchronized Wallet get(String username) {
+        Wallet wallet = wallets.get(username);
+        if (wallet != null) {
+            hits++;
+            return wallet;
+        }
+
+        misses++;
+        wallet = storage.loadWallet(username);
+        wallets.put(username, wallet);
+        evictIfNeeded();
+        return wallet;
+    }
+
+    // Загружает кошелек и удерживает его в памяти до парного release
+    public synchronized Wallet acquire(String username) {
+        pin(username);
+        return get(username);
+    }
+
+    public synchronized void release(String username) {
+        unpin(username);
+    }
+
+    public synchronized void pin(String username) {
+        pinned.merge(username, 1, Integer::sum);
+    }
+
+    public synchronized void unpin(String username) {
+        pinned.computeIfPresent(username, (k, count) -> count > 1 ? count - 1 : null);
+        evictIfNeeded();
+    }
+
+    // Записывает несохраненные изменения кошелька, оставляя его в кэше
+    public synchronized void flush(String username) {
+        persister.flush(username);
+        Wallet wallet = wallets.get(username);
+        if (wallet != null) {
+            save(username, wallet, locks.lockFor(username));
+        }
+    }
+
+    // Возвращает true, если все кошельки кэша записаны
+    public synchronized boolean flushAll() {
+        boolean saved = true;
+        for (Map.Entry<String, Wallet> entry : wallets.entrySet()) {
+            saved &= save(entry.getKey(), entry.getValue(), locks.lockFor(entry.getKey()));
+        }
+        return saved;
+    }
+
+    // Завершение работы: отложенные записи и все несохраненные кошельки записываются на диск
+    public void close() {
+        persister.close();
+        flushAll();
+    }
+
+    private boolean save(String username, Wallet wallet, ReentrantLock lock) {
+        lock.lock();
+        try {
+            if (wallet.hasPendingChanges()) {
+                storage.saveWallet(wallet, username);
+            }
+            return !wallet.hasPendingChanges();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictIfNeeded() {
+        long totalBytes = 0;
+        for (Wallet wallet : wallets.values()) {
+            totalBytes += estimateBytes(wallet);
+        }
+
+        // Итерация идет от давно использованных к недавним
+        Iterator<Map.Entry<String, Wallet>> iterator = wallets.entrySet().iterator();
+        while ((wallets.size() > maxWallets || totalBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, Wallet> entry = iterator.next();
+            if (pinned.containsKey(entry.getKey())) {
+                continue;
+            }
+
+            // Занятый другим потоком кошелек не ждем, а пропускаем до следующего вытеснения
+            ReentrantLock lock = locks.lockFor(entry.getKey());
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                Wallet wallet = entry.getValue();
+                if (wallet.hasPendingChanges()) {
+                    storage.saveWallet(wallet, entry.getKey());
+                    if (wallet.hasPendingChanges()) {
+                        // Запись не удалась, кошелек остается в памяти до следующей попытки
+                        continue;
+                    }
+                }
+                totalBytes -= estimateBytes(wallet);
+                iterator.remove();
+                evictions++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static long estimateBytes(Wallet wallet) {
+        return WALLET_BASE_BYTES + wallet.getTransactions().size() * TRANSACTION_BYTES;
+    }
+
+    public synchronized int size() { return wallets.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+}
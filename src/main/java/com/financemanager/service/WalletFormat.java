@@ -0,0 +1,17 @@
+package com.financemanager.service;
+
+// Формат снимков кошельков; журнал изменений в обоих случаях остается JSON-строками
+public enum WalletFormat {
+    // Текстовый снимок Gson, удобный для просмотра и экспорта
+    JSON(".json"),
+    // Компактный двоичный снимок, см. WalletBinaryFormat
+    BINARY(".bin");
+
+    private final String extension;
+
+    WalletFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() { return extension; }
+}
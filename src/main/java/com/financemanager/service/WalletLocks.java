@@ -0,0 +1,63 @@
+package com.financemanager.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Полосатые блокировки кошельков: пользователь всегда попадает на одну и ту же блокировку,
+// а число блокировок не растет с числом пользователей
+public class WalletLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public WalletLocks() {
+        this(Integer.getInteger("finance.lockStripes", 64));
+    }
+
+    public WalletLocks(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Число блокировок должно быть положительным");
+        }
+        // Округляем до степени двойки, чтобы номер полосы брался маской
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public ReentrantLock lockFor(String username) {
+        return stripes[stripeOf(username)];
+    }
+
+    // Блокирует кошельки двух пользователей в порядке номеров полос: встречные переводы
+    // берут блокировки в одном порядке и не могут заблокировать друг друга
+    public void lockPair(String first, String second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        stripes[Math.min(a, b)].lock();
+        if (a != b) {
+            stripes[Math.max(a, b)].lock();
+        }
+    }
+
+    public void unlockPair(String first, String second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        if (a != b) {
+            stripes[Math.max(a, b)].unlock();
+        }
+        stripes[Math.min(a, b)].unlock();
+    }
+
+    int stripeOf(String username) {
+        int hash = username.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,136 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Wallet;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Отложенная запись кошельков: операции только помечают кошелек измененным, а фоновый поток
+// раз в окно записывает каждый измененный кошелек один раз, сколько бы правок в нем ни накопилось.
+// При нулевом окне запись идет сразу в вызывающем потоке, как раньше.
+public class WalletPersister {
+    private final StorageBackend storage;
+    private final WalletLocks locks;
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+    // Измененные кошельки и момент первой неучтенной правки (для задержки записи)
+    private final Map<String, Pending> dirty = new ConcurrentHashMap<>();
+
+    private final AtomicLong marks = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    public WalletPersister(StorageBackend storage, WalletLocks locks) {
+        this(storage, locks, Long.getLong("finance.persist.windowMillis", 200));
+    }
+
+    public WalletPersister(StorageBackend storage, WalletLocks locks, long windowMillis) {
+        this.storage = storage;
+        this.locks = locks;
+        this.windowMillis = windowMillis;
+        if (windowMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wallet-persister");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::flushDirty, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    // Отмечает кошелек для записи; вызывается под блокировкой кошелька после его изменения
+    public void markDirty(String username, Wallet wallet) {
+        marks.incrementAndGet();
+        if (scheduler == null || closed) {
+            save(username, wallet, System.nanoTime());
+            return;
+        }
+        // Кошелек мог быть вытеснен из кэша и загружен заново: в очереди остается последний экземпляр,
+        // а момент первой неучтенной правки сохраняется
+        long now = System.nanoTime();
+        dirty.compute(username, (key, pending) -> pending == null ? new Pending(wallet, now)
+                : pending.wallet == wallet ? pending : new Pending(wallet, pending.since));
+    }
+
+    // Записывает кошелек пользователя сразу, не дожидаясь окна (выход из сессии)
+    public void flush(String username) {
+        Pending pending = dirty.remove(username);
+        if (pending != null) {
+            save(username, pending.wallet, pending.since);
+        }
+    }
+
+    public void flushDirty() {
+        Iterator<Map.Entry<String, Pending>> iterator = dirty.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Pending> entry = iterator.next();
+            // Правка после удаления записи снова пометит кошелек и попадет в следующее окно
+            iterator.remove();
+            save(entry.getKey(), entry.getValue().wallet, entry.getValue().since);
+        }
+    }
+
+    // Останавливает фоновый поток и записывает все, что осталось; дальнейшие правки пишутся сразу
+    public void close() {
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushDirty();
+    }
+
+    private void save(String username, Wallet wallet, long since) {
+        ReentrantLock lock = locks.lockFor(username);
+        lock.lock();
+        try {
+            if (wallet.hasPendingChanges()) {
+                storage.saveWallet(wallet, username);
+                writes.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        long latency = System.nanoTime() - since;
+        flushes.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    // Метрики
+    public long getWindowMillis() { return windowMillis; }
+    public int getQueueDepth() { return dirty.size(); }
+    public long getMarks() { return marks.get(); }
+    public long getWrites() { return writes.get(); }
+    public double getMaxFlushLatencyMillis() { return maxLatencyNanos.get() / 1_000_000.0; }
+
+    // Средняя задержка от первой правки до записи на диск
+    public double getAverageFlushLatencyMillis() {
+        return totalLatencyNanos.get() / 1_000_000.0 / Math.max(1, flushes.get());
+    }
+
+    private static class Pending {
+        private final Wallet wallet;
+        private final long since;
+
+        Pending(Wallet wallet, long since) {
+            this.wallet = wallet;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Category;
+import com.financemanager.model.CategoryTotals;
+import com.financemanager.model.PeriodTotals;
+import com.financemanager.model.StatisticsReport;
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Кошелек только для чтения поверх отображенных в память файлов (FileChannel.map) для отчетов:
+// строки транзакций фиксированной ширины в username.rows, идентификаторы и описания в username.text.
+// Строки перебираются курсором без создания объектов, поэтому история любого размера не попадает
+// в кучу, а страницы файлов делятся между процессами через кэш ОС. Файлы дописываются при каждом
+// сохранении кошелька (FileService), число подтвержденных строк, баланс и категории - в username.view.
+public class WalletReportView implements Closeable {
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 48;
+    private static final int MAGIC = 0x464D5752;
+    private static final int VERSION = 1;
+    // Строк в одном отображении: отображение ограничено 2 ГБ, а строка не должна попадать на границу
+    private static final int ROWS_PER_SEGMENT = 1 << 24;
+    private static final long TEXT_SEGMENT_BYTES = 1L << 30;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Смещения полей строки
+    private static final int TIMESTAMP = 0;
+    private static final int AMOUNT = 8;
+    // Число из идентификатора INC_/EXP_ либо длина текстового идентификатора в байтах
+    private static final int ID_NUMBER = 16;
+    // Начало текста строки в username.text: текстовый идентификатор, затем описание
+    private static final int TEXT_OFFSET = 24;
+    private static final int DESCRIPTION_LENGTH = 32;
+    private static final int CATEGORY = 36;
+    private static final int FLAGS = 40;
+
+    private static final byte INCOME = 1;
+    private static final byte NO_TYPE = 2;
+    private static final byte TEXT_ID = 4;
+    private static final byte INCOME_PREFIX = 8;
+    private static final byte NO_DATE = 16;
+
+    private final Meta meta;
+    private final FileChannel rowsChannel;
+    private final FileChannel textChannel;
+    private final MappedByteBuffer[] rowSegments;
+    private final MappedByteBuffer[] textSegments;
+
+    WalletReportView(Meta meta, FileChannel rowsChannel, FileChannel textChannel) throws IOException {
+        this.meta = meta;
+        this.rowsChannel = rowsChannel;
+        this.textChannel = textChannel;
+        if (rowsChannel.size() < HEADER_SIZE + meta.rows * RECORD_SIZE || textChannel.size() < meta.textBytes) {
+            throw new IOException("Файлы отчетного представления короче подтвержденных данных");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        rowsChannel.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_SIZE) {
+            throw new IOException("Неизвестный формат файла строк отчетного представления");
+        }
+
+        rowSegments = new MappedByteBuffer[(int) ((meta.rows + ROWS_PER_SEGMENT - 1) / ROWS_PER_SEGMENT)];
+        for (int i = 0; i < rowSegments.length; i++) {
+            long firstRow = (long) i * ROWS_PER_SEGMENT;
+            long rows = Math.min(ROWS_PER_SEGMENT, meta.rows - firstRow);
+            rowSegments[i] = rowsChannel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + firstRow * RECORD_SIZE, rows * RECORD_SIZE);
+            rowSegments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        textSegments = new MappedByteBuffer[(int) ((meta.textBytes + TEXT_SEGMENT_BYTES - 1) / TEXT_SEGMENT_BYTES)];
+        for (int i = 0; i < textSegments.length; i++) {
+            long start = i * TEXT_SEGMENT_BYTES;
+            textSegments[i] = textChannel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(TEXT_SEGMENT_BYTES, meta.textBytes - start));
+        }
+    }
+
+    public long size() { return meta.rows; }
+    public long getBalance() { return meta.balance; }
+    public long getVersion() { return meta.version; }
+
+    // Текущее название категории по номеру из строки (после переименований и слияний)
+    public String getCategoryName(int categoryId) { return meta.categoryNames[categoryId]; }
+    public int getCategoryCount() { return meta.categoryNames.length; }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Та же статистика, что TransactionService.buildStatisticsReport, за один проход по файлу строк
+    public StatisticsReport buildReport() {
+        CategoryTotals all = new CategoryTotals();
+        CategoryTotals[] byId = new CategoryTotals[getCategoryCount()];
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            TransactionType type = cursor.isIncome() ? TransactionType.INCOME : TransactionType.EXPENSE;
+            long amount = cursor.getAmount();
+            all.add(type, amount);
+            int categoryId = cursor.getCategoryId();
+            if (categoryId >= 0) {
+                if (byId[categoryId] == null) {
+                    byId[categoryId] = new CategoryTotals();
+                }
+                byId[categoryId].add(type, amount);
+            }
+        }
+
+        // После слияния категорий несколько номеров носят одно название
+        Map<String, CategoryTotals> byName = new HashMap<>();
+        for (int categoryId = 0; categoryId < byId.length; categoryId++) {
+            if (byId[categoryId] != null) {
+                byName.merge(getCategoryName(categoryId), byId[categoryId], (a, b) -> {
+                    a.merge(b);
+                    return a;
+                });
+            }
+        }
+
+        List<StatisticsReport.CategoryStatistics> categories = new ArrayList<>(meta.categories.size());
+        for (Category category : meta.categories) {
+            CategoryTotals totals = byName.get(category.getName());
+            categories.add(new StatisticsReport.CategoryStatistics(category.getName(), category.getBudgetLimit(),
+                    totals != null ? totals : new CategoryTotals()));
+        }
+        return new StatisticsReport(all.getIncome(), all.getExpenses(), meta.balance,
+                all.getIncomeCount(), all.getExpenseCount(), categories);
+    }
+
+    // Итоги за период [from, to] в миллисекундах (включительно), как Wallet.getPeriodTotals
+    public PeriodTotals getPeriodTotals(long from, long to) {
+        long income = 0;
+        long expenses = 0;
+        int count = 0;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            long timestamp = cursor.getTimestamp();
+            if (timestamp < from || timestamp > to) {
+                continue;
+            }
+            if (cursor.isIncome()) {
+                income += cursor.getAmount();
+            } else {
+                expenses += cursor.getAmount();
+            }
+            count++;
+        }
+        return new PeriodTotals(income, expenses, count);
+    }
+
+    // Отображения освобождаются сборщиком мусора; закрываются только каналы
+    @Override
+    public void close() {
+        try {
+            rowsChannel.close();
+            textChannel.close();
+        } catch (IOException e) {
+            // Файлы открыты только на чтение, терять нечего
+        }
+    }
+
+    // Курсор-легковес: один объект на проход, поля читаются прямо из отображенной строки
+    public final class Cursor {
+        private long row = -1;
+        private MappedByteBuffer segment;
+        private int offset;
+
+        public boolean next() {
+            if (row + 1 >= meta.rows) {
+                return false;
+            }
+            row++;
+            segment = rowSegments[(int) (row / ROWS_PER_SEGMENT)];
+            offset = (int) (row % ROWS_PER_SEGMENT) * RECORD_SIZE;
+            return true;
+        }
+
+        public long getRow() { return row; }
+        public long getTimestamp() { return segment.getLong(offset + TIMESTAMP); }
+        public long getAmount() { return segment.getLong(offset + AMOUNT); }
+        public boolean isIncome() { return (flags() & INCOME) != 0; }
+        public boolean hasDate() { return (flags() & NO_DATE) == 0; }
+        public boolean hasTextId() { return (flags() & TEXT_ID) != 0; }
+        public boolean hasIncomeIdPrefix() { return (flags() & INCOME_PREFIX) != 0; }
+        public boolean hasDescription() { return segment.getInt(offset + DESCRIPTION_LENGTH) >= 0; }
+        public int getCategoryId() { return segment.getInt(offset + CATEGORY); }
+
+        // Число из идентификатора INC_/EXP_; для текстового идентификатора - его длина в байтах
+        public long getIdNumber() { return segment.getLong(offset + ID_NUMBER); }
+        public int getDescriptionLength() { return segment.getInt(offset + DESCRIPTION_LENGTH); }
+
+        public TransactionType getType() {
+            if ((flags() & NO_TYPE) != 0) {
+                return null;
+            }
+            return (flags() & INCOME) != 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+        }
+
+        // Байты UTF-8 текстового идентификатора (длина - getIdNumber) в target с начала
+        public void copyTextId(byte[] target) {
+            copyText(segment.getLong(offset + TEXT_OFFSET), target, (int) getIdNumber());
+        }
+
+        // Байты UTF-8 описания (длина - getDescriptionLength) в target с начала
+        public void copyDescription(byte[] target) {
+            long start = segment.getLong(offset + TEXT_OFFSET) + (hasTextId() ? getIdNumber() : 0);
+            copyText(start, target, getDescriptionLength());
+        }
+
+        private byte flags() {
+            return segment.get(offset + FLAGS);
+        }
+    }
+
+    // Текст может переходить через границу отображений
+    private void copyText(long position, byte[] target, int length) {
+        int copied = 0;
+        while (copied < length) {
+            MappedByteBuffer text = textSegments[(int) (position / TEXT_SEGMENT_BYTES)];
+            int start = (int) (position % TEXT_SEGMENT_BYTES);
+            int chunk = Math.min(length - copied, text.capacity() - start);
+            text.get(start, target, copied, chunk);
+            copied += chunk;
+            position += chunk;
+        }
+    }
+
+    // Сведения о подтвержденной части файлов; пишутся в username.view после дописывания строк
+    static final class Meta {
+        private long version;
+        private long balance;
+        private long rows;
+        private long textBytes;
+        private List<Category> categories = new ArrayList<>();
+        // По номеру категории в файле строк: строка, по которой номер был заведен, и текущее название
+        private long[] categoryRows = new long[0];
+        private String[] categoryNames = new String[0];
+
+        long getRows() { return rows; }
+        long getTextBytes() { return textBytes; }
+        long getVersion() { return version; }
+    }
+
+    // Продолжает ли кошелек подтвержденную часть файлов: строк не меньше, последняя строка совпадает
+    static boolean continues(Meta meta, File rowsFile, File textFile, Wallet wallet) throws IOException {
+        TransactionStore transactions = wallet.getTransactions();
+        if (meta.rows > transactions.size() || rowsFile.length() < HEADER_SIZE + meta.rows * RECORD_SIZE
+                || textFile.length() < meta.textBytes) {
+            return false;
+        }
+        if (meta.rows == 0) {
+            return true;
+        }
+        ByteBuffer last = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(rowsFile.toPath(), StandardOpenOption.READ)) {
+            channel.read(last, HEADER_SIZE + (meta.rows - 1) * RECORD_SIZE);
+        }
+        last.flip();
+        int row = (int) meta.rows - 1;
+        return last.remaining() == 16 && last.getLong() == transactions.getTimestamp(row)
+                && last.getLong() == transactions.getAmount(row);
+    }
+
+    // Дописывает в файлы строки кошелька начиная с previous.rows и возвращает новые сведения.
+    // Файлы строк - продолжение хранилища: строка i файла - это строка i кошелька
+    static Meta append(Wallet wallet, Meta previous, FileChannel rowsChannel, FileChannel textChannel)
+            throws IOException {
+        TransactionStore transactions = wallet.getTransactions();
+        Meta meta = new Meta();
+        meta.rows = previous != null ? previous.rows : 0;
+        meta.textBytes = previous != null ? previous.textBytes : 0;
+        meta.categoryRows = previous != null ? previous.categoryRows : new long[0];
+
+        // Номер категории в файле по номеру в хранилище: через строку, по которой номер был заведен
+        int[] fileIds = new int[Math.max(16, transactions.getCategoryCount())];
+        Arrays.fill(fileIds, -1);
+        for (int fileId = 0; fileId < meta.categoryRows.length; fileId++) {
+            int storeId = transactions.getCategoryId((int) meta.categoryRows[fileId]);
+            if (storeId >= 0 && fileIds[storeId] < 0) {
+                fileIds[storeId] = fileId;
+            }
+        }
+        List<Long> categoryRows = new ArrayList<>();
+        for (long row : meta.categoryRows) {
+            categoryRows.add(row);
+        }
+
+        if (previous == null) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+            rowsChannel.truncate(0);
+            rowsChannel.write(header, 0);
+        }
+        // Хвост после последнего подтвержденного сохранения (например, после сбоя) отбрасывается
+        rowsChannel.truncate(HEADER_SIZE + meta.rows * RECORD_SIZE);
+        rowsChannel.position(HEADER_SIZE + meta.rows * RECORD_SIZE);
+        textChannel.truncate(meta.textBytes);
+        textChannel.position(meta.textBytes);
+
+        ByteBuffer rows = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer text = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        for (int row = (int) meta.rows; row < transactions.size(); row++) {
+            int storeId = transactions.getCategoryId(row);
+            int fileId = -1;
+            if (storeId >= 0) {
+                if (storeId >= fileIds.length) {
+                    int oldLength = fileIds.length;
+                    fileIds = Arrays.copyOf(fileIds, Math.max(storeId + 1, oldLength * 2));
+                    Arrays.fill(fileIds, oldLength, fileIds.length, -1);
+                }
+                if (fileIds[storeId] < 0) {
+                    fileIds[storeId] = categoryRows.size();
+                    categoryRows.add((long) row);
+                }
+                fileId = fileIds[storeId];
+            }
+
+            TransactionType type = transactions.getType(row);
+            byte flags = type == null ? NO_TYPE : type == TransactionType.INCOME ? INCOME : 0;
+            long idNumber = transactions.getIdNumber(row);
+            long textOffset = meta.textBytes;
+            if (transactions.hasTextId(row)) {
+                flags |= TEXT_ID;
+                byte[] id = transactions.getId(row).getBytes(StandardCharsets.UTF_8);
+                idNumber = id.length;
+                meta.textBytes += put(text, id, textChannel);
+            } else if (transactions.hasIncomeIdPrefix(row)) {
+                flags |= INCOME_PREFIX;
+            }
+            if (!transactions.hasDate(row)) {
+                flags |= NO_DATE;
+            }
+            String description = transactions.getDescription(row);
+            int descriptionLength = -1;
+            if (description != null) {
+                byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+                descriptionLength = bytes.length;
+                meta.textBytes += put(text, bytes, textChannel);
+            }
+
+            if (rows.remaining() < RECORD_SIZE) {
+                drain(rows, rowsChannel);
+            }
+            rows.putLong(transactions.getTimestamp(row))
+                    .putLong(transactions.getAmount(row))
+                    .putLong(idNumber)
+                    .putLong(textOffset)
+                    .putInt(descriptionLength)
+                    .putInt(fileId)
+                    // Флаги в младшем байте, остальное - выравнивание строки до 48 байт
+                    .putLong(flags);
+        }
+        drain(rows, rowsChannel);
+        drain(text, textChannel);
+
+        meta.rows = transactions.size();
+        meta.version = wallet.getVersion();
+        meta.balance = wallet.getBalance();
+        meta.categories = new ArrayList<>(wallet.getCategories().values());
+        meta.categoryRows = new long[categoryRows.size()];
+        meta.categoryNames = new String[categoryRows.size()];
+        for (int fileId = 0; fileId < meta.categoryRows.length; fileId++) {
+            meta.categoryRows[fileId] = categoryRows.get(fileId);
+            meta.categoryNames[fileId] = transactions.getCategory((int) meta.categoryRows[fileId]);
+        }
+        return meta;
+    }
+
+    private static int put(ByteBuffer buffer, byte[] bytes, FileChannel channel) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                drain(buffer, channel);
+            }
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return bytes.length;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,43 +1,141 @@
 package com.financemanager.service;
 
+import com.financemanager.model.Session;
 import com.financemanager.model.User;
 import com.financemanager.model.Wallet;
-import com.financemanager.model.Category;
+import com.financemanager.model.Money;
+import com.financemanager.model.PeriodTotals;
+import com.financemanager.model.StatisticsReport;
 import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
 import com.financemanager.exception.CategoryNotFoundException;
 import com.financemanager.exception.InsufficientFundsException;
 import com.financemanager.exception.UserNotFoundException;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class WalletService {
+    // Строк CSV в одном пакете импорта: одна запись журнала и одна блокировка кошелька на пакет
+    private static final int IMPORT_CHUNK_ROWS = 10_000;
+
     private AuthService authService;
     private TransactionService transactionService;
-    private FileService fileService;
+    private StorageBackend storage;
+    private WalletLocks locks;
+    private WalletPersister persister;
+    private TransferService transferService;
+
+    public WalletService(AuthService authService, TransactionService transactionService, StorageBackend storage) {
+        this(authService, transactionService, storage,
+                new TransferService(storage, authService.getWalletCache()));
+    }
 
-    public WalletService(AuthService authService, TransactionService transactionService, FileService fileService) {
+    public WalletService(AuthService authService, TransactionService transactionService, StorageBackend storage,
+                         TransferService transferService) {
         this.authService = authService;
         this.transactionService = transactionService;
-        this.fileService = fileService;
+        this.storage = storage;
+        this.locks = authService.getWalletCache().getLocks();
+        this.persister = authService.getWalletCache().getPersister();
+        this.transferService = transferService;
+    }
+
+    // Все операции над кошельком сессии идут под его блокировкой; вывод на экран - уже после нее
+    private ReentrantLock lockWallet(Session session) {
+        if (!session.isOpen()) {
+            throw new IllegalStateException("Сессия пользователя " + session.getUsername() + " закрыта");
+        }
+        ReentrantLock lock = locks.lockFor(session.getUsername());
+        lock.lock();
+        return lock;
+    }
+
+    // При включенном finance.reportView отчеты читают отображенные в память файлы последнего сохранения
+    // кошелька, а не объекты в куче; несохраненные правки перед этим записываются. null - отчет по кошельку
+    private WalletReportView openReportView(Session session) {
+        if (!storage.isReportViewEnabled()) {
+            return null;
+        }
+        persister.flush(session.getUsername());
+        ReentrantLock lock = lockWallet(session);
+        try {
+            return storage.openReportView(session.getUsername());
+        } catch (FileNotFoundException e) {
+            // Кошелек еще ни разу не сохранялся
+            return null;
+        } catch (IOException e) {
+            System.out.println("Отчетное представление недоступно, отчет строится по кошельку: " + e.getMessage());
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Запросы итогов к хранилищу (finance.storage=H2) видят только сохраненные правки
+    private void flushForQuery(Session session) {
+        if (transactionService.isQueryPushdown()) {
+            persister.flush(session.getUsername());
+        }
+    }
+
+    private StatisticsReport buildReport(Session session) {
+        try (WalletReportView view = openReportView(session)) {
+            if (view != null) {
+                return view.buildReport();
+            }
+        }
+        flushForQuery(session);
+        ReentrantLock lock = lockWallet(session);
+        try {
+            return transactionService.buildStatisticsReport(session.getUsername(), session.getWallet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addIncome(Session session, long amount, String category, String description)
+            throws CategoryNotFoundException {
+        ReentrantLock lock = lockWallet(session);
+        try {
+            transactionService.addIncome(session.getWallet(), amount, category, description);
+            persister.markDirty(session.getUsername(), session.getWallet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addExpense(Session session, long amount, String category, String description)
+            throws CategoryNotFoundException, InsufficientFundsException {
+        ReentrantLock lock = lockWallet(session);
+        try {
+            transactionService.addExpense(session.getWallet(), amount, category, description);
+            persister.markDirty(session.getUsername(), session.getWallet());
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public void showStatistics() {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void showStatistics(Session session) {
+        StatisticsReport report = buildReport(session);
 
-        double totalIncome = transactionService.getTotalIncome(wallet);
-        double totalExpenses = transactionService.getTotalExpenses(wallet);
-        double balance = wallet.getBalance();
+        long totalIncome = report.getTotalIncome();
+        long totalExpenses = report.getTotalExpenses();
+        long balance = report.getBalance();
 
         System.out.println("\n=== ОБЩАЯ СТАТИСТИКА ===");
-        System.out.printf("Общий доход: %.2f%n", totalIncome);
-        System.out.printf("Общие расходы: %.2f%n", totalExpenses);
-        System.out.printf("Текущий баланс: %.2f%n", balance);
+        System.out.printf("Общий доход: %s%n", Money.format(totalIncome));
+        System.out.printf("Общие расходы: %s%n", Money.format(totalExpenses));
+        System.out.printf("Текущий баланс: %s%n", Money.format(balance));
 
         if (totalExpenses > totalIncome) {
             System.out.println("⚠️  ВНИМАНИЕ: Расходы превышают доходы!");
@@ -47,23 +145,21 @@ public class WalletService {
         }
     }
 
-    public void showDetailedStatistics() {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void showDetailedStatistics(Session session) {
+        StatisticsReport report = buildReport(session);
 
-        double totalIncome = transactionService.getTotalIncome(wallet);
-        double totalExpenses = transactionService.getTotalExpenses(wallet);
+        long totalIncome = report.getTotalIncome();
+        long totalExpenses = report.getTotalExpenses();
 
         System.out.println("\n=== ДЕТАЛЬНАЯ СТАТИСТИКА ===");
-        System.out.printf("Общий доход: %.2f%n", totalIncome);
-        System.out.printf("Общие расходы: %.2f%n", totalExpenses);
-        System.out.printf("Текущий баланс: %.2f%n", wallet.getBalance());
+        System.out.printf("Общий доход: %s%n", Money.format(totalIncome));
+        System.out.printf("Общие расходы: %s%n", Money.format(totalExpenses));
+        System.out.printf("Текущий баланс: %s%n", Money.format(report.getBalance()));
 
         boolean hasIncome = false;
-        for (String category : wallet.getCategories().keySet()) {
-            double income = transactionService.getIncomeByCategory(wallet, category);
-            if (income > 0) {
-                System.out.printf("%s: %.2f%n", category, income);
+        for (StatisticsReport.CategoryStatistics category : report.getCategories()) {
+            if (category.getIncome() > 0) {
+                System.out.printf("%s: %s%n", category.getName(), Money.format(category.getIncome()));
                 hasIncome = true;
             }
         }
@@ -72,18 +168,17 @@ public class WalletService {
         }
 
         System.out.println("\n--- БЮДЖЕТ ПО КАТЕГОРИЯМ ---");
-        for (Category category : wallet.getCategories().values()) {
-            double expenses = transactionService.getExpensesByCategory(wallet, category.getName());
-            double budgetLimit = category.getBudgetLimit();
-            double remaining = budgetLimit - expenses;
+        for (StatisticsReport.CategoryStatistics category : report.getCategories()) {
+            long budgetLimit = category.getBudgetLimit();
+            long remaining = category.getRemaining();
 
-            if (budgetLimit > 0) {
-                System.out.printf("%s: Лимит: %.2f, Потрачено: %.2f, Остаток: %.2f%n",
-                        category.getName(), budgetLimit, expenses, remaining);
+            if (category.hasBudget()) {
+                System.out.printf("%s: Лимит: %s, Потрачено: %s, Остаток: %s%n", category.getName(),
+                        Money.format(budgetLimit), Money.format(category.getExpenses()), Money.format(remaining));
 
                 if (remaining < 0) {
-                    System.out.printf("   🚨 ПРЕВЫШЕН БЮДЖЕТ на: %.2f%n", Math.abs(remaining));
-                } else if (remaining < budgetLimit * 0.1) {
+                    System.out.printf("   🚨 ПРЕВЫШЕН БЮДЖЕТ на: %s%n", Money.format(Math.abs(remaining)));
+                } else if (remaining * 10 < budgetLimit) {
                     System.out.printf("   ⚠️  Внимание: Осталось менее 10%% бюджета%n");
                 }
             }
@@ -92,49 +187,57 @@ public class WalletService {
         System.out.println("\n--- ФИНАНСОВОЕ ЗДОРОВЬЕ ---");
         if (totalExpenses > totalIncome) {
             System.out.println("🚨 КРИТИЧЕСКОЕ: Расходы превышают доходы!");
-        } else if (totalExpenses > totalIncome * 0.8) {
+        } else if (totalExpenses * 10 > totalIncome * 8) {
             System.out.println("⚠️  ВНИМАНИЕ: Расходы составляют более 80% от доходов");
         } else {
             System.out.println("✅ ХОРОШО: Финансы в норме");
         }
 
-        if (wallet.getBalance() < 0) {
+        if (report.getBalance() < 0) {
             System.out.println("🚨 КРИТИЧЕСКОЕ: Отрицательный баланс!");
-        } else if (wallet.getBalance() < totalExpenses) {
+        } else if (report.getBalance() < totalExpenses) {
             System.out.println("⚠️  ВНИМАНИЕ: Небольшой запас средств");
         }
     }
 
-    public void showStatisticsForCategories(List<String> categories) throws CategoryNotFoundException {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void showStatisticsForCategories(Session session, List<String> categories) throws CategoryNotFoundException {
+        Wallet wallet = session.getWallet();
 
-        for (String category : categories) {
-            if (!wallet.getCategories().containsKey(category)) {
-                throw new CategoryNotFoundException("Категория '" + category + "' не найдена!");
+        Map<String, StatisticsReport.CategoryStatistics> selected;
+        flushForQuery(session);
+        ReentrantLock lock = lockWallet(session);
+        try {
+            for (String category : categories) {
+                if (!wallet.getCategories().containsKey(category)) {
+                    throw new CategoryNotFoundException("Категория '" + category + "' не найдена!");
+                }
             }
+            selected = transactionService.buildCategoryStatistics(session.getUsername(), wallet, categories);
+        } finally {
+            lock.unlock();
         }
 
         System.out.println("\n=== СТАТИСТИКА ПО ВЫБРАННЫМ КАТЕГОРИЯМ ===");
 
-        double totalIncome = 0;
-        double totalExpenses = 0;
+        long totalIncome = 0;
+        long totalExpenses = 0;
 
         for (String category : categories) {
-            double income = transactionService.getIncomeByCategory(wallet, category);
-            double expenses = transactionService.getExpensesByCategory(wallet, category);
-            double budgetLimit = wallet.getCategories().get(category).getBudgetLimit();
-            double remaining = budgetLimit - expenses;
+            StatisticsReport.CategoryStatistics statistics = selected.get(category);
+            long income = statistics.getIncome();
+            long expenses = statistics.getExpenses();
+            long budgetLimit = statistics.getBudgetLimit();
+            long remaining = statistics.getRemaining();
 
             System.out.printf("\n--- %s ---%n", category);
-            System.out.printf("Доходы: %.2f%n", income);
-            System.out.printf("Расходы: %.2f%n", expenses);
+            System.out.printf("Доходы: %s%n", Money.format(income));
+            System.out.printf("Расходы: %s%n", Money.format(expenses));
             if (budgetLimit > 0) {
-                System.out.printf("Лимит бюджета: %.2f%n", budgetLimit);
-                System.out.printf("Остаток бюджета: %.2f%n", remaining);
+                System.out.printf("Лимит бюджета: %s%n", Money.format(budgetLimit));
+                System.out.printf("Остаток бюджета: %s%n", Money.format(remaining));
 
                 if (remaining < 0) {
-                    System.out.printf("🚨 Превышение: %.2f%n", Math.abs(remaining));
+                    System.out.printf("🚨 Превышение: %s%n", Money.format(Math.abs(remaining)));
                 }
             }
 
@@ -143,45 +246,41 @@ public class WalletService {
         }
 
         System.out.printf("\n--- ИТОГО ПО ВЫБРАННЫМ КАТЕГОРИЯМ ---%n");
-        System.out.printf("Общий доход: %.2f%n", totalIncome);
-        System.out.printf("Общие расходы: %.2f%n", totalExpenses);
-        System.out.printf("Чистый результат: %.2f%n", totalIncome - totalExpenses);
+        System.out.printf("Общий доход: %s%n", Money.format(totalIncome));
+        System.out.printf("Общие расходы: %s%n", Money.format(totalExpenses));
+        System.out.printf("Чистый результат: %s%n", Money.format(totalIncome - totalExpenses));
     }
 
-    public void exportStatisticsToFile(String filename) {
+    public void exportStatisticsToFile(Session session, String filename) {
         try {
-            User currentUser = authService.getCurrentUser();
-            Wallet wallet = currentUser.getWallet();
-
-            double totalIncome = transactionService.getTotalIncome(wallet);
-            double totalExpenses = transactionService.getTotalExpenses(wallet);
+            User currentUser = session.getUser();
+            StatisticsReport report = buildReport(session);
 
             StringBuilder statistics = new StringBuilder();
             statistics.append("=== ЭКСПОРТ СТАТИСТИКИ ===\n");
             statistics.append("Пользователь: ").append(currentUser.getUsername()).append("\n");
-            statistics.append(String.format("Общий доход: %.2f%n", totalIncome));
-            statistics.append(String.format("Общие расходы: %.2f%n", totalExpenses));
-            statistics.append(String.format("Текущий баланс: %.2f%n", wallet.getBalance()));
+            statistics.append(String.format("Общий доход: %s%n", Money.format(report.getTotalIncome())));
+            statistics.append(String.format("Общие расходы: %s%n", Money.format(report.getTotalExpenses())));
+            statistics.append(String.format("Текущий баланс: %s%n", Money.format(report.getBalance())));
 
             statistics.append("\n--- ДОХОДЫ ПО КАТЕГОРИЯМ ---\n");
-            for (String category : wallet.getCategories().keySet()) {
-                double income = transactionService.getIncomeByCategory(wallet, category);
-                if (income > 0) {
-                    statistics.append(String.format("%s: %.2f%n", category, income));
+            for (StatisticsReport.CategoryStatistics category : report.getCategories()) {
+                if (category.getIncome() > 0) {
+                    statistics.append(String.format("%s: %s%n", category.getName(), Money.format(category.getIncome())));
                 }
             }
 
             statistics.append("\n--- РАСХОДЫ И БЮДЖЕТЫ ---\n");
-            for (Category category : wallet.getCategories().values()) {
-                double expenses = transactionService.getExpensesByCategory(wallet, category.getName());
-                double budgetLimit = category.getBudgetLimit();
+            for (StatisticsReport.CategoryStatistics category : report.getCategories()) {
+                long expenses = category.getExpenses();
+                long budgetLimit = category.getBudgetLimit();
                 if (expenses > 0 || budgetLimit > 0) {
-                    statistics.append(String.format("%s: Лимит: %.2f, Потрачено: %.2f, Остаток: %.2f%n",
-                            category.getName(), budgetLimit, expenses, budgetLimit - expenses));
+                    statistics.append(String.format("%s: Лимит: %s, Потрачено: %s, Остаток: %s%n", category.getName(),
+                            Money.format(budgetLimit), Money.format(expenses), Money.format(category.getRemaining())));
                 }
             }
 
-            fileService.exportStatisticsToFile(statistics.toString(), filename);
+            FileService.exportStatisticsToFile(statistics.toString(), filename);
             System.out.println("Статистика успешно экспортирована в файл: " + filename);
         } catch (Exception e) {
             System.out.println("Ошибка при экспорте статистики: " + e.getMessage());
@@ -189,111 +288,104 @@ public class WalletService {
         }
     }
 
-    public void createCategory(String categoryName, double budgetLimit) {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void createCategory(Session session, String categoryName, long budgetLimit) {
+        Wallet wallet = session.getWallet();
 
-        if (wallet.getCategories().containsKey(categoryName)) {
-            System.out.println("Категория '" + categoryName + "' уже существует!");
-            return;
-        }
+        ReentrantLock lock = lockWallet(session);
+        try {
+            if (wallet.getCategories().containsKey(categoryName)) {
+                System.out.println("Категория '" + categoryName + "' уже существует!");
+                return;
+            }
 
-        Category newCategory = new Category(categoryName, budgetLimit);
-        wallet.getCategories().put(categoryName, newCategory);
+            wallet.putCategory(categoryName, budgetLimit);
 
-        fileService.saveWallet(wallet, currentUser.getUsername());
+            persister.markDirty(session.getUsername(), wallet);
+        } finally {
+            lock.unlock();
+        }
 
         System.out.println("Категория '" + categoryName + "' успешно создана!");
         if (budgetLimit > 0) {
-            System.out.println("Установлен лимит бюджета: " + budgetLimit);
+            System.out.println("Установлен лимит бюджета: " + Money.format(budgetLimit));
         }
     }
 
-    public void setBudgetLimit(String categoryName, double budgetLimit) throws CategoryNotFoundException {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void setBudgetLimit(Session session, String categoryName, long budgetLimit) throws CategoryNotFoundException {
+        Wallet wallet = session.getWallet();
 
-        if (!wallet.getCategories().containsKey(categoryName)) {
-            throw new CategoryNotFoundException("Категория '" + categoryName + "' не найдена!");
-        }
+        long currentExpenses;
+        ReentrantLock lock = lockWallet(session);
+        try {
+            if (!wallet.getCategories().containsKey(categoryName)) {
+                throw new CategoryNotFoundException("Категория '" + categoryName + "' не найдена!");
+            }
 
-        Category category = wallet.getCategories().get(categoryName);
-        category.setBudgetLimit(budgetLimit);
+            wallet.putCategory(categoryName, budgetLimit);
 
-        fileService.saveWallet(wallet, currentUser.getUsername());
+            persister.markDirty(session.getUsername(), wallet);
+            currentExpenses = transactionService.getExpensesByCategory(wallet, categoryName);
+        } finally {
+            lock.unlock();
+        }
 
-        System.out.println("Лимит бюджета для категории '" + categoryName + "' установлен: " + budgetLimit);
+        System.out.println("Лимит бюджета для категории '" + categoryName + "' установлен: " + Money.format(budgetLimit));
 
-        double currentExpenses = transactionService.getExpensesByCategory(wallet, categoryName);
         if (budgetLimit > 0 && currentExpenses > budgetLimit) {
             System.out.println("⚠️  ВНИМАНИЕ: Текущие расходы уже превышают новый лимит!");
-            System.out.printf("   Расходы: %.2f, Лимит: %.2f%n", currentExpenses, budgetLimit);
+            System.out.printf("   Расходы: %s, Лимит: %s%n", Money.format(currentExpenses), Money.format(budgetLimit));
         }
     }
 
-    public void transferToUser(String targetUsername, double amount, String description)
+    public void transferToUser(Session session, String targetUsername, long amount, String description)
             throws UserNotFoundException, InsufficientFundsException, CategoryNotFoundException {
 
-        User currentUser = authService.getCurrentUser();
         User targetUser = authService.getUser(targetUsername);
 
         if (targetUser == null) {
             throw new UserNotFoundException("Пользователь '" + targetUsername + "' не найден!");
         }
 
-        if (currentUser.getWallet().getBalance() < amount) {
-            throw new InsufficientFundsException("Недостаточно средств для перевода!");
-        }
-
-        transactionService.addExpense(currentUser.getWallet(), amount, "Переводы",
-                "Перевод пользователю: " + targetUsername + ". " + description);
-
-        transactionService.addIncome(targetUser.getWallet(), amount, "Переводы",
-                "Перевод от пользователя: " + currentUser.getUsername() + ". " + description);
-
-        fileService.saveWallet(currentUser.getWallet(), currentUser.getUsername());
-        fileService.saveWallet(targetUser.getWallet(), targetUsername);
+        transferService.transfer(session, targetUser.getUsername(), amount, description);
 
         System.out.println("Перевод успешно выполнен!");
-        System.out.printf("Переведено: %.2f пользователю: %s%n", amount, targetUsername);
+        System.out.printf("Переведено: %s пользователю: %s%n", Money.format(amount), targetUsername);
     }
 
-    public void showStatisticsForPeriod(String startDate, String endDate) {
+    public void showStatisticsForPeriod(Session session, String startDate, String endDate) {
         try {
-            User currentUser = authService.getCurrentUser();
-            Wallet wallet = currentUser.getWallet();
-
-            DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
             LocalDateTime start = LocalDateTime.parse(startDate + "T00:00:00");
             LocalDateTime end = LocalDateTime.parse(endDate + "T23:59:59");
 
-            List<Transaction> periodTransactions = wallet.getTransactions().stream()
-                    .filter(t -> {
-                        LocalDateTime transactionDate = LocalDateTime.parse(t.getDate(), formatter);
-                        return !transactionDate.isBefore(start) && !transactionDate.isAfter(end);
-                    })
-                    .toList();
+            PeriodTotals totals;
+            try (WalletReportView view = openReportView(session)) {
+                if (view != null) {
+                    totals = view.getPeriodTotals(Transaction.toEpochMillis(start), Transaction.toEpochMillis(end));
+                } else {
+                    flushForQuery(session);
+                    ReentrantLock lock = lockWallet(session);
+                    try {
+                        totals = transactionService.getTotalsForPeriod(session.getUsername(), session.getWallet(),
+                                start, end);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
 
-            if (periodTransactions.isEmpty()) {
+            if (totals.getCount() == 0) {
                 System.out.println("Нет операций за указанный период: " + startDate + " - " + endDate);
                 return;
             }
 
-            double periodIncome = periodTransactions.stream()
-                    .filter(t -> t.getType() == com.financemanager.model.TransactionType.INCOME)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-
-            double periodExpenses = periodTransactions.stream()
-                    .filter(t -> t.getType() == com.financemanager.model.TransactionType.EXPENSE)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
+            long periodIncome = totals.getIncome();
+            long periodExpenses = totals.getExpenses();
 
             System.out.println("\n=== СТАТИСТИКА ЗА ПЕРИОД " + startDate + " - " + endDate + " ===");
-            System.out.printf("Доходы за период: %.2f%n", periodIncome);
-            System.out.printf("Расходы за период: %.2f%n", periodExpenses);
-            System.out.printf("Баланс за период: %.2f%n", periodIncome - periodExpenses);
-            System.out.printf("Количество операций: %d%n", periodTransactions.size());
+            System.out.printf("Доходы за период: %s%n", Money.format(periodIncome));
+            System.out.printf("Расходы за период: %s%n", Money.format(periodExpenses));
+            System.out.printf("Баланс за период: %s%n", Money.format(periodIncome - periodExpenses));
+            System.out.printf("Количество операций: %d%n", totals.getCount());
 
         } catch (Exception e) {
             System.out.println("Ошибка при расчете статистики за период: " + e.getMessage());
@@ -301,89 +393,178 @@ public class WalletService {
         }
     }
 
-    public void editCategory(String oldName, String newName, double newBudgetLimit) throws CategoryNotFoundException {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void editCategory(Session session, String oldName, String newName, long newBudgetLimit)
+            throws CategoryNotFoundException {
+        Wallet wallet = session.getWallet();
 
-        if (!wallet.getCategories().containsKey(oldName)) {
-            throw new CategoryNotFoundException("Категория '" + oldName + "' не найдена!");
-        }
+        ReentrantLock lock = lockWallet(session);
+        try {
+            if (!wallet.getCategories().containsKey(oldName)) {
+                throw new CategoryNotFoundException("Категория '" + oldName + "' не найдена!");
+            }
 
-        if (!oldName.equals(newName) && wallet.getCategories().containsKey(newName)) {
-            throw new IllegalArgumentException("Категория '" + newName + "' уже существует!");
-        }
+            if (!oldName.equals(newName) && wallet.getCategories().containsKey(newName)) {
+                throw new IllegalArgumentException("Категория '" + newName + "' уже существует!");
+            }
 
-        Category category = wallet.getCategories().get(oldName);
-        if (!oldName.equals(newName)) {
-            wallet.getCategories().remove(oldName);
-            category.setName(newName);
-            wallet.getCategories().put(newName, category);
+            if (!oldName.equals(newName)) {
+                wallet.renameCategory(oldName, newName);
+            }
 
-            wallet.getTransactions().stream()
-                    .filter(t -> t.getCategory().equals(oldName))
-                    .forEach(t -> t.setCategory(newName));
+            wallet.putCategory(newName, newBudgetLimit);
+            persister.markDirty(session.getUsername(), wallet);
+        } finally {
+            lock.unlock();
         }
 
-        category.setBudgetLimit(newBudgetLimit);
-        fileService.saveWallet(wallet, currentUser.getUsername());
-
         System.out.println("Категория успешно обновлена!");
         System.out.println("Новое название: " + newName);
-        System.out.println("Новый лимит: " + newBudgetLimit);
+        System.out.println("Новый лимит: " + Money.format(newBudgetLimit));
     }
 
-    public void deleteCategory(String categoryName) throws CategoryNotFoundException {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void deleteCategory(Session session, String categoryName) throws CategoryNotFoundException {
+        Wallet wallet = session.getWallet();
 
-        if (!wallet.getCategories().containsKey(categoryName)) {
-            throw new CategoryNotFoundException("Категория '" + categoryName + "' не найдена!");
-        }
+        ReentrantLock lock = lockWallet(session);
+        try {
+            if (!wallet.getCategories().containsKey(categoryName)) {
+                throw new CategoryNotFoundException("Категория '" + categoryName + "' не найдена!");
+            }
 
-        long transactionsCount = wallet.getTransactions().stream()
-                .filter(t -> t.getCategory().equals(categoryName))
-                .count();
+            int transactionsCount = wallet.getCategoryTotals(categoryName).getCount();
 
-        if (transactionsCount > 0) {
-            System.out.println("Внимание: В категории '" + categoryName + "' есть " + transactionsCount + " транзакций.");
-            System.out.println("Они будут перемещены в категорию 'Прочее'.");
+            if (transactionsCount > 0) {
+                System.out.println("Внимание: В категории '" + categoryName + "' есть " + transactionsCount + " транзакций.");
+                System.out.println("Они будут перемещены в категорию 'Прочее'.");
+            }
 
-            wallet.getTransactions().stream()
-                    .filter(t -> t.getCategory().equals(categoryName))
-                    .forEach(t -> t.setCategory("Прочее"));
+            wallet.deleteCategory(categoryName, "Прочее");
+            persister.markDirty(session.getUsername(), wallet);
+        } finally {
+            lock.unlock();
         }
 
-        wallet.getCategories().remove(categoryName);
-        fileService.saveWallet(wallet, currentUser.getUsername());
-
         System.out.println("Категория '" + categoryName + "' успешно удалена!");
     }
 
-    public void importFromCSV(String filename) {
+    // Строки применяются пакетами по мере чтения файла, с теми же проверками категорий и остатка, что
+    // и при ручном вводе. При ошибке в середине файла уже примененные пакеты остаются в кошельке:
+    // повторный импорт исправленного файла пропускает их по идентификаторам и продолжает с места ошибки
+    public void importFromCSV(Session session, String filename)
+            throws CategoryNotFoundException, InsufficientFundsException {
         System.out.println("Импорт из CSV файла: " + filename);
-        System.out.println("Функциональность в разработке...");
+        long startedAt = System.nanoTime();
+
+        long[] counts = new long[2]; // [импортировано, пропущено повторов]
+        long rows = 0;
+        try (CsvImporter importer = new CsvImporter()) {
+            importer.open(Path.of(filename));
+            List<Transaction> chunk;
+            while (!(chunk = importer.nextChunk(IMPORT_CHUNK_ROWS)).isEmpty()) {
+                rows += chunk.size();
+                importChunk(session, chunk, counts);
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка при чтении CSV файла: " + e.getMessage());
+            throw new RuntimeException(e);
+        } finally {
+            System.out.println("Импортировано операций: " + counts[0] + ", пропущено повторов: " + counts[1]);
+        }
+
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        System.out.printf("Время импорта: %.2f с (%.0f строк/с)%n", seconds, rows / Math.max(seconds, 1e-9));
+    }
+
+    // Файл разбирается без блокировки; проверка и добавление пакета - под блокировкой кошелька
+    private void importChunk(Session session, List<Transaction> chunk, long[] counts)
+            throws CategoryNotFoundException, InsufficientFundsException {
+        Wallet wallet = session.getWallet();
+        ReentrantLock lock = lockWallet(session);
+        try {
+            // Категории проверяются для всего пакета до изменения кошелька
+            Set<String> missingCategories = new TreeSet<>();
+            for (Transaction transaction : chunk) {
+                if (!wallet.getCategories().containsKey(transaction.getCategory())) {
+                    missingCategories.add(transaction.getCategory());
+                }
+            }
+            if (!missingCategories.isEmpty()) {
+                throw new CategoryNotFoundException("Категории не найдены: " + String.join(", ", missingCategories)
+                        + ". Импорт остановлен.");
+            }
+
+            List<Transaction> batch = new ArrayList<>(chunk.size());
+            Set<String> batchIds = new HashSet<>();
+            long balance = wallet.getBalance();
+            long income = 0;
+            long expenses = 0;
+            Exception failure = null;
+            for (Transaction transaction : chunk) {
+                // Повторный импорт того же файла не дублирует операции
+                if (wallet.findTransaction(transaction.getId()) != null || !batchIds.add(transaction.getId())) {
+                    counts[1]++;
+                    continue;
+                }
+                // Расход не может превысить остаток, как и при ручном вводе
+                boolean isIncome = transaction.getType() == TransactionType.INCOME;
+                if (!isIncome && balance < transaction.getAmount()) {
+                    failure = new InsufficientFundsException("Недостаточно средств для операции "
+                            + transaction.getId() + "! Доступно: " + Money.format(balance)
+                            + ", требуется: " + Money.format(transaction.getAmount()) + ". Импорт остановлен.");
+                    break;
+                }
+                // Баланс и итоги не должны переполниться, как и при ручном вводе
+                long nextIncome = isIncome ? income + transaction.getAmount() : income;
+                long nextExpenses = isIncome ? expenses : expenses + transaction.getAmount();
+                if (nextIncome < income || nextExpenses < expenses || !wallet.canAdd(nextIncome, nextExpenses)) {
+                    failure = new IllegalArgumentException("Сумма операции " + transaction.getId()
+                            + " слишком велика: баланс или итоги кошелька превысят " + Money.format(Long.MAX_VALUE)
+                            + ". Импорт остановлен.");
+                    break;
+                }
+                income = nextIncome;
+                expenses = nextExpenses;
+                balance += isIncome ? transaction.getAmount() : -transaction.getAmount();
+                batch.add(transaction);
+            }
+
+            if (!batch.isEmpty()) {
+                wallet.addTransactions(batch);
+                persister.markDirty(session.getUsername(), wallet);
+                counts[0] += batch.size();
+            }
+            if (failure instanceof InsufficientFundsException overdraft) {
+                throw overdraft;
+            }
+            if (failure != null) {
+                throw (IllegalArgumentException) failure;
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public void exportToCSV(String filename) {
+    public void exportToCSV(Session session, String filename) {
         try {
-            User currentUser = authService.getCurrentUser();
-            Wallet wallet = currentUser.getWallet();
-
-            StringBuilder csv = new StringBuilder();
-            csv.append("ID,Дата,Тип,Категория,Сумма,Описание\n");
-
-            for (Transaction transaction : wallet.getTransactions()) {
-                csv.append(String.format("%s,%s,%s,%s,%.2f,%s\n",
-                        transaction.getId(),
-                        transaction.getDate(),
-                        transaction.getType(),
-                        transaction.getCategory(),
-                        transaction.getAmount(),
-                        transaction.getDescription()));
+            long startedAt = System.nanoTime();
+            long rows;
+            try (WalletReportView view = openReportView(session)) {
+                if (view != null) {
+                    rows = new CsvExporter().export(view, Path.of(filename));
+                } else {
+                    ReentrantLock lock = lockWallet(session);
+                    try {
+                        rows = new CsvExporter().export(session.getWallet(), Path.of(filename));
+                    } finally {
+                        lock.unlock();
+                    }
+                }
             }
+            double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
 
-            fileService.exportStatisticsToFile(csv.toString(), filename);
             System.out.println("Данные успешно экспортированы в CSV файл: " + filename);
+            System.out.printf("Экспортировано операций: %d за %.2f с (%.0f строк/с)%n",
+                    rows, seconds, rows / Math.max(seconds, 1e-9));
 
         } catch (Exception e) {
             System.out.println("Ошибка при экспорте в CSV: " + e.getMessage());
@@ -391,26 +572,24 @@ public class WalletService {
         }
     }
 
-    public void checkAdvancedAlerts() {
-        User currentUser = authService.getCurrentUser();
-        Wallet wallet = currentUser.getWallet();
+    public void checkAdvancedAlerts(Session session) {
+        StatisticsReport report = buildReport(session);
 
-        double totalIncome = transactionService.getTotalIncome(wallet);
-        double totalExpenses = transactionService.getTotalExpenses(wallet);
-        double balance = wallet.getBalance();
+        long totalExpenses = report.getTotalExpenses();
+        long balance = report.getBalance();
 
         boolean hasAlerts = false;
 
-        for (Category category : wallet.getCategories().values()) {
-            double budgetLimit = category.getBudgetLimit();
-            if (budgetLimit > 0) {
-                double expenses = transactionService.getExpensesByCategory(wallet, category.getName());
-                double usagePercentage = (expenses / budgetLimit) * 100;
+        for (StatisticsReport.CategoryStatistics category : report.getCategories()) {
+            long budgetLimit = category.getBudgetLimit();
+            if (category.hasBudget()) {
+                long expenses = category.getExpenses();
+                double usagePercentage = category.getBudgetUsagePercent();
 
                 if (usagePercentage >= 80 && usagePercentage < 100) {
                     System.out.println("⚠️  ВНИМАНИЕ: Категория '" + category.getName() + "' использована на " +
                             String.format("%.1f", usagePercentage) + "%");
-                    System.out.printf("   Лимит: %.2f, Потрачено: %.2f%n", budgetLimit, expenses);
+                    System.out.printf("   Лимит: %s, Потрачено: %s%n", Money.format(budgetLimit), Money.format(expenses));
                     hasAlerts = true;
                 }
             }
@@ -421,8 +600,8 @@ public class WalletService {
             hasAlerts = true;
         }
 
-        if (totalExpenses > 0 && balance < (totalExpenses * 0.1)) {
-            System.out.println("⚠️  ВНИМАНИЕ: Низкий баланс (" + String.format("%.2f", balance) + ")");
+        if (totalExpenses > 0 && balance * 10 < totalExpenses) {
+            System.out.println("⚠️  ВНИМАНИЕ: Низкий баланс (" + Money.format(balance) + ")");
             System.out.println("   Рекомендуется пополнить счет");
             hasAlerts = true;
         }
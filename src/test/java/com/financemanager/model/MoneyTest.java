@@ -0,0 +1,52 @@
+package com.financemanager.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MoneyTest {
+    @Test
+    public void parsesRublesAndKopecks() {
+        assertEquals(100_000, Money.parse("1000"));
+        assertEquals(100_050, Money.parse("1000.5"));
+        assertEquals(100_050, Money.parse("1000,50"));
+        assertEquals(-325, Money.parse("-3.25"));
+        assertEquals(7, Money.parse("+0.07"));
+    }
+
+    @Test
+    public void largestAmountFitsInLong() {
+        assertEquals(999_999_999_999_999_999L, Money.parse("9999999999999999.99"));
+        assertEquals(-999_999_999_999_999_999L, Money.parse("-9999999999999999.99"));
+        assertEquals("9999999999999999.99", Money.format(Money.parse("9999999999999999.99")));
+    }
+
+    @Test
+    public void rejectsAmountsThatWouldOverflow() {
+        // 17 и больше цифр рублей: раньше 18 цифр проходили проверку и переполняли long
+        rejects("10000000000000000");
+        rejects("99999999999999999");
+        rejects("999999999999999999");
+        rejects("-99999999999999999.99");
+    }
+
+    @Test
+    public void rejectsMalformedAmounts() {
+        rejects("");
+        rejects("-");
+        rejects(".");
+        rejects("1.234");
+        rejects("1.2.3");
+        rejects("12a");
+    }
+
+    private static void rejects(String text) {
+        try {
+            long value = Money.parse(text);
+            fail("Сумма '" + text + "' разобрана как " + value);
+        } catch (NumberFormatException expected) {
+            // ожидаемо
+        }
+    }
+}
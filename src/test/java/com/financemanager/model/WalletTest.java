@@ -0,0 +1,66 @@
+package com.financemanager.model;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WalletTest {
+    private static final long MAX_AMOUNT = 999_999_999_999_999_999L;
+
+    @Test
+    public void incomeAtBoundaryIsAccepted() {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(income("INC_0", Long.MAX_VALUE - 1));
+        assertTrue(wallet.canAdd(1, 0));
+        wallet.addTransaction(income("INC_1", 1));
+        assertEquals(Long.MAX_VALUE, wallet.getBalance());
+        assertFalse(wallet.canAdd(1, 0));
+    }
+
+    @Test
+    public void overflowingIncomeLeavesWalletUnchanged() {
+        Wallet wallet = new Wallet();
+        for (int i = 0; i < 9; i++) {
+            wallet.addTransaction(income("INC_" + i, MAX_AMOUNT));
+        }
+        try {
+            wallet.addTransaction(income("INC_9", MAX_AMOUNT));
+            fail("Переполнение баланса принято");
+        } catch (ArithmeticException expected) {
+            // ожидаемо
+        }
+        assertUnchanged(wallet);
+    }
+
+    @Test
+    public void overflowingBatchLeavesWalletUnchanged() {
+        Wallet wallet = new Wallet();
+        for (int i = 0; i < 9; i++) {
+            wallet.addTransaction(income("INC_" + i, MAX_AMOUNT));
+        }
+        try {
+            // Сама сумма пакета тоже переполняет long
+            wallet.addTransactions(List.of(income("INC_9", Long.MAX_VALUE), income("INC_10", Long.MAX_VALUE)));
+            fail("Переполнение итогов принято");
+        } catch (ArithmeticException expected) {
+            // ожидаемо
+        }
+        assertUnchanged(wallet);
+    }
+
+    private static void assertUnchanged(Wallet wallet) {
+        assertEquals(9, wallet.getTransactions().size());
+        assertEquals(9, wallet.getIncomeCount());
+        assertEquals(9 * MAX_AMOUNT, wallet.getBalance());
+        assertEquals(9 * MAX_AMOUNT, wallet.getTotalIncome());
+    }
+
+    private static Transaction income(String id, long amount) {
+        return new Transaction(id, amount, TransactionType.INCOME, "Зарплата", "", "2024-01-15T10:00:00");
+    }
+}
@@ -0,0 +1,146 @@
+package com.financemanager.service;
+
+import com.financemanager.model.User;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Запуск через отложенный индекс учетных записей (вместо StartupCheck): проверяется, какие записи
+// разобраны, а не время запуска
+public class AuthServiceStartupTest {
+    private static final int USERS = 200;
+    private static final String PASSWORD = "password";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger fullLoads = new AtomicInteger();
+    private final AtomicInteger decoded = new AtomicInteger();
+    private CountingFileService fileService;
+
+    @Before
+    public void setUp() {
+        fileService = new CountingFileService(folder.getRoot().getPath());
+        AuthService setup = new AuthService(fileService, new WalletCache(fileService), new PasswordHasher(1),
+                new LoginRateLimiter());
+        for (int i = 0; i < USERS; i++) {
+            setup.register("user" + i, PASSWORD);
+        }
+        setup.getWalletCache().close();
+        // Правка после снимка попадает в журнал и должна перекрыть прежнюю запись
+        User changed = fileService.loadUser("user5");
+        changed.setSecretQuestion("Кличка собаки?");
+        fileService.saveUser(changed);
+        fullLoads.set(0);
+        decoded.set(0);
+    }
+
+    @Test
+    public void startupDecodesNoUserRecords() {
+        AuthService authService = newAuthService();
+
+        assertEquals(0, fullLoads.get());
+        assertEquals(0, decoded.get());
+        assertTrue(authService.getUsers().isEmpty());
+        assertEquals(USERS, authService.getUserCount());
+        assertTrue(authService.isUserExists("user42"));
+        assertFalse(authService.isUserExists("nobody"));
+        // Проверка существования тоже обходится без разбора
+        assertEquals(0, decoded.get());
+    }
+
+    @Test
+    public void loginDecodesOnlyThatUser() {
+        AuthService authService = newAuthService();
+
+        assertNotNull(authService.authenticate("user7", PASSWORD));
+        assertEquals(Set.of("user7"), authService.getUsers().keySet());
+        assertEquals(1, decoded.get());
+        assertEquals(0, fullLoads.get());
+    }
+
+    @Test
+    public void indexedRecordsMatchFullLoad() {
+        AuthService authService = newAuthService();
+        Map<String, User> loaded = fileService.loadUsers();
+
+        assertEquals(USERS, loaded.size());
+        for (User expected : loaded.values()) {
+            User actual = authService.getUser(expected.getUsername());
+            assertEquals(expected.getPassword(), actual.getPassword());
+            assertEquals(expected.getSecretQuestion(), actual.getSecretQuestion());
+        }
+        assertEquals("Кличка собаки?", authService.getUser("user5").getSecretQuestion());
+        assertNull(authService.getUser("nobody"));
+    }
+
+    @Test
+    public void legacyUsersFileIsRemovedAfterMigration() throws IOException {
+        // Каталог прежнего формата: только data/users.json без credentials.json
+        File legacyDir = folder.newFolder("legacy");
+        File legacyFile = new File(legacyDir, "users.json");
+        Files.writeString(legacyFile.toPath(), new Gson().toJson(fileService.loadUsers()), StandardCharsets.UTF_8);
+
+        fileService = new CountingFileService(legacyDir.getPath());
+        AuthService authService = newAuthService();
+
+        assertFalse("Прежний файл учетных записей остался на диске", legacyFile.exists());
+        assertTrue(new File(legacyDir, "credentials.json").exists());
+        assertEquals(USERS, authService.getUserCount());
+        assertNotNull(authService.authenticate("user7", PASSWORD));
+        assertEquals("Кличка собаки?", newAuthService().getUser("user5").getSecretQuestion());
+    }
+
+    private AuthService newAuthService() {
+        return new AuthService(fileService, new WalletCache(fileService), new PasswordHasher(1),
+                new LoginRateLimiter());
+    }
+
+    // Считает полные загрузки учетных записей и разбор отдельных записей индекса
+    private class CountingFileService extends FileService {
+        CountingFileService(String dataDir) {
+            super(dataDir, DurabilityMode.NONE);
+        }
+
+        @Override
+        public Map<String, User> loadUsers() {
+            fullLoads.incrementAndGet();
+            return super.loadUsers();
+        }
+
+        @Override
+        public UserIndex openUserIndex() {
+            UserIndex index = super.openUserIndex();
+            assertTrue("Индекс построен полной загрузкой", index instanceof MappedUserIndex);
+            return new UserIndex() {
+                @Override
+                public int size() { return index.size(); }
+
+                @Override
+                public boolean contains(String username) { return index.contains(username); }
+
+                @Override
+                public User load(String username) {
+                    decoded.incrementAndGet();
+                    return index.load(username);
+                }
+            };
+        }
+    }
+}
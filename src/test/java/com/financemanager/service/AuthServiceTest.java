@@ -0,0 +1,104 @@
+package com.financemanager.service;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AuthServiceTest {
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Число вычислений PBKDF2: hash и verify хешированного значения
+    private final AtomicInteger derivations = new AtomicInteger();
+    private LoginRateLimiter rateLimiter;
+    private AuthService authService;
+
+    @Before
+    public void setUp() {
+        FileService fileService = new FileService(folder.getRoot().getPath(), DurabilityMode.NONE);
+        PasswordHasher hasher = new PasswordHasher(1) {
+            @Override
+            public String hash(String secret) {
+                derivations.incrementAndGet();
+                return super.hash(secret);
+            }
+
+            @Override
+            public boolean verify(String secret, String stored) {
+                if (isHashed(stored)) {
+                    derivations.incrementAndGet();
+                }
+                return super.verify(secret, stored);
+            }
+        };
+        rateLimiter = new LoginRateLimiter(MAX_ATTEMPTS, 60_000);
+        authService = new AuthService(fileService, new WalletCache(fileService), hasher, rateLimiter);
+    }
+
+    @Test
+    public void registeringTakenLoginDoesNotHash() {
+        assertTrue(authService.register("alice", "password"));
+        assertEquals(1, derivations.get());
+
+        assertFalse(authService.register("alice", "another"));
+        assertEquals(1, derivations.get());
+    }
+
+    @Test
+    public void unknownLoginCostsOneHashAndIsRateLimited() {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            assertNull(authService.authenticate("ghost", "guess" + i));
+            assertEquals(i + 1, derivations.get());
+        }
+        for (int i = 0; i < 10; i++) {
+            assertNull(authService.authenticate("ghost", "more" + i));
+        }
+        assertEquals(MAX_ATTEMPTS, derivations.get());
+        assertEquals(10, rateLimiter.getRejected());
+    }
+
+    @Test
+    public void knownLoginIsLimitedTheSameWay() {
+        assertTrue(authService.register("alice", "password"));
+        derivations.set(0);
+        for (int i = 0; i < MAX_ATTEMPTS + 10; i++) {
+            assertNull(authService.authenticate("alice", "guess" + i));
+        }
+        assertEquals(MAX_ATTEMPTS, derivations.get());
+        assertEquals(10, rateLimiter.getRejected());
+    }
+
+    @Test
+    public void successResetsAttempts() {
+        assertTrue(authService.register("alice", "password"));
+        for (int i = 0; i < MAX_ATTEMPTS - 1; i++) {
+            assertNull(authService.authenticate("alice", "guess" + i));
+        }
+        assertNotNull(authService.authenticate("alice", "password"));
+        for (int i = 0; i < MAX_ATTEMPTS - 1; i++) {
+            assertNull(authService.authenticate("alice", "guess" + i));
+        }
+        assertNotNull(authService.authenticate("alice", "password"));
+        assertEquals(0, rateLimiter.getRejected());
+    }
+
+    @Test
+    public void expiredWindowsArePurged() {
+        LoginRateLimiter limiter = new LoginRateLimiter(MAX_ATTEMPTS, 0);
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(limiter.tryAcquire("ghost" + i));
+        }
+        assertTrue(limiter.getTrackedLogins() <= 2 * 1024);
+    }
+}
@@ -0,0 +1,63 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionStore;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvExporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void exportsRowsWithoutType() throws IOException {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Transaction("INC_1", 100_00, TransactionType.INCOME, "Зарплата", "",
+                "2024-01-15T10:00:00"));
+        // Запись старого формата без типа хранится с флагом NO_TYPE
+        wallet.getTransactions().add(new Transaction("old", 5_50, null, "Еда", "обед, ужин",
+                "2024-01-15T10:00:00.120"));
+
+        Path path = folder.getRoot().toPath().resolve("export.csv");
+        assertEquals(2, new CsvExporter().export(wallet, path));
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(CsvExporter.HEADER, lines.get(0));
+        assertEquals("INC_1,2024-01-15T10:00:00,INCOME,Зарплата,100.00,", lines.get(1));
+        assertEquals("old,2024-01-15T10:00:00.12,,Еда,5.50,\"обед, ужин\"", lines.get(2));
+    }
+
+    @Test
+    public void formatDateMatchesIsoFormatter() {
+        Random random = new Random(42);
+        long[] bounds = {0, -1, 253402300799999L, 253402300800000L, -62167219200000L, -62167219200001L};
+        for (long timestamp : bounds) {
+            assertEquals(iso(timestamp), TransactionStore.formatDate(timestamp));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            long timestamp = random.nextLong() % 300_000_000_000_000L;
+            assertEquals(iso(timestamp), TransactionStore.formatDate(timestamp));
+        }
+    }
+
+    private static String iso(long timestamp) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000),
+                Math.floorMod(timestamp, 1000) * 1_000_000, ZoneOffset.UTC)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
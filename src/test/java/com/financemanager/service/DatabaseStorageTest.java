@@ -0,0 +1,65 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Transfer;
+import com.financemanager.model.Wallet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseStorageTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void transfersJournalSizeIsTrackedWithoutQueries() throws IOException {
+        String dataDir = folder.getRoot().getPath();
+        DatabaseStorage storage = new DatabaseStorage(dataDir, DurabilityMode.NONE);
+        assertEquals(0, storage.getTransfersJournalSize());
+
+        storage.appendTransfer(transfer(100_00));
+        long afterOne = storage.getTransfersJournalSize();
+        assertTrue(afterOne > 0);
+        storage.appendTransfer(transfer(250_00));
+        long afterTwo = storage.getTransfersJournalSize();
+        assertTrue(afterTwo > afterOne);
+        storage.close();
+
+        // Новый экземпляр считает объем по таблице - столько же, сколько насчитано при записи
+        DatabaseStorage reopened = new DatabaseStorage(dataDir, DurabilityMode.NONE);
+        assertEquals(afterTwo, reopened.getTransfersJournalSize());
+        assertEquals(2, reopened.loadTransfers().size());
+        reopened.clearTransfers();
+        assertEquals(0, reopened.getTransfersJournalSize());
+        reopened.close();
+    }
+
+    @Test
+    public void closedStorageKeepsSavedWallets() {
+        String dataDir = folder.getRoot().getPath();
+        DatabaseStorage storage = new DatabaseStorage(dataDir, DurabilityMode.GROUP_COMMIT);
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Transaction("INC_1", 100_00, TransactionType.INCOME, "Зарплата", "",
+                "2024-01-15T10:00:00"));
+        storage.saveWalletSnapshot(wallet, "alice");
+        storage.close();
+
+        DatabaseStorage reopened = new DatabaseStorage(dataDir, DurabilityMode.GROUP_COMMIT);
+        assertEquals(100_00, reopened.loadWallet("alice").getBalance());
+        reopened.close();
+    }
+
+    private static Transfer transfer(long amount) {
+        Transaction expense = new Transaction("EXP_" + IdGenerator.shared().nextId(), amount,
+                TransactionType.EXPENSE, "Переводы", "");
+        Transaction income = new Transaction("INC_" + IdGenerator.shared().nextId(), amount,
+                TransactionType.INCOME, "Переводы", "", expense.getDate());
+        return new Transfer(IdGenerator.shared().nextId(), "alice", "bob", expense, income);
+    }
+}
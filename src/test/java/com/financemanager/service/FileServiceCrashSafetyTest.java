@@ -0,0 +1,99 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+// Внесение сбоев в запись снимков (временный файл, сброс, атомарное переименование): запись,
+// прерванная на середине, не должна затрагивать прежний снимок. Проверка с убийством процесса - CrashSafetyCheck
+public class FileServiceCrashSafetyTest {
+    private static final String USERNAME = "alice";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void failedJsonWriteKeepsOldSnapshot() throws IOException {
+        failedWriteKeepsOldSnapshot(WalletFormat.JSON);
+    }
+
+    @Test
+    public void failedBinaryWriteKeepsOldSnapshot() throws IOException {
+        failedWriteKeepsOldSnapshot(WalletFormat.BINARY);
+    }
+
+    @Test
+    public void leftoverTempFileIsIgnoredAndReplaced() throws IOException {
+        FileService fileService = new FileService(folder.getRoot().getPath(), DurabilityMode.SYNC, WalletFormat.JSON);
+        fileService.saveWalletSnapshot(wallet(3), USERNAME);
+        File snapshot = fileService.getWalletSnapshotFile(USERNAME);
+        // Процесс убит во время записи: рядом со снимком остался обрезанный временный файл
+        File temp = new File(snapshot.getPath() + ".tmp");
+        Files.write(temp.toPath(), "{\"transactions\":[{\"id\":".getBytes());
+
+        assertEquals(3 * 100_00, fileService.loadWallet(USERNAME).getBalance());
+
+        fileService.saveWalletSnapshot(wallet(5), USERNAME);
+        assertFalse(temp.exists());
+        assertEquals(5 * 100_00, fileService.loadWallet(USERNAME).getBalance());
+    }
+
+    private void failedWriteKeepsOldSnapshot(WalletFormat format) throws IOException {
+        FileService fileService = new FileService(folder.getRoot().getPath(), DurabilityMode.SYNC, format);
+        fileService.saveWalletSnapshot(wallet(3), USERNAME);
+        File snapshot = fileService.getWalletSnapshotFile(USERNAME);
+        byte[] before = Files.readAllBytes(snapshot.toPath());
+
+        // Сбой диска после того, как новая версия записана наполовину
+        byte[] newer = Files.readAllBytes(snapshotOf(wallet(10), format).toPath());
+        for (boolean runtimeFailure : new boolean[]{false, true}) {
+            try {
+                fileService.writeAtomically(snapshot, out -> {
+                    out.write(Arrays.copyOf(newer, newer.length / 2));
+                    if (runtimeFailure) {
+                        throw new IllegalStateException("Сбой сериализации");
+                    }
+                    throw new IOException("Нет места на диске");
+                });
+                fail("Сбой записи не дошел до вызывающего");
+            } catch (IOException | IllegalStateException expected) {
+                // ожидаемо
+            }
+
+            assertArrayEquals(before, Files.readAllBytes(snapshot.toPath()));
+            assertFalse(new File(snapshot.getPath() + ".tmp").exists());
+            Wallet loaded = fileService.loadWallet(USERNAME);
+            assertEquals(3 * 100_00, loaded.getBalance());
+            assertEquals(3, loaded.getTransactions().size());
+        }
+    }
+
+    // Снимок другой версии кошелька в отдельном каталоге - содержимое для прерываемой записи
+    private File snapshotOf(Wallet wallet, WalletFormat format) throws IOException {
+        FileService other = new FileService(folder.newFolder().getPath(), DurabilityMode.NONE, format);
+        other.saveWalletSnapshot(wallet, USERNAME);
+        return other.getWalletSnapshotFile(USERNAME);
+    }
+
+    private static Wallet wallet(int transactions) {
+        Wallet wallet = new Wallet();
+        for (int i = 0; i < transactions; i++) {
+            wallet.addTransaction(new Transaction("INC_" + (i + 1), 100_00, TransactionType.INCOME, "Зарплата", "",
+                    "2024-01-15T10:00:00"));
+        }
+        return wallet;
+    }
+}
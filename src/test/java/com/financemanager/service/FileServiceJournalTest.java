@@ -0,0 +1,186 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileServiceJournalTest {
+    private static final String USERNAME = "alice";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileService fileService;
+
+    @Before
+    public void setUp() {
+        fileService = new FileService(folder.getRoot().getPath(), DurabilityMode.NONE, WalletFormat.JSON);
+    }
+
+    @Test
+    public void duplicateJournalRecordsAreAppliedOnce() throws IOException {
+        Wallet wallet = new Wallet();
+        fileService.saveWalletSnapshot(wallet, USERNAME);
+        wallet.addTransaction(income("t1", 100_00));
+        wallet.addTransaction(income("t2", 50_00));
+        fileService.saveWallet(wallet, USERNAME);
+
+        // Дозапись прервалась после части записей, и следующее сохранение дописало их повторно
+        File journal = journalFile();
+        byte[] records = Files.readAllBytes(journal.toPath());
+        Files.write(journal.toPath(), records, StandardOpenOption.APPEND);
+
+        Wallet loaded = fileService.loadWallet(USERNAME);
+        assertEquals(150_00, loaded.getBalance());
+        assertEquals(2, loaded.getTransactions().size());
+        assertEquals(150_00, loaded.getTotalIncome());
+    }
+
+    @Test
+    public void emptySnapshotReplaysJournal() throws IOException {
+        Wallet wallet = new Wallet();
+        fileService.saveWalletSnapshot(wallet, USERNAME);
+        wallet.addTransaction(income("t1", 100_00));
+        fileService.saveWallet(wallet, USERNAME);
+        Files.write(fileService.getWalletSnapshotFile(USERNAME).toPath(), new byte[0]);
+
+        Wallet loaded = fileService.loadWallet(USERNAME);
+        assertEquals(100_00, loaded.getBalance());
+        assertEquals(1, loaded.getTransactions().size());
+        // Журнал сжат в новый снимок
+        assertEquals(100_00, fileService.loadWallet(USERNAME).getBalance());
+    }
+
+    @Test
+    public void corruptSnapshotKeepsJournal() throws IOException {
+        Wallet wallet = new Wallet();
+        fileService.saveWalletSnapshot(wallet, USERNAME);
+        wallet.addTransaction(income("t1", 100_00));
+        fileService.saveWallet(wallet, USERNAME);
+        Files.write(fileService.getWalletSnapshotFile(USERNAME).toPath(), "{\"balance".getBytes());
+
+        fileService.loadWallet(USERNAME);
+        fileService.saveWalletSnapshot(new Wallet(), USERNAME);
+
+        File[] preserved = journalFile().getParentFile().listFiles(
+                (dir, name) -> name.startsWith(USERNAME + ".journal.corrupt"));
+        assertEquals(1, preserved.length);
+        assertTrue(preserved[0].length() > 0);
+    }
+
+    @Test
+    public void journalAndSnapshotLoadSameDates() throws IOException {
+        Wallet wallet = new Wallet();
+        fileService.saveWalletSnapshot(wallet, USERNAME);
+        wallet.addTransaction(new Transaction("t1", 100_00, TransactionType.INCOME, "Зарплата", ""));
+        wallet.addTransaction(new Transaction("t2", 50_00, TransactionType.INCOME, "Зарплата", "",
+                "2024-01-15T10:00:00.123456789"));
+        fileService.saveWallet(wallet, USERNAME);
+
+        // В журнал попадает та же строка даты, что и в снимок
+        String journal = new String(Files.readAllBytes(journalFile().toPath()), StandardCharsets.UTF_8);
+        assertTrue(journal, journal.contains("\"2024-01-15T10:00:00.123\""));
+        assertFalse(journal, journal.contains("123456789"));
+
+        // Сначала загрузка повтором журнала, затем из сжатого снимка
+        Wallet fromJournal = fileService.loadWallet(USERNAME);
+        fileService.saveWalletSnapshot(fromJournal, USERNAME);
+        Wallet fromSnapshot = fileService.loadWallet(USERNAME);
+
+        assertEquals("2024-01-15T10:00:00.123", fromJournal.findTransaction("t2").getDate());
+        for (String id : new String[] {"t1", "t2"}) {
+            Transaction original = wallet.findTransaction(id);
+            assertEquals(original.getDate(), fromJournal.findTransaction(id).getDate());
+            assertEquals(original.getDate(), fromSnapshot.findTransaction(id).getDate());
+            assertEquals(original.getTimestamp(), fromSnapshot.findTransaction(id).getTimestamp());
+        }
+    }
+
+    @Test
+    public void failedPartialAppendDoesNotSwallowRetry() throws IOException {
+        Wallet wallet = new Wallet();
+        fileService.saveWalletSnapshot(wallet, USERNAME);
+        wallet.addTransaction(income("t1", 100_00));
+        fileService.saveWallet(wallet, USERNAME);
+
+        // Дозапись t2 оборвалась на середине строки
+        wallet.addTransaction(income("t2", 50_00));
+        File journal = journalFile();
+        try {
+            fileService.appendJournal(journal, out -> {
+                out.write("{\"seq\":2,\"type\":\"TRANS".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("Нет места на диске");
+            });
+            fail("Сбой дозаписи не дошел до вызывающего");
+        } catch (IOException expected) {
+            // ожидаемо
+        }
+
+        // Повтор записи и следующие правки не должны склеиться с обрывком
+        fileService.saveWallet(wallet, USERNAME);
+        wallet.addTransaction(income("t3", 25_00));
+        fileService.saveWallet(wallet, USERNAME);
+
+        Wallet loaded = fileService.loadWallet(USERNAME);
+        assertEquals(3, loaded.getTransactions().size());
+        assertEquals(175_00, loaded.getBalance());
+    }
+
+    @Test
+    public void tornRecordInMiddleDoesNotDropLaterRecords() throws IOException {
+        Wallet wallet = new Wallet();
+        fileService.saveWalletSnapshot(wallet, USERNAME);
+        wallet.addTransaction(income("t1", 100_00));
+        fileService.saveWallet(wallet, USERNAME);
+        Files.write(journalFile().toPath(), "{\"seq\":2,\"ty\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        wallet.addTransaction(income("t2", 50_00));
+        fileService.saveWallet(wallet, USERNAME);
+
+        Wallet loaded = fileService.loadWallet(USERNAME);
+        assertEquals(2, loaded.getTransactions().size());
+        assertEquals(150_00, loaded.getBalance());
+        // Журнал сжат в снимок без поврежденной строки
+        assertEquals(150_00, fileService.loadWallet(USERNAME).getBalance());
+    }
+
+    @Test
+    public void malformedDateKeepsCorruptSnapshot() throws IOException {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(income("t1", 100_00));
+        fileService.saveWalletSnapshot(wallet, USERNAME);
+        File snapshot = fileService.getWalletSnapshotFile(USERNAME);
+        String json = new String(Files.readAllBytes(snapshot.toPath()), StandardCharsets.UTF_8);
+        Files.write(snapshot.toPath(), json.replace("2024-01-15T10:00:00", "2024-13-45T10:00:00")
+                .getBytes(StandardCharsets.UTF_8));
+
+        fileService.loadWallet(USERNAME);
+
+        File[] preserved = snapshot.getParentFile().listFiles(
+                (dir, name) -> name.startsWith(snapshot.getName() + ".corrupt"));
+        assertEquals(1, preserved.length);
+    }
+
+    private File journalFile() {
+        return fileService.getLayout().walletFile(USERNAME, ".journal");
+    }
+
+    private static Transaction income(String id, long amount) {
+        return new Transaction(id, amount, TransactionType.INCOME, "Зарплата", "", "2024-01-15T10:00:00");
+    }
+}
@@ -0,0 +1,113 @@
+package com.financemanager.service;
+
+import com.financemanager.exception.InsufficientFundsException;
+import com.financemanager.model.Session;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Transfer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+// Уменьшенный вариант TransferStress: встречные переводы из многих потоков не меняют общую сумму
+// балансов - в памяти, после перечитывания с диска и после восстановления оборванного перевода
+public class TransferServiceConcurrencyTest {
+    private static final String PASSWORD = "password";
+    private static final int THREADS = 8;
+    private static final int WALLETS = 16;
+    private static final int TRANSFERS = 1_000;
+    private static final long INITIAL_BALANCE = 1_000_000_00L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void concurrentTransfersConserveTotal() throws Exception {
+        String dataDir = folder.getRoot().getPath();
+        FileService fileService = new FileService(dataDir, DurabilityMode.NONE);
+        AuthService authService = new AuthService(fileService, new WalletCache(fileService),
+                new PasswordHasher(1), new LoginRateLimiter());
+        TransferService transferService = new TransferService(fileService, authService.getWalletCache());
+
+        String[] usernames = new String[WALLETS];
+        Session[] sessions = new Session[WALLETS];
+        for (int i = 0; i < WALLETS; i++) {
+            usernames[i] = "user" + i;
+            authService.register(usernames[i], PASSWORD);
+            sessions[i] = authService.openSession(usernames[i], PASSWORD);
+            sessions[i].getWallet().addTransaction(new Transaction("INC_" + IdGenerator.shared().nextId(),
+                    INITIAL_BALANCE, TransactionType.INCOME, "Зарплата", ""));
+        }
+        long expectedTotal = INITIAL_BALANCE * WALLETS;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long seed = t;
+                results.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    start.await();
+                    for (int i = 0; i < TRANSFERS; i++) {
+                        int from = random.nextInt(WALLETS);
+                        int to = random.nextInt(WALLETS);
+                        try {
+                            transferService.transfer(sessions[from], usernames[to],
+                                    1 + random.nextInt(100_000_000), "");
+                        } catch (InsufficientFundsException e) {
+                            // Нехватка средств - допустимый исход
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long inMemory = 0;
+        for (Session session : sessions) {
+            inMemory += session.getWallet().getBalance();
+            authService.closeSession(session);
+        }
+        assertEquals(expectedTotal, inMemory);
+
+        // Перевод записан в журнал, но до кошельков не дошел - как при сбое между этими шагами
+        long crashedAmount = 12_345;
+        Transaction expense = new Transaction("EXP_" + IdGenerator.shared().nextId(), crashedAmount,
+                TransactionType.EXPENSE, "Переводы", "");
+        Transaction income = new Transaction("INC_" + IdGenerator.shared().nextId(), crashedAmount,
+                TransactionType.INCOME, "Переводы", "", expense.getDate());
+        fileService.appendTransfer(new Transfer(IdGenerator.shared().nextId(), usernames[0], usernames[1],
+                expense, income));
+
+        // Новый кэш читает кошельки с диска, а новый сервис переводов дописывает оборванный перевод
+        WalletCache reloaded = new WalletCache(new FileService(dataDir, DurabilityMode.NONE));
+        new TransferService(new FileService(dataDir, DurabilityMode.NONE), reloaded);
+        assertNotNull(reloaded.get(usernames[0]).findTransaction(expense.getId()));
+        assertNotNull(reloaded.get(usernames[1]).findTransaction(income.getId()));
+        long afterReload = 0;
+        for (String username : usernames) {
+            afterReload += reloaded.get(username).getBalance();
+        }
+        assertEquals(expectedTotal, afterReload);
+        reloaded.close();
+        authService.getWalletCache().close();
+    }
+}
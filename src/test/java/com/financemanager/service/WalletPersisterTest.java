@@ -0,0 +1,54 @@
+package com.financemanager.service;
+
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class WalletPersisterTest {
+    private static final String USERNAME = "alice";
+    // Окно больше времени теста: записывает только явный flush
+    private static final long WINDOW_MILLIS = 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void remarkWithNewWalletInstanceSavesLatestAndKeepsFirstMarkTime() throws InterruptedException {
+        FileService fileService = new FileService(folder.getRoot().getPath(), DurabilityMode.NONE, WalletFormat.JSON);
+        fileService.saveWalletSnapshot(new Wallet(), USERNAME);
+        WalletPersister persister = new WalletPersister(fileService, new WalletLocks(), WINDOW_MILLIS);
+        try {
+            Wallet stale = fileService.loadWallet(USERNAME);
+            stale.addTransaction(income("INC_1"));
+            persister.markDirty(USERNAME, stale);
+            fileService.saveWallet(stale, USERNAME);
+            Thread.sleep(50);
+
+            // Кошелек вытеснен из кэша, записан и загружен заново другим экземпляром
+            Wallet current = fileService.loadWallet(USERNAME);
+            current.addTransaction(income("INC_2"));
+            persister.markDirty(USERNAME, current);
+            assertEquals(1, persister.getQueueDepth());
+
+            persister.flush(USERNAME);
+            Wallet saved = fileService.loadWallet(USERNAME);
+            assertNotNull(saved.findTransaction("INC_2"));
+            assertEquals(200_00, saved.getBalance());
+            // Задержка считается от первой неучтенной правки, а не от последней пометки
+            assertTrue(persister.getMaxFlushLatencyMillis() >= 50);
+        } finally {
+            persister.close();
+        }
+    }
+
+    private static Transaction income(String id) {
+        return new Transaction(id, 100_00, TransactionType.INCOME, "Зарплата", "", "2024-01-15T10:00:00");
+    }
+}
@@ -0,0 +1,121 @@
+package com.financemanager.service;
+
+import com.financemanager.exception.InsufficientFundsException;
+import com.financemanager.model.Session;
+import com.financemanager.model.Wallet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Уменьшенный вариант ConcurrencyStress: потоки одновременно пополняют, тратят и переводят деньги
+// между кошельками через собственные сессии; итоги сверяются в памяти и после перечитывания с диска
+public class WalletServiceConcurrencyTest {
+    private static final String PASSWORD = "password";
+    private static final int THREADS = 8;
+    private static final int WALLETS = 16;
+    private static final int OPERATIONS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void concurrentOperationsLoseNoUpdates() throws Exception {
+        FileService fileService = new FileService(folder.getRoot().getPath(), DurabilityMode.NONE);
+        // Кэш меньше числа кошельков, чтобы вытеснение шло вперемешку с операциями
+        AuthService authService = new AuthService(fileService,
+                new WalletCache(fileService, WALLETS - WALLETS / 8, Long.MAX_VALUE),
+                new PasswordHasher(1), new LoginRateLimiter());
+        WalletService walletService = new WalletService(authService, new TransactionService(), fileService);
+
+        String[] usernames = new String[WALLETS];
+        for (int i = 0; i < WALLETS; i++) {
+            usernames[i] = "user" + i;
+            authService.register(usernames[i], PASSWORD);
+        }
+
+        AtomicLongArray expectedBalance = new AtomicLongArray(WALLETS);
+        AtomicLongArray expectedCount = new AtomicLongArray(WALLETS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        long applied = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long seed = t;
+                results.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    start.await();
+                    long done = 0;
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        int owner = random.nextInt(WALLETS);
+                        long amount = 1 + random.nextInt(10_000);
+                        Session session = authService.openSession(usernames[owner], PASSWORD);
+                        try {
+                            switch (random.nextInt(3)) {
+                                case 0 -> {
+                                    walletService.addIncome(session, amount, "Зарплата", "");
+                                    expectedBalance.addAndGet(owner, amount);
+                                    expectedCount.incrementAndGet(owner);
+                                }
+                                case 1 -> {
+                                    walletService.addExpense(session, amount, "Еда", "");
+                                    expectedBalance.addAndGet(owner, -amount);
+                                    expectedCount.incrementAndGet(owner);
+                                }
+                                default -> {
+                                    int target = random.nextInt(WALLETS);
+                                    walletService.transferToUser(session, usernames[target], amount, "");
+                                    expectedBalance.addAndGet(owner, -amount);
+                                    expectedBalance.addAndGet(target, amount);
+                                    expectedCount.incrementAndGet(owner);
+                                    expectedCount.incrementAndGet(target);
+                                }
+                            }
+                            done++;
+                        } catch (InsufficientFundsException e) {
+                            // Нехватка средств - допустимый исход, итоги не меняются
+                        } finally {
+                            authService.closeSession(session);
+                        }
+                    }
+                    return done;
+                }));
+            }
+            start.countDown();
+            for (Future<Long> result : results) {
+                applied += result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        authService.getWalletCache().flushAll();
+
+        assertTrue("Ни одна операция не прошла", applied > 0);
+        verify(authService.getWalletCache(), usernames, expectedBalance, expectedCount);
+        // Новый кэш читает кошельки с диска: снимок плюс журнал
+        verify(new WalletCache(fileService), usernames, expectedBalance, expectedCount);
+        authService.getWalletCache().close();
+    }
+
+    private static void verify(WalletCache cache, String[] usernames,
+                               AtomicLongArray expectedBalance, AtomicLongArray expectedCount) {
+        for (int i = 0; i < usernames.length; i++) {
+            Wallet wallet = cache.get(usernames[i]);
+            assertEquals("Баланс " + usernames[i], expectedBalance.get(i), wallet.getBalance());
+            assertEquals("Операций " + usernames[i], expectedCount.get(i), wallet.getTransactions().size());
+            assertTrue("Агрегаты " + usernames[i], wallet.checkConsistency());
+        }
+    }
+}
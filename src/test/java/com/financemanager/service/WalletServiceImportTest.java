@@ -0,0 +1,118 @@
+package com.financemanager.service;
+
+import com.financemanager.exception.InsufficientFundsException;
+import com.financemanager.model.Session;
+import com.financemanager.model.Transaction;
+import com.financemanager.model.TransactionType;
+import com.financemanager.model.Wallet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class WalletServiceImportTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AuthService authService;
+    private WalletService walletService;
+    private Session session;
+
+    @Before
+    public void setUp() {
+        FileService fileService = new FileService(folder.getRoot().getPath(), DurabilityMode.NONE, WalletFormat.JSON);
+        authService = new AuthService(fileService, new WalletCache(fileService), new PasswordHasher(1),
+                new LoginRateLimiter());
+        walletService = new WalletService(authService, new TransactionService(), fileService);
+        authService.register("alice", "password");
+        session = authService.openSession("alice", "password");
+    }
+
+    @After
+    public void tearDown() {
+        authService.closeSession(session);
+        authService.getWalletCache().close();
+    }
+
+    @Test
+    public void importsRowsInChunksAndSkipsRepeats() throws Exception {
+        // Больше одного пакета импорта: доход, затем расход на ту же сумму
+        int pairs = 12_000;
+        Path csv = folder.getRoot().toPath().resolve("import.csv");
+        try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write(CsvExporter.HEADER + "\n");
+            for (int i = 0; i < pairs; i++) {
+                writer.write("INC_" + i + ",2024-01-15T10:00:00,INCOME,Зарплата,100.00,\n");
+                writer.write("EXP_" + i + ",2024-01-15T11:00:00,EXPENSE,Еда,40.50,обед\n");
+            }
+        }
+
+        walletService.importFromCSV(session, csv.toString());
+        walletService.importFromCSV(session, csv.toString());
+
+        Wallet wallet = session.getWallet();
+        assertEquals(2 * pairs, wallet.getTransactions().size());
+        assertEquals(pairs * 59_50L, wallet.getBalance());
+    }
+
+    @Test
+    public void expenseAboveBalanceStopsImport() throws IOException {
+        Path csv = write("INC_1,2024-01-15T10:00:00,INCOME,Зарплата,100.00,\n"
+                + "EXP_1,2024-01-15T11:00:00,EXPENSE,Еда,60.00,\n"
+                + "EXP_2,2024-01-15T12:00:00,EXPENSE,Еда,50.00,\n"
+                + "INC_2,2024-01-15T13:00:00,INCOME,Зарплата,500.00,\n");
+
+        try {
+            walletService.importFromCSV(session, csv.toString());
+            fail("Расход больше остатка импортирован");
+        } catch (InsufficientFundsException expected) {
+            // Строки до превышения остатка применены, остальные - нет
+        } catch (Exception e) {
+            fail("Неожиданное исключение: " + e);
+        }
+
+        Wallet wallet = session.getWallet();
+        assertEquals(2, wallet.getTransactions().size());
+        assertEquals(40_00, wallet.getBalance());
+    }
+
+    @Test
+    public void overflowingIncomeStopsImport() throws IOException {
+        // Кошелек в 100 рублях от предела: вторая строка переполнила бы баланс
+        Wallet wallet = session.getWallet();
+        wallet.addTransaction(new Transaction("INC_0", Long.MAX_VALUE - 100_00, TransactionType.INCOME,
+                "Зарплата", "", "2024-01-15T09:00:00"));
+        Path csv = write("INC_1,2024-01-15T10:00:00,INCOME,Зарплата,60.00,\n"
+                + "INC_2,2024-01-15T11:00:00,INCOME,Зарплата,60.00,\n"
+                + "INC_3,2024-01-15T12:00:00,INCOME,Зарплата,1.00,\n");
+
+        try {
+            walletService.importFromCSV(session, csv.toString());
+            fail("Переполнение баланса импортировано");
+        } catch (IllegalArgumentException expected) {
+            // Строки до переполнения применены, остальные - нет
+        } catch (Exception e) {
+            fail("Неожиданное исключение: " + e);
+        }
+
+        assertEquals(2, wallet.getTransactions().size());
+        assertEquals(Long.MAX_VALUE - 40_00, wallet.getBalance());
+        assertEquals(wallet.getBalance(), wallet.getTotalIncome());
+    }
+
+    private Path write(String rows) throws IOException {
+        Path csv = folder.getRoot().toPath().resolve("rows.csv");
+        Files.writeString(csv, CsvExporter.HEADER + "\n" + rows, StandardCharsets.UTF_8);
+        return csv;
+    }
+}